@@ -0,0 +1,27 @@
+#!/bin/sh
+# 生成 AppCDS 归档 (JDK 11+)：编译、记录一次典型启动加载的类，再转储为共享归档。
+# 用法: scripts/build-cds.sh [存储文件]
+# 未指定存储文件时训练运行使用 out/cds-training.db (每次重新创建)，不在仓库根目录留下文件。
+# 生成的 out/app.jar 与 out/app.jsa 由 scripts/run-fast.sh 使用；更换 JDK 或修改代码后需重新生成。
+set -e
+cd "$(dirname "$0")/.."
+OUT=out/classes
+
+rm -rf "$OUT"
+mkdir -p "$OUT"
+if [ -n "$1" ]; then
+    STORE=$1
+else
+    STORE=out/cds-training.db
+    rm -f "$STORE" "$STORE".*
+fi
+javac --release 11 -encoding UTF-8 -d "$OUT" $(find src -name '*.java')
+# CDS 只能归档 jar 中的应用类，类路径中不能有非空目录
+jar --create --file out/app.jar --main-class Main -C "$OUT" .
+
+# 训练运行：打开存储、首次查询、执行一条统计命令，覆盖启动路径上加载的类
+echo "count" | java -Xshare:off -XX:DumpLoadedClassList=out/classes.lst -cp out/app.jar \
+    Main --store "$STORE" --fast-start --first-query U0 --batch - > /dev/null
+
+java -Xshare:dump -XX:SharedClassListFile=out/classes.lst -XX:SharedArchiveFile=out/app.jsa -cp out/app.jar
+echo "已生成 out/app.jsa"
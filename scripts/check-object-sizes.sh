@@ -0,0 +1,11 @@
+#!/bin/sh
+# 对象大小估算检查：用 utils.ObjectSizes (及按它计算的学生内存占用) 估算字符串、装箱数值、HashMap 与学生对象的字节数，
+# 与实测的堆占用 (创建一批对象前后各完整回收一遍，已用字节数之差) 比较，任一项相差超过 2% 时以非零状态退出。
+# 用串行回收器运行，回收后的已用字节数是精确的；默认配置与关闭压缩指针 (堆大于 32 GB 时的配置) 各检查一次。
+# 需先执行 scripts/build-cds.sh 生成 out/app.jar。用法: scripts/check-object-sizes.sh
+cd "$(dirname "$0")/.."
+for OPTS in "" "-XX:-UseCompressedOops"; do
+    echo "JVM 参数: -XX:+UseSerialGC $OPTS"
+    java -XX:+UseSerialGC $OPTS -cp out/app.jar Main --check-object-sizes || { echo "检查失败"; exit 1; }
+done
+echo "对象大小估算检查通过"
@@ -0,0 +1,49 @@
+#!/bin/sh
+# 堆外存储回归检查：逐个添加学生跨过多次哈希表扩容，再删除、重新添加并逐个查询，
+# 然后反复改分 (旧记录成为失效记录，触发记录区自动压缩) 后再逐个查询，开启断言 (-ea) 运行。
+# 哈希表中同一槽位出现两次、删除后查询越界等问题会触发断言或使命令失败，脚本以非零状态退出。
+# 需先执行 scripts/build-cds.sh 生成 out/app.jar。用法: scripts/check-offheap.sh [学生数 (默认 300)]
+cd "$(dirname "$0")/.."
+COUNT=${1:-300}
+OUTPUT=$(
+    {
+        i=1
+        while [ "$i" -le "$COUNT" ]; do
+            echo "add|U|U$i|学生$i|20|$((i % 7))班|浙江|杭州|文一路|$i|计算机"
+            i=$((i + 1))
+        done
+        i=1
+        while [ "$i" -le "$COUNT" ]; do
+            [ $((i % 2)) -eq 0 ] && echo "delete|U$i"
+            i=$((i + 1))
+        done
+        i=1
+        while [ "$i" -le "$COUNT" ]; do
+            echo "search|id|U$i"
+            [ $((i % 2)) -eq 0 ] && echo "add|U|U$i|学生$i|21|$((i % 7))班|浙江|杭州|文二路|$i|软件工程"
+            i=$((i + 1))
+        done
+        round=1
+        while [ "$round" -le 20 ]; do
+            i=1
+            while [ "$i" -le "$COUNT" ]; do
+                echo "score|U$i|Java|$(( (i + round) % 100 ))"
+                i=$((i + 1))
+            done
+            round=$((round + 1))
+        done
+        i=1
+        while [ "$i" -le "$COUNT" ]; do
+            echo "search|id|U$i"
+            i=$((i + 1))
+        done
+        echo "browse|all"
+        echo "count"
+    } | java -ea -cp out/app.jar Main --offheap --batch - 2>&1
+) || { echo "$OUTPUT" | tail -20; echo "检查失败：进程异常退出"; exit 1; }
+if ! echo "$OUTPUT" | grep -q "失败命令: 0," || ! echo "$OUTPUT" | grep -q "总人数: $COUNT\$"; then
+    echo "$OUTPUT" | grep -E "失败|总人数" | head -20
+    echo "检查失败"
+    exit 1
+fi
+echo "堆外存储检查通过 ($COUNT 名学生)"
@@ -0,0 +1,12 @@
+#!/bin/sh
+# 调度器交互延迟检查：先在空闲的调度器上按固定节奏按学号查找，再在后台持续排序、Top-K、扫描和批量导入时重复一遍，
+# 后台负载下交互操作的 p99 延迟比空闲时多出 2 ms 以上 (某个后台操作不能分步让出工作线程) 时以非零状态退出。
+# 只有一个处理器时只启用 C1 编译：C2 在后台一次编译数毫秒，与忙碌的工作线程争抢唯一的处理器，测到的是编译而不是调度。
+# 名册更大时串行回收器每次年轻代回收要停顿数毫秒，停顿同样计入延迟，检查结果反映的是回收而不是调度。
+# 需先执行 scripts/build-cds.sh 生成 out/app.jar。用法: scripts/check-scheduler.sh [学生数 (默认 20000)]
+cd "$(dirname "$0")/.."
+COUNT=${1:-20000}
+JIT_OPTS=
+[ "$(nproc 2>/dev/null || echo 2)" -le 1 ] && JIT_OPTS=-XX:TieredStopAtLevel=1
+java $JIT_OPTS -cp out/app.jar Main --check-scheduler "$COUNT" || { echo "检查失败"; exit 1; }
+echo "调度器延迟检查通过 ($COUNT 名学生)"
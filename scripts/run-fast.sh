@@ -0,0 +1,7 @@
+#!/bin/sh
+# 使用 AppCDS 归档与后台建索引快速启动。参数原样传给 Main，例如:
+#   scripts/run-fast.sh --store students.db --first-query U24001
+# 需先执行 scripts/build-cds.sh；归档缺失或与 JDK 不匹配时 JVM 会忽略它并正常启动。
+cd "$(dirname "$0")/.."
+exec java -Xshare:auto -XX:SharedArchiveFile=out/app.jsa -cp out/app.jar \
+    Main --fast-start "$@"
@@ -0,0 +1,9 @@
+#!/bin/sh
+# 开启 JFR 运行，使用 scripts/studentms.jfc 配置，退出时写出记录文件。参数原样传给 Main，例如:
+#   scripts/run-profiled.sh --store students.db --batch commands.txt
+# 需先执行 scripts/build-cds.sh 生成 out/app.jar。记录文件默认为 out/studentms.jfr，可用环境变量 JFR_FILE 指定；汇总:
+#   java -cp out/app.jar Main --analyze-jfr out/studentms.jfr
+cd "$(dirname "$0")/.."
+JFR_FILE=${JFR_FILE:-out/studentms.jfr}
+exec java -XX:StartFlightRecording=settings=scripts/studentms.jfc,filename="$JFR_FILE",dumponexit=true \
+    -cp out/app.jar Main "$@"
@@ -1,8 +1,208 @@
+import service.ObjectSizeCheck;
+import service.OffHeapStudentMap;
+import service.RecordingAnalyzer;
+import service.SchedulerLatencyCheck;
+import service.StudentManagementSystem;
+import service.TieredStudentMap;
+import service.WorkloadGenerator;
+import service.WorkloadRecorder;
+import service.WorkloadReplayer;
+import service.WorkloadTrace;
+import view.BatchRunner;
 import view.Menu;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
 public class Main {
-    public static void main(String[] args) {
-        Menu menu = new Menu();
-        menu.run();
+    private static final int DEFAULT_CACHE_CAPACITY = 10_000;
+    private static final int DEFAULT_OFF_HEAP_BYTES = 1 << 20;
+    private static final int DEFAULT_WORKLOAD_KEYS = 10_000;
+    private static final int DEFAULT_WORKLOAD_OPS = 100_000;
+
+    /**
+     * 程序入口。
+     * 可选参数: --store &lt;文件&gt; 使用磁盘分层存储, --cache &lt;条数&gt; 设置内存缓存容量,
+     * --offheap 使用堆外存储, --batch &lt;脚本文件|-&gt; 以批处理模式执行脚本或标准输入中的命令,
+     * --fast-start 分层存储的二级索引改为后台建立, --first-query &lt;学号&gt; 启动后立即按学号查询一次并打印启动耗时。
+     * <p>
+     * 工作负载: --record &lt;轨迹文件&gt; 记录本次运行的服务调用;
+     * --replay &lt;轨迹文件&gt; 回放轨迹并打印统计, 配合 --speed &lt;倍数&gt; (默认 1, 0 为不限速) 或 --threads &lt;线程数&gt; (闭环);
+     * --generate &lt;轨迹文件&gt; 生成合成轨迹后退出, 配合 --keys、--ops、--read-ratio、--zipf、--rate、--seed。
+     * <p>
+     * 性能分析: --analyze-jfr &lt;记录文件&gt; 汇总 JFR 记录 (见 scripts/run-profiled.sh) 后退出;
+     * --check-scheduler &lt;学生数&gt; 检查后台负载下调度器交互操作的延迟 (见 scripts/check-scheduler.sh)，未通过时以状态 1 退出;
+     * --check-object-sizes 比较对象大小估算与实测的堆占用 (见 scripts/check-object-sizes.sh)，有偏差时以状态 1 退出。
+     */
+    public static void main(String[] args) throws IOException {
+        String storeFile = null;
+        int cacheCapacity = DEFAULT_CACHE_CAPACITY;
+        boolean offHeap = false;
+        String batchScript = null;
+        boolean fastStart = false;
+        String firstQueryId = null;
+        String recordFile = null;
+        String replayFile = null;
+        double replaySpeed = 1;
+        int replayThreads = 0;
+        String generateFile = null;
+        String analyzeFile = null;
+        int schedulerCheckStudents = 0;
+        boolean checkObjectSizes = false;
+        int workloadKeys = DEFAULT_WORKLOAD_KEYS;
+        int workloadOps = DEFAULT_WORKLOAD_OPS;
+        double readRatio = 0.9;
+        double zipfExponent = 0.99;
+        double opsPerSecond = 0;
+        long seed = 42;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--store") && i + 1 < args.length) {
+                storeFile = args[++i];
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                cacheCapacity = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--offheap")) {
+                offHeap = true;
+            } else if (args[i].equals("--batch") && i + 1 < args.length) {
+                batchScript = args[++i];
+            } else if (args[i].equals("--fast-start")) {
+                fastStart = true;
+            } else if (args[i].equals("--first-query") && i + 1 < args.length) {
+                firstQueryId = args[++i];
+            } else if (args[i].equals("--record") && i + 1 < args.length) {
+                recordFile = args[++i];
+            } else if (args[i].equals("--replay") && i + 1 < args.length) {
+                replayFile = args[++i];
+            } else if (args[i].equals("--speed") && i + 1 < args.length) {
+                replaySpeed = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                replayThreads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--generate") && i + 1 < args.length) {
+                generateFile = args[++i];
+            } else if (args[i].equals("--analyze-jfr") && i + 1 < args.length) {
+                analyzeFile = args[++i];
+            } else if (args[i].equals("--check-scheduler") && i + 1 < args.length) {
+                schedulerCheckStudents = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--check-object-sizes")) {
+                checkObjectSizes = true;
+            } else if (args[i].equals("--keys") && i + 1 < args.length) {
+                workloadKeys = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--ops") && i + 1 < args.length) {
+                workloadOps = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--read-ratio") && i + 1 < args.length) {
+                readRatio = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("--zipf") && i + 1 < args.length) {
+                zipfExponent = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("--rate") && i + 1 < args.length) {
+                opsPerSecond = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            }
+        }
+
+        if (analyzeFile != null) {
+            System.out.print(RecordingAnalyzer.analyze(Paths.get(analyzeFile)));
+            return;
+        }
+        if (schedulerCheckStudents > 0) {
+            SchedulerLatencyCheck.Result result = SchedulerLatencyCheck.run(schedulerCheckStudents);
+            System.out.println(result);
+            if (!result.passed()) {
+                System.exit(1);
+            }
+            return;
+        }
+        if (checkObjectSizes) {
+            boolean passed = true;
+            for (ObjectSizeCheck.Item item : ObjectSizeCheck.run()) {
+                System.out.println(item);
+                passed &= item.passed();
+            }
+            if (!passed) {
+                System.exit(1);
+            }
+            return;
+        }
+        if (generateFile != null) {
+            long events = new WorkloadGenerator(seed).generate(Paths.get(generateFile), workloadKeys, workloadOps,
+                    readRatio, zipfExponent, opsPerSecond);
+            System.out.println("已生成轨迹 " + generateFile + ", 共 " + events + " 个事件。");
+            return;
+        }
+
+        long openStart = System.nanoTime();
+        StudentManagementSystem sms;
+        if (storeFile != null) {
+            StudentManagementSystem.IndexBuildMode mode = fastStart
+                    ? StudentManagementSystem.IndexBuildMode.BACKGROUND : StudentManagementSystem.IndexBuildMode.EAGER;
+            sms = new StudentManagementSystem(TieredStudentMap.open(Paths.get(storeFile), cacheCapacity), mode);
+        } else if (offHeap) {
+            sms = new StudentManagementSystem(new OffHeapStudentMap(DEFAULT_OFF_HEAP_BYTES));
+        } else {
+            sms = new StudentManagementSystem();
+        }
+        long openNanos = System.nanoTime() - openStart;
+        try (sms) {
+            if (firstQueryId != null) {
+                probeFirstQuery(sms, firstQueryId, openNanos);
+            }
+            if (replayFile != null) {
+                replay(sms, replayFile, replaySpeed, replayThreads);
+            } else if (recordFile != null) {
+                try (WorkloadRecorder recorder = WorkloadRecorder.open(Paths.get(recordFile))) {
+                    sms.setWorkloadRecorder(recorder);
+                    runInteractiveOrBatch(sms, batchScript);
+                    sms.setWorkloadRecorder(null);
+                    System.out.println("已记录 " + recorder.getEventCount() + " 个事件到 " + recordFile + "。");
+                }
+            } else {
+                runInteractiveOrBatch(sms, batchScript);
+            }
+        }
+    }
+
+    private static void runInteractiveOrBatch(StudentManagementSystem sms, String batchScript) throws IOException {
+        if (batchScript != null) {
+            runBatch(sms, batchScript);
+        } else {
+            Menu menu = new Menu(sms);
+            menu.run();
+        }
+    }
+
+    private static void replay(StudentManagementSystem sms, String traceFile, double speed, int threads) throws IOException {
+        WorkloadTrace trace = WorkloadTrace.read(Paths.get(traceFile));
+        System.out.println("读取轨迹 " + traceFile + ", 共 " + trace.size() + " 个事件，开始回放...");
+        WorkloadReplayer replayer = new WorkloadReplayer(sms);
+        WorkloadReplayer.Report report = threads > 0 ? replayer.replayClosedLoop(trace, threads) : replayer.replay(trace, speed);
+        System.out.print(report);
+    }
+
+    /**
+     * 打印启动耗时：打开存储、首次按学号查询，以及从 JVM 启动到首次查询返回的总时间。
+     */
+    private static void probeFirstQuery(StudentManagementSystem sms, String studentId, long openNanos) {
+        long queryStart = System.nanoTime();
+        boolean found = sms.findStudentById(studentId).isPresent();
+        long queryNanos = System.nanoTime() - queryStart;
+        long sinceJvmStart = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.out.println(String.format("打开存储: %.1f ms, 首次查询 (%s, %s): %.2f ms, JVM 启动至首次查询: %d ms, 索引: %s",
+                openNanos / 1e6, studentId, found ? "找到" : "未找到", queryNanos / 1e6, sinceJvmStart,
+                sms.isIndexReady() ? "已建立" : "后台建立中"));
+    }
+
+    private static void runBatch(StudentManagementSystem sms, String script) throws IOException {
+        BatchRunner runner = new BatchRunner(sms);
+        if (script.equals("-")) {
+            runner.run(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16));
+        } else {
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(script), StandardCharsets.UTF_8)) {
+                runner.run(reader);
+            }
+        }
     }
-}
\ No newline at end of file
+}
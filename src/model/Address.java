@@ -1,26 +1,49 @@
 package model;
 
+import utils.Interner;
+
+import java.util.Objects;
+
 /**
- * 地址类。
+ * 地址类 (不可变)。
+ * <p>
+ * 通过 {@link #of} 获取实例：相同的地址共享同一个对象，各组成部分的字符串也在所有地址之间共享，
+ * 同省同市的大量学生不会重复保存这些字符串。需要修改时用 withXxx 得到新地址，再通过 {@link Student#setAddress} 替换。
  */
-public class Address {
-    private String province;    // 省份
-    private String city;        // 城市
-    private String street;      // 街道
-    private String houseNumber; // 门牌号
+public final class Address {
+    private static final Interner<Address> ADDRESSES = new Interner<>();
+    private static final Interner<String> PARTS = new Interner<>();
+
+    private final String province;    // 省份
+    private final String city;        // 城市
+    private final String street;      // 街道
+    private final String houseNumber; // 门牌号
+
+    private Address(String province, String city, String street, String houseNumber) {
+        this.province = province;
+        this.city = city;
+        this.street = street;
+        this.houseNumber = houseNumber;
+    }
 
     /**
-     * 构造函数。
+     * 获取规范的地址实例。
      * @param province 省份
      * @param city 城市
      * @param street 街道
      * @param houseNumber 门牌号
+     * @return 共享的地址对象
      */
-    public Address(String province, String city, String street, String houseNumber) {
-        this.province = province;
-        this.city = city;
-        this.street = street;
-        this.houseNumber = houseNumber;
+    public static Address of(String province, String city, String street, String houseNumber) {
+        return ADDRESSES.intern(new Address(PARTS.intern(province), PARTS.intern(city), PARTS.intern(street), PARTS.intern(houseNumber)));
+    }
+
+    /**
+     * 获取池中当前共享的地址对象数。
+     * @return 地址对象数
+     */
+    public static int pooledCount() {
+        return ADDRESSES.size();
     }
 
     // Getters
@@ -29,11 +52,42 @@ public class Address {
     public String getStreet() { return street; }
     public String getHouseNumber() { return houseNumber; }
 
-    // Setters
-    public void setProvince(String province) { this.province = province; }
-    public void setCity(String city) { this.city = city; }
-    public void setStreet(String street) { this.street = street; }
-    public void setHouseNumber(String houseNumber) { this.houseNumber = houseNumber; }
+    // 修改后的副本
+    public Address withProvince(String province) { return of(province, city, street, houseNumber); }
+    public Address withCity(String city) { return of(province, city, street, houseNumber); }
+    public Address withStreet(String street) { return of(province, city, street, houseNumber); }
+    public Address withHouseNumber(String houseNumber) { return of(province, city, street, houseNumber); }
+
+    /**
+     * 将地址追加到 StringBuilder (null 字段视为空串)。
+     * @param sb 目标
+     * @return 目标 sb
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        if (province != null) sb.append(province);
+        if (city != null) sb.append(city);
+        if (street != null) sb.append(street);
+        if (houseNumber != null) sb.append(houseNumber);
+        return sb;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Address)) {
+            return false;
+        }
+        Address other = (Address) o;
+        return Objects.equals(province, other.province) && Objects.equals(city, other.city)
+                && Objects.equals(street, other.street) && Objects.equals(houseNumber, other.houseNumber);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(province, city, street, houseNumber);
+    }
 
     /**
      * 返回地址的字符串表示。
@@ -41,10 +95,6 @@ public class Address {
      */
     @Override
     public String toString() {
-        return String.format("%s%s%s%s",
-                province != null ? province : "",
-                city != null ? city : "",
-                street != null ? street : "",
-                houseNumber != null ? houseNumber : "");
+        return appendTo(new StringBuilder(32)).toString();
     }
 }
@@ -49,14 +49,15 @@ public class Graduate extends Student {
     }
 
     /**
-     * 返回研究生信息的字符串表示。
-     * @return 格式化字符串
+     * 追加研究生信息。
+     * @param sb 目标
+     * @return 目标 sb
      */
     @Override
-    public String toString() {
-        return String.format("类型: 研究生, 导师: %s, 研究方向: %s, %s",
-                supervisor,
-                researchDirection,
-                super.toString());
+    public StringBuilder appendTo(StringBuilder sb) {
+        sb.append("类型: 研究生, 导师: ").append(supervisor)
+          .append(", 研究方向: ").append(researchDirection)
+          .append(", ");
+        return super.appendTo(sb);
     }
 }
@@ -0,0 +1,278 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 单门课程的成绩变更历史，按时间顺序以增量编码保存在一个字节数组中。
+ * <p>
+ * 每条变更依次为：
+ * <pre>
+ *   变长整数  (距上一条的秒数 &lt;&lt; 1) | 转义标记
+ *   转义标记为 0：变长整数，成绩 × 100 与上一条之差 (zigzag 编码)
+ *   转义标记为 1：8 字节 double 原值 (成绩不是 0.01 的整数倍时)
+ * </pre>
+ * 第一条的 "上一条" 为时间 0、成绩 0。常见的一次改分 (间隔数天、分差几十分) 占 4-6 字节。
+ * 时间精度为秒。按时间顺序追加为 O(1)；补录早于最后一条的变更时需要重新编码整个序列。
+ */
+public final class ScoreHistory {
+    private byte[] data;
+    private int length; // 已使用的字节数
+    private int count;  // 变更条数
+    private long lastSeconds;
+    private long lastCenti;
+    private double lastScore = Double.NaN;
+
+    public ScoreHistory() {
+        this.data = new byte[8];
+    }
+
+    private ScoreHistory(byte[] data, int length) {
+        this.data = data;
+        this.length = length;
+        Cursor cursor = new Cursor();
+        while (cursor.next()) {
+            count++;
+        }
+        lastSeconds = cursor.seconds;
+        lastCenti = cursor.centi;
+        lastScore = cursor.score;
+    }
+
+    /**
+     * 从 {@link #toBytes()} 的结果恢复。
+     * @param bytes 编码数据
+     * @return 历史记录
+     */
+    public static ScoreHistory fromBytes(byte[] bytes) {
+        return new ScoreHistory(bytes.clone(), bytes.length);
+    }
+
+    /**
+     * 记录一条变更。时间早于最后一条时插入到对应位置 (同一秒内排在已有记录之后)。
+     * @param epochMillis 变更时间 (毫秒时间戳)
+     * @param score 新成绩
+     */
+    public void record(long epochMillis, double score) {
+        long seconds = Math.max(0L, Math.floorDiv(epochMillis, 1000L)); // 不支持 1970 年以前的时间
+        if (count > 0 && seconds < lastSeconds) {
+            insert(seconds, score);
+            return;
+        }
+        append(seconds, score);
+    }
+
+    /**
+     * 判断是否已有晚于给定时间的变更 (即给定时间的变更属于补录)。
+     * @param epochMillis 时间 (毫秒时间戳)
+     * @return 是否已有更晚的记录
+     */
+    public boolean hasChangesAfter(long epochMillis) {
+        return count > 0 && Math.floorDiv(epochMillis, 1000L) < lastSeconds;
+    }
+
+    private void append(long seconds, double score) {
+        long centi = Math.round(score * 100);
+        boolean escaped = centi / 100.0 != score;
+        ensureCapacity(length + 10 + (escaped ? Long.BYTES : 10));
+        writeVarLong(((seconds - lastSeconds) << 1) | (escaped ? 1 : 0));
+        if (escaped) {
+            long bits = Double.doubleToLongBits(score);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                data[length++] = (byte) (bits >>> shift);
+            }
+        } else {
+            long delta = centi - lastCenti;
+            writeVarLong((delta << 1) ^ (delta >> 63));
+        }
+        lastSeconds = seconds;
+        lastCenti = centi;
+        lastScore = score;
+        count++;
+    }
+
+    /**
+     * 获取某一时刻的成绩。
+     * @param epochMillis 时间 (毫秒时间戳)
+     * @return 该时刻 (含) 之前最后一次变更后的成绩；此前没有记录时为 NaN
+     */
+    public double scoreAsOf(long epochMillis) {
+        long seconds = Math.floorDiv(epochMillis, 1000L);
+        if (count > 0 && seconds >= lastSeconds) {
+            return lastScore;
+        }
+        double score = Double.NaN;
+        Cursor cursor = new Cursor();
+        while (cursor.next() && cursor.seconds <= seconds) {
+            score = cursor.score;
+        }
+        return score;
+    }
+
+    /**
+     * 获取时间窗口内的全部变更。
+     * @param fromMillis 起始时间 (含)，毫秒时间戳
+     * @param toMillis 结束时间 (不含)，毫秒时间戳
+     * @return 按时间排序的变更
+     */
+    public List<Change> changesBetween(long fromMillis, long toMillis) {
+        long fromSeconds = Math.floorDiv(fromMillis, 1000L);
+        long toSeconds = Math.floorDiv(toMillis, 1000L);
+        if (count == 0 || fromSeconds >= toSeconds) {
+            return Collections.emptyList();
+        }
+        List<Change> changes = new ArrayList<>();
+        double previous = Double.NaN;
+        Cursor cursor = new Cursor();
+        while (cursor.next() && cursor.seconds < toSeconds) {
+            if (cursor.seconds >= fromSeconds) {
+                changes.add(new Change(cursor.seconds * 1000L, previous, cursor.score));
+            }
+            previous = cursor.score;
+        }
+        return changes;
+    }
+
+    public int size() { return count; }
+    public double getLatestScore() { return lastScore; }
+
+    /**
+     * 获取最近一次变更的时间。
+     * @return 毫秒时间戳；没有记录时为 0
+     */
+    public long getLatestTimeMillis() { return lastSeconds * 1000L; }
+
+    /**
+     * 获取编码后的字节数 (不含数组与对象头)。
+     * @return 字节数
+     */
+    public int encodedBytes() { return length; }
+
+    /**
+     * 获取编码缓冲区的容量 (字节)，即实际占用的数组长度，用于估算内存占用。
+     * @return 字节数
+     */
+    public int bufferCapacity() { return data.length; }
+
+    /**
+     * 导出编码数据，可用 {@link #fromBytes} 恢复。
+     * @return 编码数据副本
+     */
+    public byte[] toBytes() {
+        return Arrays.copyOf(data, length);
+    }
+
+    /**
+     * 复制一份独立的历史记录。
+     * @return 副本
+     */
+    public ScoreHistory copy() {
+        return new ScoreHistory(toBytes(), length);
+    }
+
+    private void insert(long seconds, double score) {
+        long[] times = new long[count + 1];
+        double[] values = new double[count + 1];
+        int n = 0;
+        boolean inserted = false;
+        Cursor cursor = new Cursor();
+        while (cursor.next()) {
+            if (!inserted && cursor.seconds > seconds) {
+                times[n] = seconds;
+                values[n++] = score;
+                inserted = true;
+            }
+            times[n] = cursor.seconds;
+            values[n++] = cursor.score;
+        }
+        length = 0;
+        count = 0;
+        lastSeconds = 0;
+        lastCenti = 0;
+        for (int i = 0; i < n; i++) {
+            append(times[i], values[i]);
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > data.length) {
+            data = Arrays.copyOf(data, Math.max(required, data.length + (data.length >> 1)));
+        }
+    }
+
+    private void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    /**
+     * 顺序解码器。
+     */
+    private final class Cursor {
+        int position;
+        long seconds;
+        long centi;
+        double score = Double.NaN;
+
+        boolean next() {
+            if (position >= length) {
+                return false;
+            }
+            long header = readVarLong();
+            seconds += header >>> 1;
+            if ((header & 1) != 0) {
+                long bits = 0;
+                for (int i = 0; i < Long.BYTES; i++) {
+                    bits = (bits << 8) | (data[position++] & 0xFF);
+                }
+                score = Double.longBitsToDouble(bits);
+                centi = Math.round(score * 100);
+            } else {
+                long zigzag = readVarLong();
+                centi += (zigzag >>> 1) ^ -(zigzag & 1);
+                score = centi / 100.0;
+            }
+            return true;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    /**
+     * 一次成绩变更。
+     */
+    public static final class Change {
+        private final long epochMillis;
+        private final double previousScore;
+        private final double score;
+
+        Change(long epochMillis, double previousScore, double score) {
+            this.epochMillis = epochMillis;
+            this.previousScore = previousScore;
+            this.score = score;
+        }
+
+        public long getEpochMillis() { return epochMillis; }
+
+        /**
+         * 获取变更前的成绩。
+         * @return 变更前成绩；这是第一条记录时为 NaN
+         */
+        public double getPreviousScore() { return previousScore; }
+        public double getScore() { return score; }
+    }
+}
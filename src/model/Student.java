@@ -1,9 +1,11 @@
 package model;
 
+import utils.Decimals;
+
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 /**
  * 学生抽象类。
@@ -15,6 +17,7 @@ public abstract class Student {
     protected String className; // 班级
     protected Address address;  // 地址
     protected Map<String, Double> scores; // 成绩
+    private Map<String, ScoreHistory> scoreHistories; // 课程 → 成绩变更历史，首次变更时创建
 
     /**
      * 构造函数。
@@ -82,6 +85,11 @@ public abstract class Student {
         }
         this.className = className;
     }
+    /**
+     * 更换地址。地址不可变，修改地址应先用 {@link Address#withCity} 等方法得到新地址再调用本方法。
+     * 已加入系统的学生应通过 StudentManagementSystem.modifyStudent 修改，地区索引才会同步更新。
+     * @param address 新地址
+     */
     public void setAddress(Address address) {
          if (address == null) {
             throw new IllegalArgumentException("地址不能为空");
@@ -90,11 +98,23 @@ public abstract class Student {
     }
 
     /**
-     * 添加或更新成绩。
+     * 添加或更新成绩，变更时间为当前时间。
      * @param course 课程名
      * @param score 成绩 (0-100)
      */
     public void addOrUpdateScore(String course, double score) {
+        addOrUpdateScore(course, score, System.currentTimeMillis());
+    }
+
+    /**
+     * 添加或更新成绩，并把变更记入该课程的成绩历史 (成绩未变化时不记录)。
+     * 变更时间早于该课程最近一次变更时视为补录：只写入历史，不改变当前成绩。
+     * 直接修改 getScores() 返回的 Map 不会留下历史。
+     * @param course 课程名
+     * @param score 成绩 (0-100)
+     * @param epochMillis 变更时间 (毫秒时间戳)
+     */
+    public void addOrUpdateScore(String course, double score, long epochMillis) {
         if (course == null || course.trim().isEmpty()) {
              System.out.println("警告：课程名不能为空，成绩未添加/更新。");
              return;
@@ -103,15 +123,72 @@ public abstract class Student {
              System.out.println("警告：成绩 " + score + " 无效 (应在 0-100 之间)，课程 '" + course + "' 的成绩未添加/更新。");
              return;
         }
-        this.scores.put(course.trim(), score);
+        String courseName = course.trim();
+        ScoreHistory history = getScoreHistory(courseName);
+        if (history != null && history.hasChangesAfter(epochMillis)) {
+            history.record(epochMillis, score);
+            return;
+        }
+        Double previous = this.scores.put(courseName, score);
+        if (previous == null || previous != score) {
+            if (history == null) {
+                history = new ScoreHistory();
+                restoreScoreHistory(courseName, history);
+            }
+            history.record(epochMillis, score);
+        }
+    }
+
+    /**
+     * 获取课程的成绩历史。
+     * @param course 课程名
+     * @return 成绩历史；没有变更记录时为 null
+     */
+    public ScoreHistory getScoreHistory(String course) {
+        return scoreHistories == null ? null : scoreHistories.get(course);
+    }
+
+    /**
+     * 获取全部课程的成绩历史。
+     * @return 只读的 课程 → 成绩历史
+     */
+    public Map<String, ScoreHistory> getScoreHistories() {
+        return scoreHistories == null ? Collections.emptyMap() : Collections.unmodifiableMap(scoreHistories);
     }
 
     /**
-     * 计算总成绩。
+     * 恢复课程的成绩历史 (供存储层解码时使用)，会覆盖已有的历史。
+     * @param course 课程名
+     * @param history 成绩历史
+     */
+    public void restoreScoreHistory(String course, ScoreHistory history) {
+        if (scoreHistories == null) {
+            scoreHistories = new HashMap<>();
+        }
+        scoreHistories.put(course, history);
+    }
+
+    /**
+     * 复制另一名学生的成绩及成绩历史 (修改学生信息时用新对象替换旧对象，需要保留历史)。
+     * @param other 来源学生
+     */
+    public void copyScoresFrom(Student other) {
+        scores.putAll(other.scores);
+        for (Map.Entry<String, ScoreHistory> entry : other.getScoreHistories().entrySet()) {
+            restoreScoreHistory(entry.getKey(), entry.getValue().copy());
+        }
+    }
+
+    /**
+     * 计算总成绩。排序时每次比较都会调用，因此直接循环累加，不创建流对象。
      * @return 总成绩
      */
     public double calculateTotalScore() {
-        return scores.values().stream().mapToDouble(Double::doubleValue).sum();
+        double total = 0;
+        for (double score : scores.values()) {
+            total += score;
+        }
+        return total;
     }
 
     /**
@@ -123,19 +200,49 @@ public abstract class Student {
         return scores.getOrDefault(course, 0.0);
     }
 
+    /**
+     * 将学生信息追加到 StringBuilder，输出与原 String.format 版本逐字相同。
+     * 子类先追加自己的字段，再调用本方法。
+     * @param sb 目标
+     * @return 目标 sb
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        sb.append("学号: ").append(studentId)
+          .append(", 姓名: ").append(name)
+          .append(", 年龄: ").append(age)
+          .append(", 班级: ").append(className)
+          .append(", 地址: ");
+        if (address != null) {
+            address.appendTo(sb);
+        } else {
+            sb.append("null");
+        }
+        sb.append(", 总分: ");
+        Decimals.appendFixed(sb, calculateTotalScore(), 2);
+        sb.append(", 成绩: {");
+        if (scores.isEmpty()) {
+            sb.append("无");
+        } else {
+            boolean first = true;
+            for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                if (!first) {
+                    sb.append(", ");
+                }
+                first = false;
+                sb.append(entry.getKey()).append(": ");
+                Decimals.appendFixed(sb, entry.getValue(), 1);
+            }
+        }
+        return sb.append('}');
+    }
+
     /**
      * 返回学生信息的字符串表示。
      * @return 格式化字符串
      */
     @Override
     public String toString() {
-        String scoresString = scores.isEmpty() ? "无" :
-                scores.entrySet().stream()
-                      .map(entry -> entry.getKey() + ": " + String.format("%.1f", entry.getValue()))
-                      .collect(Collectors.joining(", "));
-
-        return String.format("学号: %s, 姓名: %s, 年龄: %d, 班级: %s, 地址: %s, 总分: %.2f, 成绩: {%s}",
-               studentId, name, age, className, address, calculateTotalScore(), scoresString);
+        return appendTo(new StringBuilder(160)).toString();
     }
 
     /**
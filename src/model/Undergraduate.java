@@ -36,13 +36,13 @@ public class Undergraduate extends Student {
     }
 
     /**
-     * 返回本科生信息的字符串表示。
-     * @return 格式化字符串
+     * 追加本科生信息。
+     * @param sb 目标
+     * @return 目标 sb
      */
     @Override
-    public String toString() {
-        return String.format("类型: 本科生, 专业: %s, %s",
-                major,
-                super.toString());
+    public StringBuilder appendTo(StringBuilder sb) {
+        sb.append("类型: 本科生, 专业: ").append(major).append(", ");
+        return super.appendTo(sb);
     }
 }
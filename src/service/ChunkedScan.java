@@ -0,0 +1,87 @@
+package service;
+
+import model.Student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 分块执行的名册扫描：每次按名册顺序读取并检查一段学生，两段之间调用方可以先处理其他操作。
+ * 学号取自开始时的名册顺序日志 ({@link RosterOrder.Cursor})，学生在检查到时才读取，不一次复制整个名册。
+ * 每一步记录一个 scan 服务调用事件 (见 {@link ServiceEvents})，不用一个事件覆盖整次扫描：各步之间穿插着其他操作。
+ * 由 {@link StudentManagementSystem#beginSearch} 创建，不是线程安全的。
+ */
+class ChunkedScan {
+    private final RosterOrder.Cursor cursor;
+    private final Function<String, Student> reader;
+    private final Predicate<Student> matcher;
+    private final Function<List<Student>, List<Student>> completion;
+    private final String criteriaType;
+    private final int rosterSize;
+    private final List<Student> matches = new ArrayList<>();
+    private List<Student> result;
+
+    /**
+     * 构造函数。
+     * @param cursor 开始时的名册顺序游标
+     * @param reader 按学号读取学生 (不存在时返回 null)
+     * @param matcher 匹配条件
+     * @param completion 扫描结束时对匹配结果的处理 (写缓存等)，返回最终结果
+     * @param criteriaType 查询类型，记入事件
+     * @param rosterSize 开始时的名册人数，记入事件
+     */
+    ChunkedScan(RosterOrder.Cursor cursor, Function<String, Student> reader, Predicate<Student> matcher,
+                Function<List<Student>, List<Student>> completion, String criteriaType, int rosterSize) {
+        this.cursor = cursor;
+        this.reader = reader;
+        this.matcher = matcher;
+        this.completion = completion;
+        this.criteriaType = criteriaType;
+        this.rosterSize = rosterSize;
+    }
+
+    /**
+     * 已完成的扫描 (缓存命中、参数无效等)。
+     * @param result 结果
+     * @return 扫描
+     */
+    static ChunkedScan completed(List<Student> result) {
+        ChunkedScan scan = new ChunkedScan(null, id -> null, student -> false, null, null, 0);
+        scan.result = result;
+        return scan;
+    }
+
+    /**
+     * 检查下一段。
+     * @param chunkSize 本次最多检查的学生数
+     * @return 扫描是否已结束
+     */
+    boolean advance(int chunkSize) {
+        if (result != null) {
+            return true;
+        }
+        ServiceEvents.Operation event = ServiceEvents.begin("scan", criteriaType);
+        int before = matches.size();
+        for (String studentId : cursor.next(chunkSize)) {
+            Student student = reader.apply(studentId);
+            if (student != null && matcher.test(student)) {
+                matches.add(student);
+            }
+        }
+        if (!cursor.hasNext()) {
+            result = completion.apply(matches);
+        }
+        ServiceEvents.end(event, matches.size() - before, rosterSize, true);
+        return result != null;
+    }
+
+    /**
+     * 获取结果。
+     * @return 结果；扫描未结束时为 null
+     */
+    List<Student> result() {
+        return result;
+    }
+}
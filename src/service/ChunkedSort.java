@@ -0,0 +1,146 @@
+package service;
+
+import model.Student;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * 分块执行的排序与 Top-K：两段之间调用方可以先处理其他操作。
+ * <ol>
+ *   <li>分段排序：每一步按名册顺序读取一段学生 (学号取自开始时的名册顺序日志)，稳定排序后只保留前 limit 名，作为一个有序段。</li>
+ *   <li>归并：名册读完后用各段段首组成的堆归并，每一步输出一段，输出满 limit 名或各段用完即结束。</li>
+ * </ol>
+ * 比较相等时先输出较早的段，段内保持原顺序，因此结果与对名册做稳定排序后取前 limit 名一致
+ * (名册在排序期间不变时，与 {@link StudentManagementSystem#findTopStudents} 及排序显示的结果相同)。
+ * 开始时已在名册中、读取到时仍在名册中的学生才参与排序；排序期间被修改的学生按读取到时的内容排在段内，
+ * 归并时若内容已变，其位置不保证正确。
+ * 每一步记录一个 sortstep 服务调用事件 (见 {@link ServiceEvents})。
+ * 由 {@link StudentManagementSystem#beginSort} 或 {@link StudentManagementSystem#beginTop} 创建，不是线程安全的。
+ */
+class ChunkedSort {
+    private final RosterOrder.Cursor cursor;
+    private final Function<String, Student> reader;
+    private final Comparator<Student> comparator;
+    private final int limit;
+    private final String sortBy;
+    private final int rosterSize;
+    private final List<List<Student>> runs = new ArrayList<>();
+    private PriorityQueue<int[]> heads; // {段号, 段内位置}，归并阶段才建立
+    private List<Student> merged;
+    private List<Student> result;
+
+    /**
+     * 构造函数。
+     * @param cursor 开始时的名册顺序游标
+     * @param reader 按学号读取学生 (不存在时返回 null)
+     * @param comparator 比较器 (已按方向调整)
+     * @param limit 最多输出的人数
+     * @param sortBy 排序字段，记入事件
+     * @param rosterSize 开始时的名册人数，记入事件
+     */
+    ChunkedSort(RosterOrder.Cursor cursor, Function<String, Student> reader, Comparator<Student> comparator,
+                int limit, String sortBy, int rosterSize) {
+        this.cursor = cursor;
+        this.reader = reader;
+        this.comparator = comparator;
+        this.limit = limit;
+        this.sortBy = sortBy;
+        this.rosterSize = rosterSize;
+    }
+
+    /**
+     * 已完成的排序 (参数无效等)。
+     * @param result 结果
+     * @return 排序
+     */
+    static ChunkedSort completed(List<Student> result) {
+        ChunkedSort sort = new ChunkedSort(null, id -> null, null, 0, null, 0);
+        sort.result = result;
+        return sort;
+    }
+
+    /**
+     * 执行下一步：读取并排序一段，或归并输出一段。
+     * @param chunkSize 本次最多读取或输出的学生数
+     * @return 排序是否已结束
+     */
+    boolean advance(int chunkSize) {
+        if (result != null) {
+            return true;
+        }
+        ServiceEvents.Operation event = ServiceEvents.begin("sortstep", sortBy);
+        int processed = heads == null ? sortRun(chunkSize) : mergeStep(chunkSize);
+        ServiceEvents.end(event, processed, rosterSize, true);
+        return result != null;
+    }
+
+    private int sortRun(int chunkSize) {
+        List<Student> run = new ArrayList<>(chunkSize);
+        for (String studentId : cursor.next(chunkSize)) {
+            Student student = reader.apply(studentId);
+            if (student != null) {
+                run.add(student);
+            }
+        }
+        if (!run.isEmpty()) {
+            run.sort(comparator); // 稳定排序
+            runs.add(run.size() > limit ? new ArrayList<>(run.subList(0, limit)) : run);
+        }
+        if (!cursor.hasNext()) {
+            startMerge();
+        }
+        return run.size();
+    }
+
+    private void startMerge() {
+        if (runs.size() <= 1) {
+            finish(runs.isEmpty() ? new ArrayList<>() : runs.get(0));
+            return;
+        }
+        heads = new PriorityQueue<>(runs.size(), (a, b) -> {
+            int c = comparator.compare(runs.get(a[0]).get(a[1]), runs.get(b[0]).get(b[1]));
+            return c != 0 ? c : Integer.compare(a[0], b[0]);
+        });
+        for (int i = 0; i < runs.size(); i++) {
+            heads.add(new int[]{i, 0});
+        }
+        merged = new ArrayList<>();
+    }
+
+    private int mergeStep(int chunkSize) {
+        int produced = 0;
+        while (produced < chunkSize && merged.size() < limit && !heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<Student> run = runs.get(head[0]);
+            merged.add(run.get(head[1]));
+            produced++;
+            if (++head[1] < run.size()) {
+                heads.add(head);
+            }
+        }
+        if (merged.size() >= limit || heads.isEmpty()) {
+            finish(merged);
+        }
+        return produced;
+    }
+
+    private void finish(List<Student> sorted) {
+        result = Collections.unmodifiableList(sorted);
+        runs.clear();
+        heads = null;
+        merged = null;
+    }
+
+    /**
+     * 获取结果。
+     * @return 结果；排序未结束时为 null
+     */
+    List<Student> result() {
+        return result;
+    }
+}
@@ -0,0 +1,219 @@
+package service;
+
+import model.Student;
+import utils.Decimals;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 班级成绩报告的生成与写出：每个班级一个文本文件，内容为总分排名、各课程平均分和不及格学生。
+ * <p>
+ * 调用方先在服务线程中取出各班级学生的快照 ({@link ClassSnapshot})，渲染与写文件再在线程池中并行执行，
+ * 渲染只读取学生对象，不访问存储。每个文件先写入同目录下的临时文件再整体替换，读者不会看到写了一半的报告。
+ */
+class ClassReportWriter {
+    static final double FAILING_SCORE = 60;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * 一个班级的学生快照。
+     */
+    static final class ClassSnapshot {
+        final String key;         // 规范化的班级名
+        final String displayName;
+        final List<Student> students; // 按名册顺序；为空表示班级已无学生，删除其报告
+
+        ClassSnapshot(String key, String displayName, List<Student> students) {
+            this.key = key;
+            this.displayName = displayName;
+            this.students = students;
+        }
+    }
+
+    private ClassReportWriter() {}
+
+    /**
+     * 创建写报告用的线程池：线程数等于处理器数，守护线程。
+     * @return 线程池
+     */
+    static ExecutorService newExecutor() {
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "class-report-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 报告文件名：规范化的班级名，文件名中不允许的字符、空白、控制字符和 '%' 转义为 "%XX" (超出 0xFF 的为 "%uXXXX")，
+     * 如 "a/b" → "a%2Fb.txt"、"1 班" → "1%20班.txt"。转义可逆，不同班级的文件名不会相同，并行写出时不会互相覆盖。
+     * @param classKey 规范化的班级名
+     * @return 文件名
+     */
+    static String fileName(String classKey) {
+        StringBuilder name = new StringBuilder(classKey.length() + 8);
+        for (int i = 0; i < classKey.length(); i++) {
+            char c = classKey.charAt(i);
+            if (c == '%' || "\\/:*?\"<>|".indexOf(c) >= 0 || Character.isWhitespace(c) || Character.isSpaceChar(c) || Character.isISOControl(c)) {
+                name.append(c > 0xFF ? String.format("%%u%04X", (int) c) : String.format("%%%02X", (int) c));
+            } else {
+                name.append(c);
+            }
+        }
+        return name.append(".txt").toString();
+    }
+
+    /**
+     * 并行写出报告，等待全部完成。
+     * @param directory 输出目录 (已存在)
+     * @param snapshots 各班级快照
+     * @param generatedAt 报告中显示的生成时间
+     * @param executor 执行渲染与写出的线程池
+     * @return 写出失败的班级 → 错误信息；全部成功时为空
+     */
+    static Map<String, String> writeAll(Path directory, List<ClassSnapshot> snapshots, String generatedAt, ExecutorService executor) {
+        List<Future<?>> futures = new ArrayList<>(snapshots.size());
+        for (ClassSnapshot snapshot : snapshots) {
+            futures.add(executor.submit(() -> {
+                write(directory, snapshot, generatedAt);
+                return null;
+            }));
+        }
+        Map<String, String> failures = new TreeMap<>();
+        boolean interrupted = false;
+        for (int i = 0; i < futures.size(); i++) {
+            while (true) {
+                try {
+                    futures.get(i).get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true; // 等全部写完再恢复中断状态，避免留下未写完的临时文件
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    failures.put(snapshots.get(i).key, cause.getClass().getSimpleName() + ": " + cause.getMessage());
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return failures;
+    }
+
+    private static void write(Path directory, ClassSnapshot snapshot, String generatedAt) throws IOException {
+        Path file = directory.resolve(fileName(snapshot.key));
+        if (snapshot.students.isEmpty()) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        Path temp = directory.resolve(fileName(snapshot.key) + ".tmp");
+        StringBuilder report = new StringBuilder(256 + 64 * snapshot.students.size());
+        render(snapshot, generatedAt, report);
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(temp), StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+            writer.append(report);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 渲染一个班级的报告。数值用 {@link Decimals} 追加，不经过格式串解析。
+     */
+    static void render(ClassSnapshot snapshot, String generatedAt, StringBuilder out) {
+        List<Student> students = snapshot.students;
+        int n = students.size();
+        double[] totals = new double[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            totals[i] = students.get(i).calculateTotalScore();
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(totals[b], totals[a])); // 稳定排序，同分按名册顺序
+
+        out.append("班级成绩报告: ").append(snapshot.displayName).append('\n');
+        out.append("生成时间: ").append(generatedAt).append('\n');
+        out.append("人数: ").append(n).append("\n\n");
+
+        out.append("--- 总分排名 ---\n");
+        int rank = 0;
+        for (int i = 0; i < n; i++) {
+            Student student = students.get(order[i]);
+            if (i == 0 || Double.compare(totals[order[i]], totals[order[i - 1]]) != 0) {
+                rank = i + 1; // 同分同名次
+            }
+            padLeft(out, String.valueOf(rank), 4).append("  ");
+            padRight(out, student.getStudentId(), 12).append(' ');
+            padRight(out, student.getName(), 10).append(' ');
+            Decimals.appendFixed(out, totals[order[i]], 2).append('\n');
+        }
+
+        Map<String, double[]> courses = new TreeMap<>(); // 课程 → {总分, 人数}
+        StringBuilder failing = new StringBuilder();
+        int failingCount = 0;
+        for (Student student : students) {
+            boolean failed = false;
+            for (Map.Entry<String, Double> entry : student.getScores().entrySet()) {
+                double[] sum = courses.computeIfAbsent(entry.getKey(), k -> new double[2]);
+                sum[0] += entry.getValue();
+                sum[1]++;
+                if (entry.getValue() < FAILING_SCORE) {
+                    if (failed) {
+                        failing.append(", ");
+                    } else {
+                        padRight(failing, student.getStudentId(), 12).append(' ');
+                        padRight(failing, student.getName(), 10).append(' ');
+                    }
+                    Decimals.appendFixed(failing.append(entry.getKey()).append(' '), entry.getValue(), 1);
+                    failed = true;
+                }
+            }
+            if (failed) {
+                failing.append('\n');
+                failingCount++;
+            }
+        }
+
+        out.append("\n--- 各课程平均分 ---\n");
+        if (courses.isEmpty()) {
+            out.append("暂无成绩记录。\n");
+        }
+        for (Map.Entry<String, double[]> entry : courses.entrySet()) {
+            double[] sum = entry.getValue();
+            Decimals.appendFixed(out.append(entry.getKey()).append(": "), sum[0] / sum[1], 2)
+               .append(" (").append((int) sum[1]).append(" 人)\n");
+        }
+
+        out.append("\n--- 不及格学生 (低于 ").append((int) FAILING_SCORE).append(" 分, ").append(failingCount).append(" 人) ---\n");
+        out.append(failing.length() == 0 ? "无\n" : failing);
+    }
+
+    private static StringBuilder padRight(StringBuilder sb, String value, int width) {
+        sb.append(value);
+        for (int i = value.length(); i < width; i++) {
+            sb.append(' ');
+        }
+        return sb;
+    }
+
+    private static StringBuilder padLeft(StringBuilder sb, String value, int width) {
+        for (int i = value.length(); i < width; i++) {
+            sb.append(' ');
+        }
+        return sb.append(value);
+    }
+}
@@ -0,0 +1,136 @@
+package service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 班级课程成绩趋势：对每个 (班级, 课程) 增量维护当前的成绩总和与人数，
+ * 每次成绩变动后把当天的平均分记为该日的数据点 (同一天多次变动只保留最后的平均分)。
+ * 每次更新 O(1)，不需要回看历史或遍历名册；数据点从系统启动 (建立索引) 当天开始。
+ */
+public class ClassScoreTrends {
+    private final Map<String, Map<String, Trend>> trends = new HashMap<>(); // 班级 (规范化) → 课程 → 趋势
+    private final ZoneId zone;
+
+    ClassScoreTrends(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    void add(String className, String course, double score, long epochMillis) {
+        trend(className, course).apply(score, 1, toDay(epochMillis));
+    }
+
+    void remove(String className, String course, double score, long epochMillis) {
+        Map<String, Trend> courses = trends.get(SecondaryIndex.normalize(className));
+        Trend trend = courses == null ? null : courses.get(course);
+        if (trend != null) {
+            trend.apply(-score, -1, toDay(epochMillis));
+        }
+    }
+
+    void change(String className, String course, double oldScore, double newScore, long epochMillis) {
+        trend(className, course).apply(newScore - oldScore, 0, toDay(epochMillis));
+    }
+
+    /**
+     * 获取班级课程的每日趋势。
+     * @param className 班级
+     * @param course 课程名
+     * @return 按日期排序的数据点；没有记录时为空列表
+     */
+    List<Point> getTrend(String className, String course) {
+        Map<String, Trend> courses = trends.get(SecondaryIndex.normalize(className));
+        Trend trend = courses == null ? null : courses.get(course);
+        if (trend == null) {
+            return Collections.emptyList();
+        }
+        List<Point> points = new ArrayList<>(trend.size);
+        for (int i = 0; i < trend.size; i++) {
+            points.add(new Point(LocalDate.ofEpochDay(trend.days[i]), trend.averages[i], trend.counts[i], trend.changes[i]));
+        }
+        return points;
+    }
+
+    void clear() {
+        trends.clear();
+    }
+
+    private Trend trend(String className, String course) {
+        return trends.computeIfAbsent(SecondaryIndex.normalize(className), k -> new HashMap<>())
+                .computeIfAbsent(course, k -> new Trend());
+    }
+
+    private long toDay(long epochMillis) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(epochMillis), zone).toEpochDay();
+    }
+
+    /**
+     * 单个 (班级, 课程) 的趋势，数据点保存在原始类型数组中。
+     */
+    private static final class Trend {
+        double sum;
+        int count;
+        long[] days = new long[4];
+        double[] averages = new double[4];
+        int[] counts = new int[4];
+        int[] changes = new int[4];
+        int size;
+
+        void apply(double scoreDelta, int countDelta, long day) {
+            sum += scoreDelta;
+            count += countDelta;
+            if (count == 0) {
+                sum = 0; // 消除累计的舍入误差
+            }
+            if (size == 0 || day > days[size - 1]) { // 早于最后一个数据点的变动 (补录) 计入最后一天
+                if (size == days.length) {
+                    days = Arrays.copyOf(days, size * 2);
+                    averages = Arrays.copyOf(averages, size * 2);
+                    counts = Arrays.copyOf(counts, size * 2);
+                    changes = Arrays.copyOf(changes, size * 2);
+                }
+                days[size] = day;
+                changes[size] = 0;
+                size++;
+            }
+            int last = size - 1;
+            averages[last] = count == 0 ? 0 : sum / count;
+            counts[last] = count;
+            changes[last]++;
+        }
+    }
+
+    /**
+     * 趋势数据点：某一天结束时的班级平均分。
+     */
+    public static final class Point {
+        private final LocalDate day;
+        private final double average;
+        private final int studentCount;
+        private final int changeCount;
+
+        Point(LocalDate day, double average, int studentCount, int changeCount) {
+            this.day = day;
+            this.average = average;
+            this.studentCount = studentCount;
+            this.changeCount = changeCount;
+        }
+
+        public LocalDate getDay() { return day; }
+        public double getAverage() { return average; }
+        public int getStudentCount() { return studentCount; }
+
+        /**
+         * 获取当天的成绩变动次数 (含学生加入、离开班级)。
+         * @return 变动次数
+         */
+        public int getChangeCount() { return changeCount; }
+    }
+}
@@ -0,0 +1,291 @@
+package service;
+
+import model.Student;
+import utils.ScoreKernels;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 课程登记表：课程 → 选课学生及成绩，随增删改增量维护。
+ * <p>
+ * 每门课程按列存储：成绩、学号、名册顺序号、班级编码各占一个原始类型 (或引用) 数组，同一下标为同一名学生，
+ * 另有学号 → 下标的映射。注销时用最后一行填补空位，数组保持紧凑 (行的顺序因此不固定)。
+ * 课程是否存在、选课人数为 O(1) 查询；总分、最高/最低分、分数段等统计直接扫描成绩列 (见 {@link ScoreKernels})，
+ * 不需要逐个读取学生的成绩映射。按课程成绩排序时使用预先排好序的成绩列，在课程数据变化后的第一次使用时重建。
+ */
+class CourseRegistry {
+    private final Map<String, Course> courses = new HashMap<>();
+    private final StringDictionary dictionary; // 班级 (规范化) → 编码；课程名的共享实例。可由多个租户共用，只增不减
+
+    private static final class Course {
+        final Map<String, Integer> rows = new HashMap<>(); // 学号 → 行下标
+        String[] studentIds = new String[8];
+        double[] scores = new double[8];
+        long[] rosterOrders = new long[8]; // 学生在名册中的顺序号，用于并列时保持稳定排序
+        int[] classCodes = new int[8];
+        int size;
+        SortedColumn sortedColumn; // null 表示需要重建
+
+        void append(String studentId, double score, long rosterOrder, int classCode) {
+            if (size == scores.length) {
+                int capacity = size * 2;
+                studentIds = Arrays.copyOf(studentIds, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+                rosterOrders = Arrays.copyOf(rosterOrders, capacity);
+                classCodes = Arrays.copyOf(classCodes, capacity);
+            }
+            studentIds[size] = studentId;
+            scores[size] = score;
+            rosterOrders[size] = rosterOrder;
+            classCodes[size] = classCode;
+            rows.put(studentId, size++);
+        }
+
+        boolean remove(String studentId) {
+            Integer row = rows.remove(studentId);
+            if (row == null) {
+                return false;
+            }
+            int last = --size;
+            if (row != last) {
+                studentIds[row] = studentIds[last];
+                scores[row] = scores[last];
+                rosterOrders[row] = rosterOrders[last];
+                classCodes[row] = classCodes[last];
+                rows.put(studentIds[row], row);
+            }
+            studentIds[last] = null;
+            return true;
+        }
+    }
+
+    /**
+     * 按 (成绩, 名册顺序) 升序排列的成绩列。
+     */
+    static final class SortedColumn {
+        final String[] studentIds;
+        final double[] scores;
+
+        SortedColumn(String[] studentIds, double[] scores) {
+            this.studentIds = studentIds;
+            this.scores = scores;
+        }
+
+        int size() { return scores.length; }
+
+        /**
+         * @param score 成绩
+         * @return 第一个成绩不低于 score 的位置 (全部低于时为 size())
+         */
+        int lowerBound(double score) {
+            int low = 0;
+            int high = scores.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (scores[mid] < score) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @param score 成绩
+         * @return 第一个成绩高于 score 的位置 (全部不高于时为 size())
+         */
+        int upperBound(double score) {
+            int low = 0;
+            int high = scores.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (scores[mid] <= score) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    CourseRegistry() {
+        this(new StringDictionary());
+    }
+
+    /**
+     * 构造函数。
+     * @param dictionary 班级编码与课程名所用的字典
+     */
+    CourseRegistry(StringDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * 登记学生的全部课程成绩。
+     * @param student 学生
+     * @param rosterOrder 学生在名册中的顺序号
+     */
+    void register(Student student, long rosterOrder) {
+        for (Map.Entry<String, Double> entry : student.getScores().entrySet()) {
+            updateScore(student.getStudentId(), rosterOrder, student.getClassName(), entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 注销学生的全部课程成绩。
+     * @param student 学生
+     * @param studentId 登记时使用的学号
+     */
+    void unregister(Student student, String studentId) {
+        for (String courseName : student.getScores().keySet()) {
+            Course course = courses.get(courseName);
+            if (course != null && course.remove(studentId)) {
+                course.sortedColumn = null;
+                if (course.size == 0) {
+                    courses.remove(courseName);
+                }
+            }
+        }
+    }
+
+    /**
+     * 登记或更新单门课程成绩。
+     */
+    void updateScore(String studentId, long rosterOrder, String className, String courseName, double score) {
+        Course course = courses.get(courseName);
+        if (course == null) {
+            course = new Course();
+            courses.put(dictionary.canonical(courseName), course);
+        }
+        Integer row = course.rows.get(studentId);
+        if (row == null) {
+            course.append(studentId, score, rosterOrder, classCode(className));
+        } else {
+            course.scores[row] = score;
+        }
+        course.sortedColumn = null;
+    }
+
+    boolean hasCourse(String courseName) {
+        return courses.containsKey(courseName);
+    }
+
+    int getEnrollment(String courseName) {
+        Course course = courses.get(courseName);
+        return course == null ? 0 : course.size;
+    }
+
+    /**
+     * 所有课程及选课人数 (按课程名排序)。
+     * @return 只读映射
+     */
+    Map<String, Integer> getEnrollments() {
+        Map<String, Integer> result = new TreeMap<>();
+        courses.forEach((name, course) -> result.put(name, course.size));
+        return Collections.unmodifiableMap(result);
+    }
+
+    void clear() {
+        courses.clear();
+    }
+
+    /**
+     * 计算课程成绩统计。
+     * @param courseName 课程名
+     * @param className 班级，为 null 表示全部选课学生
+     * @param threshold 统计低于该分数的人数
+     * @return 统计结果；课程不存在时返回 null
+     */
+    ScoreStats stats(String courseName, String className, double threshold) {
+        Course course = courses.get(courseName);
+        if (course == null) {
+            return null;
+        }
+        double[] scores = course.scores;
+        int n = course.size;
+        if (className != null) {
+            int code = dictionary.find(SecondaryIndex.normalize(className));
+            double[] selected = new double[n];
+            n = code == StringDictionary.NULL_ID ? 0 : ScoreKernels.select(course.scores, course.classCodes, n, code, selected);
+            scores = selected;
+        }
+        int[] buckets = new int[ScoreStats.BUCKET_COUNT];
+        ScoreKernels.histogram(scores, n, ScoreStats.BUCKET_WIDTH, buckets);
+        return new ScoreStats(courseName, className, n, ScoreKernels.sum(scores, n),
+                ScoreKernels.min(scores, n), ScoreKernels.max(scores, n),
+                threshold, ScoreKernels.countBelow(scores, n, threshold), buckets);
+    }
+
+    private int classCode(String className) {
+        return dictionary.idOf(SecondaryIndex.normalize(className));
+    }
+
+    /**
+     * 获取课程的有序成绩列，必要时重建。
+     * @param courseName 课程名
+     * @return 成绩列；课程不存在时返回 null
+     */
+    SortedColumn getSortedColumn(String courseName) {
+        Course course = courses.get(courseName);
+        if (course == null) {
+            return null;
+        }
+        if (course.sortedColumn == null) {
+            course.sortedColumn = buildColumn(course);
+        }
+        return course.sortedColumn;
+    }
+
+    private static SortedColumn buildColumn(Course course) {
+        int n = course.size;
+        String[] ids = course.studentIds;
+        double[] scores = course.scores;
+        long[] orders = course.rosterOrders;
+        int[] index = new int[n];
+        for (int j = 0; j < n; j++) {
+            index[j] = j;
+        }
+        mergeSort(index, new int[n], 0, n, scores, orders);
+
+        String[] sortedIds = new String[n];
+        double[] sortedScores = new double[n];
+        for (int j = 0; j < n; j++) {
+            sortedIds[j] = ids[index[j]];
+            sortedScores[j] = scores[index[j]];
+        }
+        return new SortedColumn(sortedIds, sortedScores);
+    }
+
+    /**
+     * 对下标数组按 (成绩, 名册顺序) 升序归并排序，比较时直接读原始类型数组。
+     */
+    private static void mergeSort(int[] index, int[] buffer, int from, int to, double[] scores, long[] orders) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(index, buffer, from, mid, scores, orders);
+        mergeSort(index, buffer, mid, to, scores, orders);
+        System.arraycopy(index, from, buffer, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int k = from; k < to; k++) {
+            if (right >= to || (left < mid && compare(buffer[left], buffer[right], scores, orders) <= 0)) {
+                index[k] = buffer[left++];
+            } else {
+                index[k] = buffer[right++];
+            }
+        }
+    }
+
+    private static int compare(int a, int b, double[] scores, long[] orders) {
+        int byScore = Double.compare(scores[a], scores[b]);
+        return byScore != 0 ? byScore : Long.compare(orders[a], orders[b]);
+    }
+}
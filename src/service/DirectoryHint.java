@@ -0,0 +1,227 @@
+package service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link TieredStudentMap} 的目录提示文件：关闭存储时写出的 学号 → 记录偏移 快照 (按目录顺序)，
+ * 后面附带一个开放寻址散列表，打开存储时不必先把整个目录读入内存，就能按学号查找 (每次查找读取几十字节)。
+ * <p>
+ * 格式: [int 魔数][long 日志长度][long 可回收字节数][int 条目数][int 散列表容量]
+ * [条目: UTF 学号, long 偏移]...[int 桶: 条目相对条目区起点的位置 + 1, 0 为空]...
+ * 条目区超过 2 GB 时不写散列表 (容量为 0)，只能顺序读取。
+ */
+class DirectoryHint implements Closeable {
+    private static final int MAGIC = 0x53544832; // "STH2"
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+    private static final int MAX_SEARCHABLE_ENTRIES = 1 << 28; // 散列表容量须能用 int 表示
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long garbageBytes;
+    private final int count;
+    private final int tableCapacity;
+    private final long tableStart;
+
+    private DirectoryHint(Path file, FileChannel channel, long garbageBytes, int count, int tableCapacity) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.garbageBytes = garbageBytes;
+        this.count = count;
+        this.tableCapacity = tableCapacity;
+        this.tableStart = channel.size() - (long) tableCapacity * Integer.BYTES;
+    }
+
+    /**
+     * 写出提示文件 (先写临时文件再替换)。
+     * @param file 提示文件
+     * @param logLength 写出时的日志长度
+     * @param garbageBytes 日志中可回收的字节数
+     * @param directory 目录
+     * @throws IOException 写入失败时抛出
+     */
+    static void write(Path file, long logLength, long garbageBytes, Map<String, Long> directory) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        int capacity = directory.size() > MAX_SEARCHABLE_ENTRIES ? 0
+                : Integer.highestOneBit(Math.max(16, directory.size() * 2 - 1)) << 1; // 负载不超过一半
+        int[] table = capacity == 0 ? null : new int[capacity];
+        long position = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeLong(logLength);
+            out.writeLong(garbageBytes);
+            out.writeInt(directory.size());
+            out.writeInt(capacity);
+            for (Map.Entry<String, Long> entry : directory.entrySet()) {
+                if (table != null && position >= Integer.MAX_VALUE) {
+                    table = null; // 条目区太大，位置无法用 int 表示
+                }
+                if (table != null) {
+                    int bucket = bucketOf(entry.getKey(), capacity);
+                    while (table[bucket] != 0) {
+                        bucket = (bucket + 1) & (capacity - 1);
+                    }
+                    table[bucket] = (int) position + 1;
+                }
+                int before = out.size();
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+                position += out.size() - before;
+            }
+            if (table != null) {
+                for (int slot : table) {
+                    out.writeInt(slot);
+                }
+            }
+        }
+        if (table == null) {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 0), HEADER_SIZE - Integer.BYTES);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 打开提示文件。
+     * @param file 提示文件
+     * @param logLength 当前日志长度
+     * @return 提示；文件不存在、格式不符或日志之后又有追加 (已过期) 时为 null
+     * @throws IOException 读取失败时抛出
+     */
+    static DirectoryHint open(Path file, long logLength) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getLong() != logLength) {
+                channel.close();
+                return null;
+            }
+            long garbage = header.getLong();
+            int count = header.getInt();
+            int capacity = header.getInt();
+            return new DirectoryHint(file, channel, garbage, count, capacity);
+        } catch (IOException e) {
+            channel.close();
+            return null;
+        }
+    }
+
+    long getGarbageBytes() { return garbageBytes; }
+    int getCount() { return count; }
+
+    /**
+     * 是否带有散列表，可以按学号查找。
+     */
+    boolean isSearchable() {
+        return tableCapacity > 0;
+    }
+
+    /**
+     * 按学号查找记录偏移 (可与 {@link #forEach} 在不同线程中同时进行)。
+     * @param studentId 学号
+     * @return 偏移；不存在时为 -1
+     * @throws IOException 读取失败时抛出
+     */
+    long find(String studentId) throws IOException {
+        int mask = tableCapacity - 1;
+        ByteBuffer slot = ByteBuffer.allocate(Integer.BYTES);
+        for (int bucket = bucketOf(studentId, tableCapacity); ; bucket = (bucket + 1) & mask) {
+            slot.clear();
+            readFully(channel, slot, tableStart + (long) bucket * Integer.BYTES);
+            int position = slot.getInt(0);
+            if (position == 0) {
+                return -1;
+            }
+            long entryStart = HEADER_SIZE + (long) position - 1;
+            ByteBuffer keyLength = ByteBuffer.allocate(Short.BYTES);
+            readFully(channel, keyLength, entryStart);
+            ByteBuffer entry = ByteBuffer.allocate(Short.BYTES + Short.toUnsignedInt(keyLength.getShort(0)) + Long.BYTES);
+            readFully(channel, entry, entryStart);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry.array()));
+            if (in.readUTF().equals(studentId)) {
+                return in.readLong();
+            }
+        }
+    }
+
+    /**
+     * 按目录顺序读出全部条目 (另开输入流顺序读取)。
+     * @param action 学号、偏移的处理
+     * @throws IOException 读取失败时抛出
+     */
+    void forEach(BiConsumer<String, Long> action) throws IOException {
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16))) {
+            in.readFully(new byte[HEADER_SIZE]);
+            for (int i = 0; i < count; i++) {
+                action.accept(in.readUTF(), in.readLong());
+            }
+        }
+    }
+
+    /**
+     * 读出整个目录。
+     * @return 学号 → 偏移，按目录顺序
+     * @throws IOException 读取失败时抛出
+     */
+    Map<String, Long> readAll() throws IOException {
+        Map<String, Long> directory = new LinkedHashMap<>(Math.max(16, (int) (count / 0.75f) + 1));
+        forEach(directory::put);
+        return directory;
+    }
+
+    /**
+     * 按目录顺序读出全部记录偏移。
+     * @return 偏移
+     * @throws IOException 读取失败时抛出
+     */
+    long[] readOffsets() throws IOException {
+        long[] offsets = new long[count];
+        int[] next = {0};
+        forEach((studentId, offset) -> offsets[next[0]++] = offset);
+        return offsets;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int bucketOf(String studentId, int capacity) {
+        int h = studentId.hashCode(); // String.hashCode 的算法由规范固定，写出与读取时一致
+        return (h ^ (h >>> 16)) & (capacity - 1);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("提示文件在偏移 " + position + " 处被截断");
+            }
+            position += read;
+        }
+    }
+}
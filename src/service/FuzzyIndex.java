@@ -0,0 +1,298 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 模糊匹配索引：字段值 → 学号集合，另以字段值的二元组 (bigram) 建倒排表，用于按编辑距离检索近似值。
+ * <p>
+ * 字段值规范化 (去空白、转小写) 后首尾加上边界符，切成长度为 2 的片段。
+ * 一次编辑 (插入、删除、替换) 最多破坏 2 个片段，所以编辑距离不超过 k 的两个值至少共享
+ * max(片段数) - 2k 个片段；查询只从最短的几个倒排表收集候选 (前缀过滤)，统计候选的共享片段数过滤后，
+ * 只对少量候选计算编辑距离。
+ * <p>
+ * 不同字段值按出现顺序编号，删除最后一名学生后编号保留 (学号集合为空，查询时跳过)，
+ * 再次出现相同的值时复用原编号，因此倒排表只追加、不删除。
+ */
+class FuzzyIndex {
+    private static final char BEGIN = '\u0002';
+    private static final char END = '\u0003';
+
+    private final String name;
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<String> terms = new ArrayList<>();       // 编号 → 规范化的值
+    private final IntList termLengths = new IntList();          // 编号 → 值的长度，过滤候选时避免访问字符串对象
+    private final List<Set<String>> postings = new ArrayList<>(); // 编号 → 学号集合
+    private final Map<Integer, IntList> gramIndex = new HashMap<>(); // 片段 → 含该片段的值编号
+    private int[] marks = new int[16]; // 查询时标记已检查的编号，按查询序号区分，复用以避免分配
+    private int[] hits = new int[16];  // 编号 → 本次查询在前缀倒排表中的命中次数
+    private int searchStamp;
+    private int maxTermLength;
+    private int liveTerms;
+
+    /**
+     * 单个候选值的匹配结果。
+     */
+    static final class TermMatch {
+        final String term;
+        final double similarity;
+        final Set<String> studentIds;
+
+        TermMatch(String term, double similarity, Set<String> studentIds) {
+            this.term = term;
+            this.similarity = similarity;
+            this.studentIds = studentIds;
+        }
+    }
+
+    FuzzyIndex(String name) {
+        this.name = name;
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    void add(String value, String studentId) {
+        String term = normalize(value);
+        if (term.isEmpty()) {
+            return;
+        }
+        Integer id = termIds.get(term);
+        if (id == null) {
+            id = terms.size();
+            termIds.put(term, id);
+            terms.add(term);
+            termLengths.add(term.length());
+            postings.add(new LinkedHashSet<>());
+            maxTermLength = Math.max(maxTermLength, term.length());
+            for (int gram : Arrays.stream(grams(term)).distinct().toArray()) {
+                gramIndex.computeIfAbsent(gram, k -> new IntList()).add(id);
+            }
+        }
+        Set<String> ids = postings.get(id);
+        if (ids.isEmpty()) {
+            liveTerms++;
+        }
+        ids.add(studentId);
+    }
+
+    void remove(String value, String studentId) {
+        Integer id = termIds.get(normalize(value));
+        if (id == null) {
+            return;
+        }
+        Set<String> ids = postings.get(id);
+        if (ids.remove(studentId) && ids.isEmpty()) {
+            liveTerms--;
+        }
+    }
+
+    /**
+     * 查找相似度不低于阈值的值，按相似度从高到低排序。
+     * 相似度 = 1 - 编辑距离 / 两者中较长的长度。
+     * @param query 查询文本 (未规范化)
+     * @param minSimilarity 相似度阈值 (0-1]
+     * @return 匹配的值及其学号集合
+     */
+    List<TermMatch> search(String query, double minSimilarity) {
+        String q = normalize(query);
+        if (q.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int[] queryGrams = grams(q);
+        int required = minSharedGrams(q.length(), minSimilarity);
+        List<TermMatch> matches = new ArrayList<>();
+        int[] row = new int[q.length() + 1];
+        int[] previousRow = new int[q.length() + 1];
+        if (required <= 0) {
+            // 阈值过低时片段过滤不起作用，逐个检查
+            for (int id = 0; id < terms.size(); id++) {
+                verify(q, id, minSimilarity, row, previousRow, matches);
+            }
+        } else {
+            // 前缀过滤：共享片段数不少于 required 的值，必然出现在任意 (片段数 - required + 1) 个查询片段的倒排表中，
+            // 只需扫描其中最短的几个倒排表收集候选，其余倒排表顺序扫描一遍，只为已有候选补足计数。
+            // 查询中重复的片段按次数计，计数不会低于实际共享数，不会漏掉符合条件的值
+            IntList[] lists = new IntList[queryGrams.length];
+            for (int i = 0; i < queryGrams.length; i++) {
+                IntList list = gramIndex.get(queryGrams[i]);
+                lists[i] = list == null ? IntList.EMPTY : list;
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            if (marks.length < terms.size()) {
+                marks = new int[Math.max(terms.size(), marks.length * 2)];
+                hits = new int[marks.length];
+            }
+            int stamp = ++searchStamp;
+            int prefix = queryGrams.length - required + 1;
+            IntList touched = new IntList();
+            for (int l = 0; l < prefix; l++) {
+                IntList list = lists[l];
+                for (int i = 0; i < list.size; i++) {
+                    int id = list.values[i];
+                    if (marks[id] != stamp) {
+                        marks[id] = stamp;
+                        hits[id] = 0;
+                        touched.add(id);
+                    }
+                    hits[id]++;
+                }
+            }
+            for (int l = prefix; l < lists.length; l++) {
+                IntList list = lists[l];
+                for (int i = 0; i < list.size; i++) {
+                    int id = list.values[i];
+                    if (marks[id] == stamp) {
+                        hits[id]++;
+                    }
+                }
+            }
+            for (int i = 0; i < touched.size; i++) {
+                int id = touched.values[i];
+                int longer = Math.max(q.length(), termLengths.values[id]);
+                if (hits[id] >= longer + 1 - 2 * maxDistance(longer, minSimilarity)) {
+                    verify(q, id, minSimilarity, row, previousRow, matches);
+                }
+            }
+        }
+        matches.sort((a, b) -> Double.compare(b.similarity, a.similarity));
+        return matches;
+    }
+
+    /**
+     * 依次用长度和编辑距离检查一个候选值，符合阈值时加入结果。
+     */
+    private void verify(String q, int id, double minSimilarity, int[] row, int[] previousRow, List<TermMatch> matches) {
+        Set<String> ids = postings.get(id);
+        if (ids.isEmpty()) {
+            return;
+        }
+        String term = terms.get(id);
+        int longer = Math.max(q.length(), term.length());
+        int maxDistance = maxDistance(longer, minSimilarity);
+        if (Math.abs(q.length() - term.length()) > maxDistance) {
+            return;
+        }
+        int distance = boundedEditDistance(q, term, maxDistance, row, previousRow);
+        if (distance <= maxDistance) {
+            matches.add(new TermMatch(term, 1 - (double) distance / longer, Collections.unmodifiableSet(ids)));
+        }
+    }
+
+    private static int maxDistance(int longer, double minSimilarity) {
+        return (int) Math.floor((1 - minSimilarity) * longer + 1e-9);
+    }
+
+    /**
+     * 长度符合条件的所有值中，至少需要与查询共享的片段数的下限。
+     */
+    private int minSharedGrams(int queryLength, double minSimilarity) {
+        int required = queryLength + 1 - 2 * maxDistance(queryLength, minSimilarity); // 不长于查询的值
+        for (int length = queryLength + 1; length <= maxTermLength; length++) {
+            int maxDistance = maxDistance(length, minSimilarity);
+            if (length - queryLength <= maxDistance) {
+                required = Math.min(required, length + 1 - 2 * maxDistance);
+            }
+        }
+        return required;
+    }
+
+    /**
+     * 计算编辑距离，超过 limit 时提前返回 limit + 1。
+     * 只计算动态规划表中对角线两侧 limit 宽的带状区域，带外的格子必然超过 limit。
+     */
+    private static int boundedEditDistance(String a, String b, int limit, int[] row, int[] previousRow) {
+        int n = a.length();
+        if (row.length < n + 1) {
+            row = new int[n + 1];
+            previousRow = new int[n + 1];
+        }
+        int outside = limit + 1;
+        for (int i = 0; i <= n; i++) {
+            previousRow[i] = i <= limit ? i : outside;
+        }
+        for (int j = 1; j <= b.length(); j++) {
+            int from = Math.max(1, j - limit);
+            int to = Math.min(n, j + limit);
+            row[from - 1] = from == 1 && j <= limit ? j : outside;
+            int rowMin = row[from - 1];
+            char cb = b.charAt(j - 1);
+            for (int i = from; i <= to; i++) {
+                int cost = a.charAt(i - 1) == cb ? 0 : 1;
+                int value = Math.min(Math.min(row[i - 1] + 1, previousRow[i] + 1), previousRow[i - 1] + cost);
+                row[i] = Math.min(value, outside);
+                rowMin = Math.min(rowMin, row[i]);
+            }
+            if (to < n) {
+                row[to + 1] = outside; // 下一行读取的带外格子
+            }
+            if (rowMin > limit) {
+                return outside;
+            }
+            int[] swap = previousRow;
+            previousRow = row;
+            row = swap;
+        }
+        return previousRow[n];
+    }
+
+    private static int[] grams(String term) {
+        int[] grams = new int[term.length() + 1];
+        char previous = BEGIN;
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            grams[i] = (previous << 16) | c;
+            previous = c;
+        }
+        grams[term.length()] = (previous << 16) | END;
+        return grams;
+    }
+
+    void clear() {
+        termIds.clear();
+        terms.clear();
+        termLengths.size = 0;
+        postings.clear();
+        gramIndex.clear();
+        maxTermLength = 0;
+        liveTerms = 0;
+    }
+
+    String getName() { return name; }
+    int distinctTerms() { return liveTerms; }
+
+    /**
+     * 可增长的 int 数组。
+     */
+    private static final class IntList {
+        static final IntList EMPTY = new IntList();
+
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+    }
+}
@@ -0,0 +1,52 @@
+package service;
+
+import model.Student;
+
+/**
+ * 模糊查询的一条结果：学生、匹配的字段及相似度。
+ */
+public class FuzzyMatch {
+    /**
+     * 可模糊匹配的字段。
+     */
+    public enum Field {
+        NAME("姓名"),
+        RESEARCH_DIRECTION("研究方向"),
+        SUPERVISOR("导师");
+
+        private final String description;
+
+        Field(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() { return description; }
+    }
+
+    private final Student student;
+    private final Field field;
+    private final String matchedValue;
+    private final double similarity;
+
+    FuzzyMatch(Student student, Field field, String matchedValue, double similarity) {
+        this.student = student;
+        this.field = field;
+        this.matchedValue = matchedValue;
+        this.similarity = similarity;
+    }
+
+    public Student getStudent() { return student; }
+    public Field getField() { return field; }
+
+    /**
+     * 获取匹配上的字段值 (规范化后，即去空白、转小写)。
+     * @return 字段值
+     */
+    public String getMatchedValue() { return matchedValue; }
+
+    /**
+     * 获取相似度：1 - 编辑距离 / 较长一方的长度。
+     * @return 相似度 (0-1]
+     */
+    public double getSimilarity() { return similarity; }
+}
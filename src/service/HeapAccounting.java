@@ -0,0 +1,210 @@
+package service;
+
+import model.Address;
+import model.Graduate;
+import model.ScoreHistory;
+import model.Student;
+import model.Undergraduate;
+import utils.ObjectSizes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 增量维护名册的内存占用估算：学生加入或移出名册时按其当前内容加减，不遍历堆。
+ * <p>
+ * 移出时按学生当时的内容重新计算并扣除，因此修改学生内容 (如改分) 前须先 {@link #remove}，改完再 {@link #add}。
+ * 地址对象与地址字符串由 {@link Address#of} 驻留共享，按对象身份计数引用，第一次被引用时计入、最后一个引用移出时扣除。
+ * 其余字符串按每个学生各有一份计算；存储层若共享了这些字符串，估算值偏大。
+ * 创建本类不会初始化 {@link ObjectSizes} (要读取 JVM 参数，需要几十毫秒)，第一次计入学生时才初始化。
+ */
+class HeapAccounting {
+    private static final String UNDERGRADUATE = "本科生";
+    private static final String GRADUATE = "研究生";
+
+    private final long[] components = new long[MemoryFootprint.Component.values().length];
+    private final Map<String, long[]> byType = new HashMap<>();   // 类型 → {字节数, 人数}
+    private final Map<String, long[]> byClass = new HashMap<>();  // 班级 → {字节数, 人数}
+    private final Map<String, long[]> byCourse = new HashMap<>(); // 课程 → {字节数, 条目数}
+    private final Map<Address, int[]> addressRefs = new IdentityHashMap<>();
+    private final Map<String, int[]> partRefs = new IdentityHashMap<>();
+
+    void add(Student student) {
+        apply(student, 1);
+    }
+
+    void remove(Student student) {
+        apply(student, -1);
+    }
+
+    void clear() {
+        Arrays.fill(components, 0);
+        byType.clear();
+        byClass.clear();
+        byCourse.clear();
+        addressRefs.clear();
+        partRefs.clear();
+    }
+
+    /**
+     * 获取学生数据的估算总字节数 (不含名册存储结构)。
+     * @return 字节数
+     */
+    long totalBytes() {
+        long total = 0;
+        for (long bytes : components) {
+            total += bytes;
+        }
+        return total;
+    }
+
+    /**
+     * 生成当前的估算结果。
+     * @param studentCount 名册人数
+     * @param storeBytes 名册存储结构本身的字节数
+     * @param resident 学生对象是否常驻堆内存
+     * @return 估算结果
+     */
+    MemoryFootprint snapshot(int studentCount, long storeBytes, boolean resident) {
+        EnumMap<MemoryFootprint.Component, Long> parts = new EnumMap<>(MemoryFootprint.Component.class);
+        for (MemoryFootprint.Component component : MemoryFootprint.Component.values()) {
+            parts.put(component, components[component.ordinal()]);
+        }
+        parts.put(MemoryFootprint.Component.STORE, storeBytes);
+        return new MemoryFootprint(studentCount, resident, parts, new TreeMap<>(bytesOf(byType)),
+                sortedBySize(byClass), sortedBySize(byCourse));
+    }
+
+    private void apply(Student student, int sign) {
+        long own = 0;
+        own += charge(MemoryFootprint.Component.STUDENTS, ObjectSizes.shallowSize(student.getClass()), sign);
+        long strings = ObjectSizes.stringSize(student.getStudentId()) + ObjectSizes.stringSize(student.getName())
+                + ObjectSizes.stringSize(student.getClassName());
+        if (student instanceof Undergraduate) {
+            strings += ObjectSizes.stringSize(((Undergraduate) student).getMajor());
+        } else if (student instanceof Graduate) {
+            Graduate graduate = (Graduate) student;
+            strings += ObjectSizes.stringSize(graduate.getSupervisor()) + ObjectSizes.stringSize(graduate.getResearchDirection());
+        }
+        own += charge(MemoryFootprint.Component.STRINGS, strings, sign);
+
+        Map<String, Double> scores = student.getScores();
+        long scoreMap = ObjectSizes.hashMapSize(scores.size()) - scores.size() * ObjectSizes.HASH_MAP_NODE;
+        List<String> courseKeys = new ArrayList<>(scores.size());
+        for (String course : scores.keySet()) {
+            long entry = ObjectSizes.HASH_MAP_NODE + ObjectSizes.BOXED_DOUBLE + ObjectSizes.stringSize(course);
+            scoreMap += entry;
+            chargeGroup(byCourse, course, entry, sign);
+            courseKeys.add(course);
+        }
+        own += charge(MemoryFootprint.Component.SCORE_MAPS, scoreMap, sign);
+
+        Map<String, ScoreHistory> histories = student.getScoreHistories();
+        if (!histories.isEmpty()) {
+            long historyBytes = ObjectSizes.hashMapSize(histories.size()) - histories.size() * ObjectSizes.HASH_MAP_NODE;
+            for (Map.Entry<String, ScoreHistory> entry : histories.entrySet()) {
+                long bytes = ObjectSizes.HASH_MAP_NODE + ObjectSizes.shallowSize(ScoreHistory.class) + ObjectSizes.arraySize(entry.getValue().bufferCapacity(), 1);
+                if (!containsIdentical(courseKeys, entry.getKey())) {
+                    bytes += ObjectSizes.stringSize(entry.getKey()); // 一般与成绩 Map 共用同一个课程名对象
+                }
+                historyBytes += bytes;
+                chargeGroup(byCourse, entry.getKey(), bytes, sign);
+            }
+            own += charge(MemoryFootprint.Component.SCORE_HISTORIES, historyBytes, sign);
+        }
+
+        chargeGroup(byType, student instanceof Graduate ? GRADUATE : UNDERGRADUATE, own, sign);
+        chargeGroup(byClass, student.getClassName(), own, sign);
+        referenceAddress(student.getAddress(), sign);
+    }
+
+    private long charge(MemoryFootprint.Component component, long bytes, int sign) {
+        components[component.ordinal()] += sign * bytes;
+        return bytes;
+    }
+
+    /**
+     * 分组累计字节数与计数；计数归零的分组移除。
+     */
+    private static void chargeGroup(Map<String, long[]> groups, String key, long bytes, int sign) {
+        long[] group = groups.computeIfAbsent(key, k -> new long[2]);
+        group[0] += sign * bytes;
+        group[1] += sign;
+        if (group[1] == 0) {
+            groups.remove(key);
+        }
+    }
+
+    private void referenceAddress(Address address, int sign) {
+        if (address == null) {
+            return;
+        }
+        if (!reference(addressRefs, address, sign)) {
+            return; // 仍有其他学生引用，或已被计入过
+        }
+        charge(MemoryFootprint.Component.ADDRESSES, ObjectSizes.shallowSize(Address.class), sign);
+        String[] parts = {address.getProvince(), address.getCity(), address.getStreet(), address.getHouseNumber()};
+        for (String part : parts) {
+            if (part != null && reference(partRefs, part, sign)) {
+                charge(MemoryFootprint.Component.INTERNED_STRINGS, ObjectSizes.stringSize(part), sign);
+            }
+        }
+    }
+
+    /**
+     * 按对象身份增减引用计数。
+     * @return 是否第一次被引用 (sign 为 1) 或最后一个引用被移出 (sign 为 -1)
+     */
+    private static <T> boolean reference(Map<T, int[]> refs, T value, int sign) {
+        int[] count = refs.get(value);
+        if (sign > 0) {
+            if (count != null) {
+                count[0]++;
+                return false;
+            }
+            refs.put(value, new int[] {1});
+            return true;
+        }
+        if (count == null) {
+            return false;
+        }
+        if (--count[0] > 0) {
+            return false;
+        }
+        refs.remove(value);
+        return true;
+    }
+
+    private static boolean containsIdentical(List<String> values, String value) {
+        for (String candidate : values) {
+            if (candidate == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, Long> bytesOf(Map<String, long[]> groups) {
+        Map<String, Long> result = new HashMap<>();
+        groups.forEach((key, group) -> result.put(key, group[0]));
+        return result;
+    }
+
+    private static Map<String, Long> sortedBySize(Map<String, long[]> groups) {
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(groups.entrySet());
+        entries.sort((a, b) -> a.getValue()[0] != b.getValue()[0]
+                ? Long.compare(b.getValue()[0], a.getValue()[0]) : a.getKey().compareTo(b.getKey()));
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : entries) {
+            result.put(entry.getKey(), entry.getValue()[0]);
+        }
+        return result;
+    }
+}
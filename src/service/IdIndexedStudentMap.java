@@ -0,0 +1,391 @@
+package service;
+
+import model.Student;
+import utils.ObjectSizes;
+import utils.StudentIdCodec;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * 默认的内存学生存储，按插入顺序遍历 (与 LinkedHashMap 语义一致)。
+ * <p>
+ * 学生按插入顺序放在槽位数组中；符合 "字母前缀 + 数字" 形式的学号经 {@link StudentIdCodec}
+ * 编码为 long，放入线性探测的开放寻址表 (long 键数组 + int 槽位数组)，查找时不创建任何对象，
+ * 也不需要计算 String 哈希与逐字符比较。其余学号走 HashMap 回退路径。
+ */
+public class IdIndexedStudentMap extends AbstractMap<String, Student> {
+    private static final long EMPTY_KEY = 0L; // 合法编码至少包含 1 位数字，不会为 0
+
+    private Student[] slots = new Student[16]; // 按插入顺序，删除后为 null
+    private String[] slotKeys = new String[16];
+    private int slotCount;
+    private int size;
+
+    private long[] tableKeys = new long[32];
+    private int[] tableSlots = new int[32];
+    private int tableSize;
+
+    private final Map<String, Integer> fallback = new HashMap<>(); // 无法编码的学号 → 槽位
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && slotOf((String) key) >= 0;
+    }
+
+    @Override
+    public Student get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int slot = slotOf((String) key);
+        return slot < 0 ? null : slots[slot];
+    }
+
+    /**
+     * 写入学生；学号已存在时覆盖并保持原有顺序。
+     */
+    @Override
+    public Student put(String studentId, Student student) {
+        if (studentId == null || student == null) {
+            throw new IllegalArgumentException("学号和学生对象不能为空");
+        }
+        long code = StudentIdCodec.encode(studentId);
+        int slot = code == StudentIdCodec.NOT_ENCODABLE ? fallback.getOrDefault(studentId, -1) : lookup(code);
+        if (slot >= 0) {
+            Student previous = slots[slot];
+            slots[slot] = student;
+            return previous;
+        }
+        if (slotCount == slots.length) {
+            compactOrGrowSlots();
+        }
+        slot = slotCount++;
+        slots[slot] = student;
+        slotKeys[slot] = studentId;
+        if (code == StudentIdCodec.NOT_ENCODABLE) {
+            fallback.put(studentId, slot);
+        } else {
+            insert(code, slot);
+        }
+        size++;
+        return null;
+    }
+
+    @Override
+    public Student remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String studentId = (String) key;
+        long code = StudentIdCodec.encode(studentId);
+        int slot;
+        if (code == StudentIdCodec.NOT_ENCODABLE) {
+            Integer removed = fallback.remove(studentId);
+            slot = removed == null ? -1 : removed;
+        } else {
+            slot = delete(code);
+        }
+        if (slot < 0) {
+            return null;
+        }
+        Student previous = slots[slot];
+        slots[slot] = null;
+        slotKeys[slot] = null;
+        size--;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(slots, 0, slotCount, null);
+        Arrays.fill(slotKeys, 0, slotCount, null);
+        Arrays.fill(tableKeys, EMPTY_KEY);
+        fallback.clear();
+        slotCount = 0;
+        size = 0;
+        tableSize = 0;
+    }
+
+    @Override
+    public Set<Entry<String, Student>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Student>> iterator() {
+                return new Iterator<>() {
+                    private int next = advance(0);
+                    private int last = -1;
+
+                    private int advance(int from) {
+                        while (from < slotCount && slots[from] == null) {
+                            from++;
+                        }
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < slotCount;
+                    }
+
+                    @Override
+                    public Entry<String, Student> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        last = next;
+                        next = advance(next + 1);
+                        return new SimpleImmutableEntry<>(slotKeys[last], slots[last]);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last < 0 || slots[last] == null) {
+                            throw new IllegalStateException();
+                        }
+                        IdIndexedStudentMap.this.remove(slotKeys[last]);
+                        last = -1;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Spliterator<Entry<String, Student>> spliterator() {
+                return Spliterators.spliterator(this, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+            }
+        };
+    }
+
+    /**
+     * 学号视图，按插入顺序，spliterator 报告 ORDERED 与 SIZED (见 {@link #values})。
+     */
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                Iterator<Entry<String, Student>> entries = entrySet().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public String next() {
+                        return entries.next().getKey();
+                    }
+
+                    @Override
+                    public void remove() {
+                        entries.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public Spliterator<String> spliterator() {
+                return Spliterators.spliterator(this, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+            }
+        };
+    }
+
+    /**
+     * 学生视图，按插入顺序。AbstractMap 默认视图的 spliterator 不报告 ORDERED，并行流可能不按出现顺序归并，
+     * 并行 TopK 中并列学生的先后就会与顺序遍历不同；这里的视图报告 ORDERED 与 SIZED。
+     */
+    @Override
+    public Collection<Student> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Student> iterator() {
+                Iterator<Entry<String, Student>> entries = entrySet().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Student next() {
+                        return entries.next().getValue();
+                    }
+
+                    @Override
+                    public void remove() {
+                        entries.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Spliterator<Student> spliterator() {
+                return Spliterators.spliterator(this, Spliterator.ORDERED | Spliterator.NONNULL);
+            }
+        };
+    }
+
+    /**
+     * 估算存储结构本身 (槽位数组、开放寻址表、回退表) 占用的字节数，不含学生对象与学号字符串。
+     * @return 字节数
+     */
+    long structureBytes() {
+        return ObjectSizes.shallowSize(IdIndexedStudentMap.class)
+                + 2 * ObjectSizes.arraySize(slots.length, ObjectSizes.REFERENCE)
+                + ObjectSizes.arraySize(tableKeys.length, Long.BYTES)
+                + ObjectSizes.arraySize(tableSlots.length, Integer.BYTES)
+                + ObjectSizes.hashMapSize(fallback.size()) + fallback.size() * ObjectSizes.shallowSize(Integer.class);
+    }
+
+    private int slotOf(String studentId) {
+        long code = StudentIdCodec.encode(studentId);
+        if (code == StudentIdCodec.NOT_ENCODABLE) {
+            return fallback.getOrDefault(studentId, -1);
+        }
+        return lookup(code);
+    }
+
+    // --- 开放寻址表 ---
+
+    private static int mix(long code) {
+        long h = code * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int lookup(long code) {
+        int mask = tableKeys.length - 1;
+        for (int bucket = mix(code) & mask; ; bucket = (bucket + 1) & mask) {
+            long key = tableKeys[bucket];
+            if (key == code) {
+                return tableSlots[bucket];
+            }
+            if (key == EMPTY_KEY) {
+                return -1;
+            }
+        }
+    }
+
+    private void insert(long code, int slot) {
+        if ((tableSize + 1) * 2 > tableKeys.length) {
+            resizeTable(tableKeys.length * 2);
+        }
+        int mask = tableKeys.length - 1;
+        int bucket = mix(code) & mask;
+        while (tableKeys[bucket] != EMPTY_KEY) {
+            bucket = (bucket + 1) & mask;
+        }
+        tableKeys[bucket] = code;
+        tableSlots[bucket] = slot;
+        tableSize++;
+    }
+
+    /**
+     * 删除键并向前回移后续元素 (不使用墓碑)。
+     * @return 被删除键对应的槽位，不存在时为 -1
+     */
+    private int delete(long code) {
+        int mask = tableKeys.length - 1;
+        int bucket = mix(code) & mask;
+        while (tableKeys[bucket] != code) {
+            if (tableKeys[bucket] == EMPTY_KEY) {
+                return -1;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+        int slot = tableSlots[bucket];
+        int hole = bucket;
+        for (int next = (hole + 1) & mask; tableKeys[next] != EMPTY_KEY; next = (next + 1) & mask) {
+            int home = mix(tableKeys[next]) & mask;
+            // next 的理想位置不在 (hole, next] 区间内时，可以移到 hole
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                tableKeys[hole] = tableKeys[next];
+                tableSlots[hole] = tableSlots[next];
+                hole = next;
+            }
+        }
+        tableKeys[hole] = EMPTY_KEY;
+        tableSize--;
+        return slot;
+    }
+
+    private void resizeTable(int capacity) {
+        long[] oldKeys = tableKeys;
+        int[] oldSlots = tableSlots;
+        tableKeys = new long[capacity];
+        tableSlots = new int[capacity];
+        tableSize = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY_KEY) {
+                insert(oldKeys[i], oldSlots[i]);
+            }
+        }
+    }
+
+    /**
+     * 槽位用完时：空洞超过一半则原地压缩，否则扩容一倍。
+     */
+    private void compactOrGrowSlots() {
+        if (size * 2 > slotCount) {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+            slotKeys = Arrays.copyOf(slotKeys, slotKeys.length * 2);
+            return;
+        }
+        int live = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (slots[slot] != null) {
+                slots[live] = slots[slot];
+                slotKeys[live] = slotKeys[slot];
+                live++;
+            }
+        }
+        Arrays.fill(slots, live, slotCount, null);
+        Arrays.fill(slotKeys, live, slotCount, null);
+        slotCount = live;
+        Arrays.fill(tableKeys, EMPTY_KEY);
+        tableSize = 0;
+        fallback.clear();
+        for (int slot = 0; slot < slotCount; slot++) {
+            long code = StudentIdCodec.encode(slotKeys[slot]);
+            if (code == StudentIdCodec.NOT_ENCODABLE) {
+                fallback.put(slotKeys[slot], slot);
+            } else {
+                insert(code, slot);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package service;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 名册及其数据结构的内存占用估算 (字节)，按组成部分、学生类型、班级和课程分类。
+ * <p>
+ * 共享的对象 (地址对象及驻留的地址字符串) 只计入组成部分，不分摊到学生类型与班级；
+ * 课程一栏只含该课程的成绩条目与成绩历史，不含成绩 Map 本身。二级索引与查询缓存不计入。
+ */
+public class MemoryFootprint {
+    /**
+     * 组成部分。
+     */
+    public enum Component {
+        STORE("名册存储结构"),
+        STUDENTS("学生对象"),
+        STRINGS("学生字段字符串"),
+        SCORE_MAPS("成绩 Map"),
+        SCORE_HISTORIES("成绩历史"),
+        ADDRESSES("地址对象 (共享)"),
+        INTERNED_STRINGS("驻留字符串 (地址各部分)");
+
+        private final String description;
+
+        Component(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() { return description; }
+    }
+
+    private final int studentCount;
+    private final boolean resident;
+    private final Map<Component, Long> components;
+    private final Map<String, Long> byType;
+    private final Map<String, Long> byClass;
+    private final Map<String, Long> byCourse;
+
+    MemoryFootprint(int studentCount, boolean resident, EnumMap<Component, Long> components,
+                    Map<String, Long> byType, Map<String, Long> byClass, Map<String, Long> byCourse) {
+        this.studentCount = studentCount;
+        this.resident = resident;
+        this.components = Collections.unmodifiableMap(components);
+        this.byType = Collections.unmodifiableMap(byType);
+        this.byClass = Collections.unmodifiableMap(byClass);
+        this.byCourse = Collections.unmodifiableMap(byCourse);
+    }
+
+    public int getStudentCount() { return studentCount; }
+
+    /**
+     * 学生对象是否常驻堆内存。分层存储与堆外存储只有缓存中的学生在堆上，
+     * 此时学生相关各项是全部常驻时的估算，名册存储结构不计入。
+     * @return 是否常驻
+     */
+    public boolean isResident() { return resident; }
+
+    /**
+     * 获取总字节数。
+     * @return 各组成部分之和
+     */
+    public long getTotalBytes() {
+        long total = 0;
+        for (long bytes : components.values()) {
+            total += bytes;
+        }
+        return total;
+    }
+
+    /**
+     * 获取各组成部分的字节数。
+     * @return 组成部分 → 字节数 (只读)
+     */
+    public Map<Component, Long> getComponents() { return components; }
+
+    /**
+     * 获取各学生类型独占的字节数 (学生对象、字段字符串、成绩 Map 与成绩历史)。
+     * @return 类型描述 (本科生、研究生) → 字节数 (只读)
+     */
+    public Map<String, Long> getByType() { return byType; }
+
+    /**
+     * 获取各班级学生独占的字节数，口径同 {@link #getByType()}。
+     * @return 班级 → 字节数 (只读，按字节数从大到小)
+     */
+    public Map<String, Long> getByClass() { return byClass; }
+
+    /**
+     * 获取各课程成绩条目与成绩历史的字节数。
+     * @return 课程 → 字节数 (只读，按字节数从大到小)
+     */
+    public Map<String, Long> getByCourse() { return byCourse; }
+}
@@ -0,0 +1,150 @@
+package service;
+
+import model.Address;
+import model.Graduate;
+import model.Student;
+import model.Undergraduate;
+import utils.ObjectSizes;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * 对象大小估算检查：比较 {@link ObjectSizes} (及按它计算的 {@link HeapAccounting}) 的估算值与实测的堆占用。
+ * <p>
+ * 每一项创建一批同样形状的对象，在创建前后各完整回收一遍，用堆的已用字节数之差除以对象数得到实测值。
+ * 只统计批次结束时仍被引用的对象，构造过程中的临时对象不计入；用串行回收器运行时 (见 scripts/check-object-sizes.sh)
+ * 回收后已用字节数是精确的。估算与实测相差超过 {@link #TOLERANCE_PERCENT}% 的项视为偏差，检查不通过：
+ * JDK 升级改变了对象布局、或学生类增加了字段而估算没有跟上时会出现这种情况。
+ */
+public final class ObjectSizeCheck {
+    private static final int BATCH = 100_000;
+    private static final int WARMUP = 1_000;
+    private static final int MIN_GCS = 4;
+    private static final double TOLERANCE_PERCENT = 2;
+
+    private ObjectSizeCheck() {}
+
+    /**
+     * 一项检查的结果。
+     */
+    public static final class Item {
+        private final String description;
+        private final double estimatedBytes;
+        private final double measuredBytes;
+
+        Item(String description, double estimatedBytes, double measuredBytes) {
+            this.description = description;
+            this.estimatedBytes = estimatedBytes;
+            this.measuredBytes = measuredBytes;
+        }
+
+        public boolean passed() {
+            return Math.abs(estimatedBytes - measuredBytes) <= measuredBytes * TOLERANCE_PERCENT / 100;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("估算 %7.1f 字节, 实测 %7.1f 字节  %s%s", estimatedBytes, measuredBytes, description,
+                    passed() ? "" : "  <-- 偏差超过 " + TOLERANCE_PERCENT + "%");
+        }
+    }
+
+    /**
+     * 执行全部检查。
+     * @return 各项结果
+     */
+    public static List<Item> run() {
+        List<Item> items = new ArrayList<>();
+        items.add(measure("字符串 (Latin-1, 8 字符)", ObjectSizes.stringSize("S1000000"), i -> "S" + (1_000_000 + i)));
+        items.add(measure("字符串 (中文, 4 字符)", ObjectSizes.stringSize("学生一二"),
+                i -> "学生" + (char) ('一' + i % 500) + (char) ('一' + i / 500 % 500)));
+        items.add(measure("Double", ObjectSizes.BOXED_DOUBLE, i -> Double.valueOf(i + 0.5)));
+        String[] keys = new String[13];
+        for (int k = 0; k < keys.length; k++) {
+            keys[k] = "课程" + k;
+        }
+        Double value = 90.0;
+        for (int size : new int[] {0, 1, 12, 13}) {
+            items.add(measure("HashMap (" + size + " 个条目)", ObjectSizes.hashMapSize(size), i -> {
+                Map<String, Double> map = new HashMap<>();
+                for (int k = 0; k < size; k++) {
+                    map.put(keys[k], value);
+                }
+                return map;
+            }));
+        }
+        Address address = Address.of("浙江", "杭州", "文一路", "1"); // 地址驻留共享，在批次之前创建
+        items.add(measureStudents("本科生 (3 门课程)", i -> withScores(new Undergraduate(
+                "U" + (1_000_000 + i), "学生" + i, 20, "班级" + i % 50, address, "专业" + i % 12), 3)));
+        items.add(measureStudents("研究生 (5 门课程)", i -> withScores(new Graduate(
+                "G" + (1_000_000 + i), "学生" + i, 25, "班级" + i % 50, address, "导师" + i % 40, "方向" + i % 15), 5)));
+        items.add(measureStudents("本科生 (无成绩)", i -> new Undergraduate(
+                "U" + (1_000_000 + i), "学生" + i, 20, "班级" + i % 50, address, "专业" + i % 12)));
+        return items;
+    }
+
+    private static Student withScores(Student student, int courses) {
+        for (int c = 0; c < courses; c++) {
+            student.addOrUpdateScore("课程" + c, 60 + c, 1_700_000_000_000L); // 课程名每名学生各一份，与 HeapAccounting 的假设一致
+        }
+        return student;
+    }
+
+    /**
+     * 学生按 {@link HeapAccounting} 估算：先计入一名学生 (使共享的地址被计入)，再计入整批学生，取增量的平均值。
+     */
+    private static Item measureStudents(String description, IntFunction<Student> factory) {
+        HeapAccounting accounting = new HeapAccounting();
+        accounting.add(factory.apply(-1));
+        long base = accounting.totalBytes();
+        for (int i = 0; i < BATCH; i++) {
+            accounting.add(factory.apply(i));
+        }
+        return measure(description, (double) (accounting.totalBytes() - base) / BATCH, factory::apply);
+    }
+
+    private static Item measure(String description, double estimatedBytes, IntFunction<Object> factory) {
+        for (int i = 0; i < WARMUP; i++) {
+            factory.apply(i); // 第一次执行字符串拼接、lambda 等会创建常驻的辅助对象，不能计入批次
+        }
+        Object[] batch = new Object[BATCH];
+        long before = usedAfterGc();
+        for (int i = 0; i < BATCH; i++) {
+            batch[i] = factory.apply(i);
+        }
+        long after = usedAfterGc();
+        Reference.reachabilityFence(batch);
+        return new Item(description, estimatedBytes, (double) (after - before) / BATCH);
+    }
+
+    /**
+     * 反复执行完整回收 (至少 {@link #MIN_GCS} 次，直到已用字节数不再下降)，返回最后一次回收后各堆内存池的已用字节数之和。
+     * 只回收一两次时，上一批对象偶尔要到再下一次回收才被释放。
+     */
+    private static long usedAfterGc() {
+        long previous = Long.MAX_VALUE;
+        for (int i = 0; ; i++) {
+            System.gc();
+            long used = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+                if (usage != null) {
+                    used += usage.getUsed();
+                }
+            }
+            if (i + 1 >= MIN_GCS && used >= previous) {
+                return used;
+            }
+            previous = used;
+        }
+    }
+}
@@ -0,0 +1,623 @@
+package service;
+
+import model.Address;
+import model.Graduate;
+import model.ScoreHistory;
+import model.Student;
+import model.Undergraduate;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * 堆外学生存储：学生记录以定长头部 + 变长字符串的形式保存在直接内存 (direct ByteBuffer) 中，
+ * 堆上只保留原始类型数组 (槽位表与开放寻址哈希表) 和低基数字符串的字典，
+ * 因此名册规模增长时 GC 需要扫描的对象数量基本不变。
+ * <p>
+ * 记录布局 (偏移单位为字节)：
+ * <pre>
+ *   0  byte  类型 (1 本科生, 2 研究生)
+ *   1  int   年龄
+ *   5  int   班级字典号
+ *   9  int   省份字典号      13 int 城市字典号      17 int 街道字典号
+ *   21 int   专业/导师字典号  25 int 研究方向字典号 (本科生为 -1)
+ *   29 short 成绩条数 n
+ *   31 n × (int 课程字典号, double 成绩)
+ *   随后依次为 学号、姓名、门牌号 的 UTF-8 字节，各以 short 长度开头 (门牌号为 null 时长度为 -1)
+ *   最后为成绩历史：short 条数 m, m × (int 课程字典号, int 字节数, {@link ScoreHistory} 编码)
+ * </pre>
+ * 取出的学生对象是按记录新建的副本，修改后需要重新 put 才会写回。
+ * 覆盖和删除会在记录区留下失效记录；写入时记录区不够用且失效记录已占一半以上，先压缩再视需要扩容。
+ */
+public class OffHeapStudentMap extends AbstractMap<String, Student> {
+    private static final byte TYPE_UNDERGRADUATE = 1;
+    private static final byte TYPE_GRADUATE = 2;
+    private static final int HEADER_SIZE = 31;
+    private static final int SCORE_ENTRY_SIZE = Integer.BYTES + Double.BYTES;
+    private static final int EMPTY = -1;
+    private static final int TOMBSTONE = -2;
+    private static final int MAX_ARENA_BYTES = Integer.MAX_VALUE - 8; // 直接内存缓冲区的容量上限
+
+    private final StringDictionary dictionary;
+    private ByteBuffer arena;   // 记录区 (直接内存)
+    private int arenaEnd;       // 已使用的字节数
+    private long garbageBytes;  // 被覆盖或删除的记录字节数
+
+    private int[] slotOffsets = new int[16]; // 槽位 → 记录偏移，按插入顺序排列，删除后为 EMPTY
+    private int slotCount;
+    private int size;
+
+    private int[] table = new int[32]; // 开放寻址哈希表：学号哈希 → 槽位
+    private int tableUsed;             // 已占用 (含墓碑) 的桶数
+
+    /**
+     * 构造函数。
+     * @param initialArenaBytes 初始堆外内存大小 (字节)，不足时自动压缩或翻倍扩容
+     */
+    public OffHeapStudentMap(int initialArenaBytes) {
+        this(initialArenaBytes, new StringDictionary());
+    }
+
+    OffHeapStudentMap(int initialArenaBytes, StringDictionary dictionary) {
+        this.dictionary = dictionary;
+        this.arena = ByteBuffer.allocateDirect(Math.max(initialArenaBytes, 1024)).order(ByteOrder.nativeOrder());
+        Arrays.fill(table, EMPTY);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && findSlot(utf8((String) key)) >= 0;
+    }
+
+    @Override
+    public Student get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int slot = findSlot(utf8((String) key));
+        return slot < 0 ? null : decode(slotOffsets[slot]);
+    }
+
+    /**
+     * 写入学生记录；学号已存在时覆盖并保持原有顺序。
+     * @return 总是返回 null (不为返回值解码旧记录)
+     */
+    @Override
+    public Student put(String studentId, Student student) {
+        byte[] idBytes = utf8(studentId);
+        int offset = encode(student, idBytes);
+        int slot = findSlot(idBytes);
+        if (slot >= 0) {
+            garbageBytes += recordLength(slotOffsets[slot]);
+            slotOffsets[slot] = offset;
+            return null;
+        }
+        if (slotCount == slotOffsets.length) {
+            slotOffsets = Arrays.copyOf(slotOffsets, slotOffsets.length * 2);
+        }
+        ensureTableRoom(); // 须在分配新槽位之前：重建哈希表会重新插入所有已分配的槽位
+        slot = slotCount++;
+        slotOffsets[slot] = offset;
+        insertIntoTable(hash(idBytes), slot);
+        assert bucketCount(slot) == 1 : "槽位 " + slot + " 在哈希表中出现 " + bucketCount(slot) + " 次";
+        size++;
+        return null;
+    }
+
+    @Override
+    public Student remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        byte[] idBytes = utf8((String) key);
+        int bucket = findBucket(idBytes);
+        if (bucket < 0) {
+            return null;
+        }
+        int slot = table[bucket];
+        Student removed = decode(slotOffsets[slot]);
+        removeSlot(bucket, slot);
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        tableUsed = 0;
+        slotCount = 0;
+        size = 0;
+        arenaEnd = 0;
+        garbageBytes = 0;
+    }
+
+    @Override
+    public Set<Entry<String, Student>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Student>> iterator() {
+                return new Iterator<>() {
+                    private int next = advance(0);
+                    private int last = -1;
+
+                    private int advance(int from) {
+                        while (from < slotCount && slotOffsets[from] == EMPTY) {
+                            from++;
+                        }
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < slotCount;
+                    }
+
+                    @Override
+                    public Entry<String, Student> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        last = next;
+                        next = advance(next + 1);
+                        Student student = decode(slotOffsets[last]);
+                        return new SimpleImmutableEntry<>(student.getStudentId(), student);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last < 0 || slotOffsets[last] == EMPTY) {
+                            throw new IllegalStateException();
+                        }
+                        byte[] idBytes = readIdBytes(slotOffsets[last]);
+                        removeSlot(findBucket(idBytes), last);
+                        last = -1;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Spliterator<Entry<String, Student>> spliterator() {
+                return Spliterators.spliterator(this, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+            }
+        };
+    }
+
+    /**
+     * 学号视图，按插入顺序，spliterator 报告 ORDERED 与 SIZED (见 {@link IdIndexedStudentMap#values})。
+     */
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                Iterator<Entry<String, Student>> entries = entrySet().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public String next() {
+                        return entries.next().getKey();
+                    }
+
+                    @Override
+                    public void remove() {
+                        entries.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public Spliterator<String> spliterator() {
+                return Spliterators.spliterator(this, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+            }
+        };
+    }
+
+    /**
+     * 学生视图，按插入顺序，spliterator 报告 ORDERED 与 SIZED (原因见 {@link IdIndexedStudentMap#values})。
+     */
+    @Override
+    public Collection<Student> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Student> iterator() {
+                Iterator<Entry<String, Student>> entries = entrySet().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Student next() {
+                        return entries.next().getValue();
+                    }
+
+                    @Override
+                    public void remove() {
+                        entries.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Spliterator<Student> spliterator() {
+                return Spliterators.spliterator(this, Spliterator.ORDERED | Spliterator.NONNULL);
+            }
+        };
+    }
+
+    /**
+     * 压缩记录区与槽位表，回收被覆盖和已删除的记录。
+     */
+    public void compact() {
+        compact(Math.max(arenaEnd - (int) garbageBytes, 1024));
+    }
+
+    /**
+     * 把有效记录按槽位顺序复制到新的记录区。
+     * @param capacity 新记录区的容量，不小于有效记录的字节数
+     */
+    private void compact(int capacity) {
+        ByteBuffer compacted = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+        int[] offsets = new int[Math.max(size, 16)];
+        int live = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            int offset = slotOffsets[slot];
+            if (offset == EMPTY) {
+                continue;
+            }
+            int length = recordLength(offset);
+            offsets[live++] = compacted.position();
+            ByteBuffer record = arena.duplicate();
+            record.limit(offset + length).position(offset);
+            compacted.put(record);
+        }
+        arena = compacted;
+        arenaEnd = compacted.position();
+        slotOffsets = offsets;
+        slotCount = live;
+        garbageBytes = 0;
+        rebuildTable(table.length);
+    }
+
+    // --- 统计 ---
+    public long getOffHeapBytes() { return arena.capacity(); }
+    public long getUsedBytes() { return arenaEnd; }
+    public long getGarbageBytes() { return garbageBytes; }
+    public int getDictionarySize() { return dictionary.size(); }
+
+    /**
+     * 返回存储统计信息的字符串表示。
+     * @return 格式化字符串
+     */
+    public String statsString() {
+        return String.format("堆外存储: %d 条, 已用 %d / %d 字节, 可回收 %d 字节, 字典 %d 项",
+                size, arenaEnd, arena.capacity(), garbageBytes, dictionary.size());
+    }
+
+    // --- 编解码 ---
+
+    private int encode(Student student, byte[] idBytes) {
+        byte[] nameBytes = utf8(student.getName());
+        Address address = student.getAddress();
+        byte[] houseBytes = address.getHouseNumber() == null ? null : utf8(address.getHouseNumber());
+        Map<String, Double> scores = student.getScores();
+        Map<String, ScoreHistory> histories = student.getScoreHistories();
+        int historyBytes = Short.BYTES;
+        for (ScoreHistory history : histories.values()) {
+            historyBytes += Integer.BYTES * 2 + history.encodedBytes();
+        }
+        int length = HEADER_SIZE + scores.size() * SCORE_ENTRY_SIZE
+                + Short.BYTES + idBytes.length + Short.BYTES + nameBytes.length
+                + Short.BYTES + (houseBytes == null ? 0 : houseBytes.length) + historyBytes;
+        ensureCapacity(length);
+
+        int offset = arenaEnd;
+        ByteBuffer buffer = arena;
+        buffer.position(offset);
+        if (student instanceof Graduate) {
+            Graduate graduate = (Graduate) student;
+            buffer.put(TYPE_GRADUATE);
+            buffer.putInt(student.getAge());
+            putHeaderStrings(buffer, student, address);
+            buffer.putInt(dictionary.idOf(graduate.getSupervisor()));
+            buffer.putInt(dictionary.idOf(graduate.getResearchDirection()));
+        } else if (student instanceof Undergraduate) {
+            buffer.put(TYPE_UNDERGRADUATE);
+            buffer.putInt(student.getAge());
+            putHeaderStrings(buffer, student, address);
+            buffer.putInt(dictionary.idOf(((Undergraduate) student).getMajor()));
+            buffer.putInt(StringDictionary.NULL_ID);
+        } else {
+            throw new IllegalArgumentException("不支持的学生类型: " + student.getClass().getName());
+        }
+        buffer.putShort((short) scores.size());
+        for (Map.Entry<String, Double> entry : scores.entrySet()) {
+            buffer.putInt(dictionary.idOf(entry.getKey()));
+            buffer.putDouble(entry.getValue());
+        }
+        putBytes(buffer, idBytes);
+        putBytes(buffer, nameBytes);
+        putBytes(buffer, houseBytes);
+        buffer.putShort((short) histories.size());
+        for (Map.Entry<String, ScoreHistory> entry : histories.entrySet()) {
+            byte[] history = entry.getValue().toBytes();
+            buffer.putInt(dictionary.idOf(entry.getKey()));
+            buffer.putInt(history.length);
+            buffer.put(history);
+        }
+        arenaEnd = buffer.position();
+        return offset;
+    }
+
+    private void putHeaderStrings(ByteBuffer buffer, Student student, Address address) {
+        buffer.putInt(dictionary.idOf(student.getClassName()));
+        buffer.putInt(dictionary.idOf(address.getProvince()));
+        buffer.putInt(dictionary.idOf(address.getCity()));
+        buffer.putInt(dictionary.idOf(address.getStreet()));
+    }
+
+    private Student decode(int offset) {
+        ByteBuffer buffer = arena;
+        byte type = buffer.get(offset);
+        int age = buffer.getInt(offset + 1);
+        String className = dictionary.valueOf(buffer.getInt(offset + 5));
+        String province = dictionary.valueOf(buffer.getInt(offset + 9));
+        String city = dictionary.valueOf(buffer.getInt(offset + 13));
+        String street = dictionary.valueOf(buffer.getInt(offset + 17));
+        String extra1 = dictionary.valueOf(buffer.getInt(offset + 21));
+        String extra2 = dictionary.valueOf(buffer.getInt(offset + 25));
+        int scoreCount = buffer.getShort(offset + 29);
+        int position = offset + HEADER_SIZE + scoreCount * SCORE_ENTRY_SIZE;
+
+        int idLength = buffer.getShort(position);
+        String studentId = readString(position + Short.BYTES, idLength);
+        position += Short.BYTES + idLength;
+        int nameLength = buffer.getShort(position);
+        String name = readString(position + Short.BYTES, nameLength);
+        position += Short.BYTES + nameLength;
+        int houseLength = buffer.getShort(position);
+        String houseNumber = houseLength < 0 ? null : readString(position + Short.BYTES, houseLength);
+        position += Short.BYTES + Math.max(houseLength, 0);
+
+        Address address = Address.of(province, city, street, houseNumber);
+        Student student = type == TYPE_GRADUATE
+                ? new Graduate(studentId, name, age, className, address, extra1, extra2)
+                : new Undergraduate(studentId, name, age, className, address, extra1);
+        int scorePosition = offset + HEADER_SIZE;
+        for (int i = 0; i < scoreCount; i++) {
+            String course = dictionary.valueOf(buffer.getInt(scorePosition));
+            student.getScores().put(course, buffer.getDouble(scorePosition + Integer.BYTES));
+            scorePosition += SCORE_ENTRY_SIZE;
+        }
+        int historyCount = buffer.getShort(position);
+        position += Short.BYTES;
+        for (int i = 0; i < historyCount; i++) {
+            String course = dictionary.valueOf(buffer.getInt(position));
+            byte[] history = new byte[buffer.getInt(position + Integer.BYTES)];
+            ByteBuffer view = buffer.duplicate();
+            view.position(position + Integer.BYTES * 2);
+            view.get(history);
+            position += Integer.BYTES * 2 + history.length;
+            student.restoreScoreHistory(course, ScoreHistory.fromBytes(history));
+        }
+        return student;
+    }
+
+    private int recordLength(int offset) {
+        int position = offset + HEADER_SIZE + arena.getShort(offset + 29) * SCORE_ENTRY_SIZE;
+        position += Short.BYTES + arena.getShort(position);
+        position += Short.BYTES + arena.getShort(position);
+        int houseLength = arena.getShort(position);
+        position += Short.BYTES + Math.max(houseLength, 0);
+        int historyCount = arena.getShort(position);
+        position += Short.BYTES;
+        for (int i = 0; i < historyCount; i++) {
+            position += Integer.BYTES * 2 + arena.getInt(position + Integer.BYTES);
+        }
+        return position - offset;
+    }
+
+    private int idPosition(int offset) {
+        return offset + HEADER_SIZE + arena.getShort(offset + 29) * SCORE_ENTRY_SIZE;
+    }
+
+    private byte[] readIdBytes(int offset) {
+        int position = idPosition(offset);
+        byte[] bytes = new byte[arena.getShort(position)];
+        ByteBuffer view = arena.duplicate();
+        view.position(position + Short.BYTES);
+        view.get(bytes);
+        return bytes;
+    }
+
+    private boolean idEquals(int offset, byte[] idBytes) {
+        int position = idPosition(offset);
+        if (arena.getShort(position) != idBytes.length) {
+            return false;
+        }
+        position += Short.BYTES;
+        for (int i = 0; i < idBytes.length; i++) {
+            if (arena.get(position + i) != idBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readString(int position, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = arena.duplicate();
+        view.position(position);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("字符串过长，无法写入堆外存储");
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * 保证记录区还能追加 extra 字节。失效记录占一半以上 (或不压缩就超过容量上限) 时先压缩，
+     * 仍放不下时扩容为所需大小与两倍容量中较大的一个，但不超过上限。
+     */
+    private void ensureCapacity(int extra) {
+        if ((long) arenaEnd + extra <= arena.capacity()) {
+            return;
+        }
+        boolean compact = garbageBytes * 2 >= arenaEnd || (long) arenaEnd + extra > MAX_ARENA_BYTES;
+        long required = (compact ? arenaEnd - garbageBytes : arenaEnd) + (long) extra;
+        if (required > MAX_ARENA_BYTES) {
+            throw new IllegalStateException("堆外存储已满：有效记录超过 " + MAX_ARENA_BYTES + " 字节");
+        }
+        long newCapacity = required <= arena.capacity() ? arena.capacity()
+                : Math.min(Math.max(required, (long) arena.capacity() * 2), MAX_ARENA_BYTES);
+        if (compact) {
+            compact((int) newCapacity);
+            return;
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) newCapacity).order(ByteOrder.nativeOrder());
+        ByteBuffer used = arena.duplicate();
+        used.position(0).limit(arenaEnd);
+        grown.put(used);
+        arena = grown;
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // --- 哈希索引 ---
+
+    private static int hash(byte[] bytes) {
+        int h = Arrays.hashCode(bytes);
+        return h ^ (h >>> 16);
+    }
+
+    private int findSlot(byte[] idBytes) {
+        int bucket = findBucket(idBytes);
+        return bucket < 0 ? -1 : table[bucket];
+    }
+
+    private int findBucket(byte[] idBytes) {
+        int mask = table.length - 1;
+        int bucket = hash(idBytes) & mask;
+        while (true) {
+            int slot = table[bucket];
+            if (slot == EMPTY) {
+                return -1;
+            }
+            if (slot != TOMBSTONE && idEquals(slotOffsets[slot], idBytes)) {
+                return bucket;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+    }
+
+    /**
+     * 保证哈希表还能再插入一个桶 (负载不超过一半)，必要时扩容或清除墓碑。
+     */
+    private void ensureTableRoom() {
+        if ((tableUsed + 1) * 2 > table.length) {
+            rebuildTable(size * 4 > table.length ? table.length * 2 : table.length);
+        }
+    }
+
+    private void insertIntoTable(int hash, int slot) {
+        int mask = table.length - 1;
+        int bucket = hash & mask;
+        while (table[bucket] != EMPTY && table[bucket] != TOMBSTONE) {
+            bucket = (bucket + 1) & mask;
+        }
+        if (table[bucket] == EMPTY) {
+            tableUsed++;
+        }
+        table[bucket] = slot;
+    }
+
+    /**
+     * 统计指向槽位的桶数 (仅供断言检查，线性扫描)。
+     */
+    private int bucketCount(int slot) {
+        int count = 0;
+        for (int entry : table) {
+            if (entry == slot) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void removeSlot(int bucket, int slot) {
+        garbageBytes += recordLength(slotOffsets[slot]);
+        table[bucket] = TOMBSTONE;
+        slotOffsets[slot] = EMPTY;
+        size--;
+    }
+
+    private void rebuildTable(int capacity) {
+        table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        tableUsed = 0;
+        int mask = capacity - 1;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (slotOffsets[slot] == EMPTY) {
+                continue;
+            }
+            int bucket = hash(readIdBytes(slotOffsets[slot])) & mask;
+            while (table[bucket] != EMPTY) {
+                bucket = (bucket + 1) & mask;
+            }
+            table[bucket] = slot;
+            tableUsed++;
+        }
+    }
+}
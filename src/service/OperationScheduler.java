@@ -0,0 +1,454 @@
+package service;
+
+import model.Student;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 按优先级调度同一个 {@link StudentManagementSystem} 上的操作，避免按学号查找等交互操作排在批量导入、全表扫描和排序之后。
+ * <p>
+ * 服务不是线程安全的，所有操作都在调度器的一个工作线程上依次执行；各线程通过 submit 等方法提交操作，得到 CompletableFuture。
+ * 操作按通道 ({@link Lane}) 排队：
+ * <ul>
+ *   <li>交互通道严格优先：工作线程每执行完一步，先执行完所有排队的交互操作，再继续其他通道。</li>
+ *   <li>扫描、排序、批量写入三个吞吐通道按权重分享工作线程的时间：每个通道记录已用时间 ÷ 权重，
+ *       每一步选这个值最小的通道，权重为 2 的通道得到的时间约为权重为 1 的两倍。</li>
+ * </ul>
+ * 长操作被切成多步执行：扫描每步按名册顺序读取并检查一段学生 (只检查开始时已在名册中的学生，
+ * 期间被删除的学生不再计入，被修改的学生按检查到时的内容匹配)；排序与 Top-K 先每步读取并排序一段学生，
+ * 再每步归并输出一段 (见 {@link ChunkedSort})；批量导入每步添加一段学生。
+ * 每一段的人数按上一步的耗时调整，使一步约为 0.25 ms，且不超过 chunkSize：添加学生要维护各个索引，
+ * 比扫描中检查一名学生慢得多，固定人数的一步耗时相差数十倍。
+ * 普通的 submit 操作作为一步执行，不能中途让出，交互操作的最坏等待时间约为一步的耗时。
+ * 交互延迟可用 scripts/check-scheduler.sh 检查。
+ */
+public class OperationScheduler implements Closeable {
+    private static final int DEFAULT_CHUNK_SIZE = 256;
+    private static final int MIN_CHUNK_SIZE = 8;
+    private static final long STEP_BUDGET_NANOS = 250_000; // 分块操作每一步的目标耗时
+    private static final int LATENCY_WINDOW = 10_000; // 每个通道保留最近这么多次的延迟
+
+    /**
+     * 调度通道。
+     */
+    public enum Lane {
+        INTERACTIVE("交互", 0),
+        SCAN("扫描", 2),
+        SORT("排序", 1),
+        BATCH_WRITE("批量写入", 1);
+
+        private final String description;
+        private final int defaultWeight;
+
+        Lane(String description, int defaultWeight) {
+            this.description = description;
+            this.defaultWeight = defaultWeight;
+        }
+
+        public String getDescription() { return description; }
+    }
+
+    /**
+     * 可分步执行的操作。
+     */
+    private abstract static class Job<T> {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final long submittedAt = System.nanoTime();
+        int chunk;       // 下一步处理的学生数，由调度器按耗时调整
+        boolean chunked; // 上一步是否按 chunk 处理了一段 (建立扫描等步骤不是)
+
+        /**
+         * 执行一步。
+         * @return 是否已完成 (完成时须已设置 future)
+         */
+        abstract boolean step(StudentManagementSystem sms);
+    }
+
+    private static final class SingleStepJob<T> extends Job<T> {
+        private final Function<StudentManagementSystem, T> operation;
+
+        SingleStepJob(Function<StudentManagementSystem, T> operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        boolean step(StudentManagementSystem sms) {
+            future.complete(operation.apply(sms));
+            return true;
+        }
+    }
+
+    private final class SearchJob extends Job<List<Student>> {
+        private final String criteria;
+        private final String type;
+        private ChunkedScan scan;
+
+        SearchJob(String criteria, String type) {
+            this.criteria = criteria;
+            this.type = type;
+        }
+
+        @Override
+        boolean step(StudentManagementSystem sms) {
+            if (scan == null) {
+                scan = sms.beginSearch(criteria, type); // 第一步只记下名册顺序日志的位置
+                chunked = false;
+            } else {
+                scan.advance(chunk);
+                chunked = true;
+            }
+            if (scan.result() == null) {
+                return false;
+            }
+            future.complete(scan.result());
+            return true;
+        }
+    }
+
+    private final class SortJob extends Job<List<Student>> {
+        private final Function<StudentManagementSystem, ChunkedSort> begin;
+        private ChunkedSort sort;
+
+        SortJob(Function<StudentManagementSystem, ChunkedSort> begin) {
+            this.begin = begin;
+        }
+
+        @Override
+        boolean step(StudentManagementSystem sms) {
+            if (sort == null) {
+                sort = begin.apply(sms); // 第一步只检查参数并记下名册顺序日志的位置
+                chunked = false;
+            } else {
+                sort.advance(chunk);
+                chunked = true;
+            }
+            if (sort.result() == null) {
+                return false;
+            }
+            future.complete(sort.result());
+            return true;
+        }
+    }
+
+    private final class ImportJob extends Job<Integer> {
+        private final List<Student> batch;
+        private int position;
+        private int added;
+
+        ImportJob(List<Student> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        boolean step(StudentManagementSystem sms) {
+            int end = Math.min(batch.size(), position + chunk);
+            chunked = true;
+            for (; position < end; position++) {
+                if (sms.addStudent(batch.get(position))) {
+                    added++;
+                }
+            }
+            if (position < batch.size()) {
+                return false;
+            }
+            future.complete(added);
+            return true;
+        }
+    }
+
+    private static final class LaneState {
+        final ArrayDeque<Job<?>> queue = new ArrayDeque<>();
+        final long[] latencies = new long[LATENCY_WINDOW]; // 环形缓冲
+        long completed;
+        int weight;
+        double virtualTime; // 已用时间 ÷ 权重 (纳秒)
+    }
+
+    private final StudentManagementSystem sms;
+    private final int chunkSize;
+    private final int minChunkSize;
+    private final Map<Lane, LaneState> lanes = new EnumMap<>(Lane.class);
+    private final Thread worker;
+    private boolean closed;
+
+    /**
+     * 使用默认权重 (扫描 2、排序 1、批量写入 1) 与分块大小构造。
+     * @param sms 被调度的服务，此后只应通过调度器访问
+     */
+    public OperationScheduler(StudentManagementSystem sms) {
+        this(sms, Collections.emptyMap(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * 构造函数。
+     * @param sms 被调度的服务，此后只应通过调度器访问
+     * @param weights 吞吐通道的权重 (正整数)，未指定的通道使用默认权重；交互通道不参与权重分配
+     * @param chunkSize 扫描、排序、批量导入每一步最多处理的学生数
+     * @throws IllegalArgumentException 参数无效时抛出
+     */
+    public OperationScheduler(StudentManagementSystem sms, Map<Lane, Integer> weights, int chunkSize) {
+        if (sms == null) {
+            throw new IllegalArgumentException("服务不能为空");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("分块大小必须为正数");
+        }
+        this.sms = sms;
+        this.chunkSize = chunkSize;
+        this.minChunkSize = Math.min(MIN_CHUNK_SIZE, chunkSize);
+        for (Lane lane : Lane.values()) {
+            LaneState state = new LaneState();
+            state.weight = weights.getOrDefault(lane, lane.defaultWeight);
+            if (lane != Lane.INTERACTIVE && state.weight <= 0) {
+                throw new IllegalArgumentException("通道 " + lane.getDescription() + " 的权重必须为正数");
+            }
+            lanes.put(lane, state);
+        }
+        worker = new Thread(this::runWorker, "student-scheduler");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 在指定通道上提交一个操作，作为一步执行。
+     * @param lane 通道
+     * @param operation 对服务的操作
+     * @return 操作结果；操作抛出异常时以该异常完成
+     */
+    public <T> CompletableFuture<T> submit(Lane lane, Function<StudentManagementSystem, T> operation) {
+        return enqueue(lane, new SingleStepJob<>(operation));
+    }
+
+    /**
+     * 按学号查找 (交互通道)。
+     */
+    public CompletableFuture<Optional<Student>> findStudentById(String studentId) {
+        return submit(Lane.INTERACTIVE, sms -> sms.findStudentById(studentId));
+    }
+
+    /**
+     * 查询学生，结果与 {@link StudentManagementSystem#searchStudents} 相同。
+     * 按学号查询走交互通道；按姓名、班级查询需要扫描全部学生，走扫描通道分块执行。
+     * @param criteria 查询关键字
+     * @param type 查询类型 ("id", "name", "class")
+     * @return 学生列表
+     */
+    public CompletableFuture<List<Student>> searchStudents(String criteria, String type) {
+        if ("id".equalsIgnoreCase(type)) {
+            return submit(Lane.INTERACTIVE, sms -> sms.searchStudents(criteria, type));
+        }
+        return enqueue(Lane.SCAN, new SearchJob(criteria, type));
+    }
+
+    /**
+     * 选出排在最前的 k 名学生 (排序通道)，分块执行，结果与 {@link StudentManagementSystem#findTopStudents} 相同。
+     */
+    public CompletableFuture<List<Student>> findTopStudents(String sortBy, int k, boolean ascending) {
+        return enqueue(Lane.SORT, new SortJob(sms -> sms.beginTop(sortBy, k, ascending)));
+    }
+
+    /**
+     * 按排序字段排列全部学生 (排序通道)，分块执行。
+     * @param sortBy 排序字段 ("id", "totalScore", "course:课程名")
+     * @param ascending 是否升序
+     * @return 排好序的学生列表；参数无效时为空列表
+     */
+    public CompletableFuture<List<Student>> sortStudents(String sortBy, boolean ascending) {
+        return enqueue(Lane.SORT, new SortJob(sms -> sms.beginSort(sortBy, ascending)));
+    }
+
+    /**
+     * 批量添加学生 (批量写入通道)，分块执行。
+     * @param batch 学生列表 (提交时复制)
+     * @return 成功添加的人数
+     */
+    public CompletableFuture<Integer> importStudents(List<Student> batch) {
+        return enqueue(Lane.BATCH_WRITE, new ImportJob(new ArrayList<>(batch)));
+    }
+
+    private synchronized <T> CompletableFuture<T> enqueue(Lane lane, Job<T> job) {
+        if (closed) {
+            job.future.completeExceptionally(new IllegalStateException("调度器已关闭"));
+            return job.future;
+        }
+        LaneState state = lanes.get(lane);
+        if (lane != Lane.INTERACTIVE && state.queue.isEmpty()) {
+            // 空闲后重新排队的通道从当前最小的虚拟时间开始，不能用空闲期间 "攒下" 的时间一次占满工作线程
+            state.virtualTime = Math.max(state.virtualTime, minActiveVirtualTime(state.virtualTime));
+        }
+        job.chunk = minChunkSize;
+        state.queue.addLast(job);
+        notifyAll();
+        return job.future;
+    }
+
+    private double minActiveVirtualTime(double fallback) {
+        double min = Double.MAX_VALUE;
+        for (Map.Entry<Lane, LaneState> entry : lanes.entrySet()) {
+            if (entry.getKey() != Lane.INTERACTIVE && !entry.getValue().queue.isEmpty()) {
+                min = Math.min(min, entry.getValue().virtualTime);
+            }
+        }
+        return min == Double.MAX_VALUE ? fallback : min;
+    }
+
+    /**
+     * 选出下一步要执行的通道：有交互操作时选交互通道，否则选虚拟时间最小的非空吞吐通道。
+     * @return 通道；已关闭且全部执行完毕时为 null
+     */
+    private synchronized Lane nextLane() throws InterruptedException {
+        while (true) {
+            if (!lanes.get(Lane.INTERACTIVE).queue.isEmpty()) {
+                return Lane.INTERACTIVE;
+            }
+            Lane next = null;
+            for (Map.Entry<Lane, LaneState> entry : lanes.entrySet()) {
+                LaneState state = entry.getValue();
+                if (entry.getKey() != Lane.INTERACTIVE && !state.queue.isEmpty()
+                        && (next == null || state.virtualTime < lanes.get(next).virtualTime)) {
+                    next = entry.getKey();
+                }
+            }
+            if (next != null) {
+                return next;
+            }
+            if (closed) {
+                return null;
+            }
+            wait();
+        }
+    }
+
+    private void runWorker() {
+        try {
+            Lane lane;
+            while ((lane = nextLane()) != null) {
+                Job<?> job;
+                synchronized (this) {
+                    job = lanes.get(lane).queue.peekFirst();
+                }
+                long start = System.nanoTime();
+                boolean done;
+                try {
+                    done = job.step(sms);
+                } catch (Throwable e) { // 包括 Error (如内存不足)：只结束这个操作，工作线程继续执行其他操作
+                    job.future.completeExceptionally(e);
+                    done = true;
+                }
+                long end = System.nanoTime();
+                synchronized (this) {
+                    LaneState state = lanes.get(lane);
+                    if (lane != Lane.INTERACTIVE) {
+                        state.virtualTime += (double) (end - start) / state.weight;
+                    }
+                    if (!done && job.chunked) {
+                        job.chunk = nextChunk(job.chunk, end - start);
+                    }
+                    if (done) {
+                        state.queue.pollFirst();
+                        state.latencies[(int) (state.completed++ % LATENCY_WINDOW)] = end - job.submittedAt;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            failPending();
+        }
+    }
+
+    /**
+     * 按上一步的耗时估算下一步的人数，使一步约为 {@link #STEP_BUDGET_NANOS}；每步至多翻倍，避免一次偶然的快速执行使下一步过长。
+     */
+    private int nextChunk(int chunk, long elapsedNanos) {
+        long estimate = elapsedNanos > 0 ? chunk * STEP_BUDGET_NANOS / elapsedNanos : chunkSize;
+        return (int) Math.max(minChunkSize, Math.min(Math.min(estimate, 2L * chunk), chunkSize));
+    }
+
+    /**
+     * 工作线程退出时关闭调度器，并以异常结束所有未执行完的操作，避免调用方永远等待。
+     * 正常关闭时队列已经为空。
+     */
+    private synchronized void failPending() {
+        closed = true;
+        IllegalStateException failure = new IllegalStateException("调度器工作线程已退出");
+        for (LaneState state : lanes.values()) {
+            for (Job<?> job : state.queue) {
+                job.future.completeExceptionally(failure);
+            }
+            state.queue.clear();
+        }
+    }
+
+    /**
+     * 获取通道最近完成的操作 (至多 10000 次) 从提交到完成的延迟分位数。
+     * @param lane 通道
+     * @param percentile 分位 (0-100)
+     * @return 纳秒；没有完成的操作时为 0
+     */
+    public synchronized long getLatencyPercentileNanos(Lane lane, double percentile) {
+        LaneState state = lanes.get(lane);
+        int n = (int) Math.min(state.completed, LATENCY_WINDOW);
+        if (n == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(state.latencies, n);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * n);
+        return sorted[Math.max(0, Math.min(n - 1, rank - 1))];
+    }
+
+    /**
+     * 打印各通道的权重、排队数、完成数与延迟。
+     */
+    public void printStats() {
+        System.out.println("\n--- 调度器统计 (分块大小 " + chunkSize + ") ---");
+        for (Lane lane : Lane.values()) {
+            int queued;
+            long completed;
+            int weight;
+            synchronized (this) {
+                LaneState state = lanes.get(lane);
+                queued = state.queue.size();
+                completed = state.completed;
+                weight = state.weight;
+            }
+            System.out.println(String.format("%s: 权重 %s, 排队 %d, 完成 %d, p50 %.1f µs, p99 %.1f µs",
+                    lane.getDescription(), lane == Lane.INTERACTIVE ? "优先" : String.valueOf(weight), queued, completed,
+                    getLatencyPercentileNanos(lane, 50) / 1e3, getLatencyPercentileNanos(lane, 99) / 1e3));
+        }
+        System.out.println("--------------------");
+    }
+
+    /**
+     * 停止接受新操作，等待已提交的操作全部执行完毕。不关闭服务本身。
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        boolean interrupted = false;
+        while (worker.isAlive()) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 查询结果缓存。
+ * 以规范化后的查询为键，按 LRU 淘汰；每个结果记录生成时的名册版本号，版本不一致即视为失效。
+ * 结果一般是学生列表，也可以是其他只读列表 (如模糊查询结果)；同一种类的查询键总是对应同一种元素类型。
+ * 除查询数外还限制所有结果的元素总数：分层存储与堆外存储的结果是解码出的学生副本，
+ * 按查询数计的缓存会把整个名册留在堆上。元素数超过上限的单个结果不缓存。
+ */
+class QueryCache {
+    private final Map<String, CachedResult> results = new LinkedHashMap<>(16, 0.75f, true);
+    private final int capacity;
+    private final int maxElements;
+    private long totalElements; // 所有缓存结果的元素数之和
+    private long hitCount;
+    private long missCount;
+
+    private static final class CachedResult {
+        final long version;
+        final List<?> students;
+
+        CachedResult(long version, List<?> students) {
+            this.version = version;
+            this.students = students;
+        }
+    }
+
+    /**
+     * 构造函数。
+     * @param capacity 最多缓存的查询数
+     * @param maxElements 所有缓存结果的元素总数上限
+     */
+    QueryCache(int capacity, int maxElements) {
+        if (capacity <= 0 || maxElements <= 0) {
+            throw new IllegalArgumentException("缓存容量必须为正数");
+        }
+        this.capacity = capacity;
+        this.maxElements = maxElements;
+    }
+
+    /**
+     * 生成规范化的查询键。
+     * @param kind 查询种类 (如 search、sort)
+     * @param parts 已规范化的查询参数
+     * @return 查询键
+     */
+    static String key(String kind, String... parts) {
+        StringBuilder sb = new StringBuilder(kind);
+        for (String part : parts) {
+            sb.append('\u0000').append(part);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 获取缓存结果。
+     * @param key 查询键
+     * @param version 当前名册版本
+     * @return 结果列表；未命中或已失效时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    <T> List<T> get(String key, long version) {
+        CachedResult cached = results.get(key);
+        if (cached == null || cached.version != version) {
+            if (cached != null) {
+                results.remove(key);
+                totalElements -= cached.students.size();
+                ServiceEvents.evicted("query", "版本过期", kindOf(key), 1);
+            }
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return (List<T>) cached.students;
+    }
+
+    /**
+     * 缓存结果，按 LRU 淘汰到查询数与元素总数都不超过上限。
+     * @param key 查询键
+     * @param version 生成结果时的名册版本
+     * @param students 只读结果；元素数超过上限时不缓存
+     */
+    void put(String key, long version, List<?> students) {
+        CachedResult previous = results.remove(key);
+        if (previous != null) {
+            totalElements -= previous.students.size();
+        }
+        if (students.size() > maxElements) {
+            return;
+        }
+        results.put(key, new CachedResult(version, students));
+        totalElements += students.size();
+        Iterator<Map.Entry<String, CachedResult>> eldest = results.entrySet().iterator();
+        while (results.size() > capacity || totalElements > maxElements) { // 新结果排在最后，不会被淘汰
+            boolean overCapacity = results.size() > capacity;
+            Map.Entry<String, CachedResult> entry = eldest.next();
+            totalElements -= entry.getValue().students.size();
+            eldest.remove();
+            ServiceEvents.evicted("query", overCapacity ? "容量淘汰" : "元素总数淘汰", kindOf(entry.getKey()), 1);
+        }
+    }
+
+    void clear() {
+        if (!results.isEmpty()) {
+            ServiceEvents.evicted("query", "清空", null, results.size());
+        }
+        results.clear();
+        totalElements = 0;
+    }
+
+    private static String kindOf(String key) {
+        int end = key.indexOf('\u0000');
+        return end < 0 ? key : key.substring(0, end);
+    }
+
+    int size() { return results.size(); }
+    long getTotalElements() { return totalElements; }
+    long getHitCount() { return hitCount; }
+    long getMissCount() { return missCount; }
+}
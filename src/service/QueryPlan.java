@@ -0,0 +1,109 @@
+package service;
+
+import model.Student;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 组合查询的执行计划，由 {@link QueryPlanner} 生成。
+ */
+public class QueryPlan {
+    /**
+     * 数据访问方式。
+     */
+    public enum AccessPath {
+        PRIMARY_KEY("主键查找"),
+        INDEX_SCAN("索引扫描"),
+        COURSE_RANGE("课程成绩范围扫描"),
+        FULL_SCAN("全表扫描");
+
+        private final String description;
+
+        AccessPath(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() { return description; }
+    }
+
+    final AccessPath accessPath;
+    final SecondaryIndex index;          // 仅 INDEX_SCAN 使用
+    final String accessKey;              // 主键、索引键或课程条件
+    final CourseRegistry.SortedColumn column; // 仅 COURSE_RANGE 使用，null 表示没有学生选修该课程
+    final int columnFrom;                // COURSE_RANGE 在有序成绩列中的范围 [columnFrom, columnTo)
+    final int columnTo;
+    final int estimatedRows;
+    final Predicate<Student> residual;   // 访问路径之外的剩余条件，null 表示无
+    final List<String> residualDescriptions;
+    final Comparator<Student> comparator; // null 表示不排序
+    final List<StudentQuery.SortKey> sortKeys;
+    final int limit;
+    final boolean topK;                  // 排序且候选多于 limit 时用堆做 Top-K，否则全量排序
+
+    QueryPlan(AccessPath accessPath, SecondaryIndex index, String accessKey,
+              CourseRegistry.SortedColumn column, int columnFrom, int columnTo, int estimatedRows,
+              Predicate<Student> residual, List<String> residualDescriptions,
+              Comparator<Student> comparator, List<StudentQuery.SortKey> sortKeys, int limit) {
+        this.accessPath = accessPath;
+        this.index = index;
+        this.accessKey = accessKey;
+        this.column = column;
+        this.columnFrom = columnFrom;
+        this.columnTo = columnTo;
+        this.estimatedRows = estimatedRows;
+        this.residual = residual;
+        this.residualDescriptions = residualDescriptions;
+        this.comparator = comparator;
+        this.sortKeys = sortKeys;
+        this.limit = limit;
+        this.topK = comparator != null && limit > 0 && estimatedRows > limit; // 各访问路径的预计行数即候选数
+    }
+
+    public AccessPath getAccessPath() { return accessPath; }
+    public int getEstimatedRows() { return estimatedRows; }
+    public int getLimit() { return limit; }
+    public boolean isTopK() { return topK; }
+
+    /**
+     * 返回执行计划的文本表示 (EXPLAIN)。
+     * @return 多行计划说明，由外到内依次为 限制、排序、过滤、访问
+     */
+    public String explain() {
+        StringBuilder sb = new StringBuilder("执行计划:\n");
+        String indent = "  ";
+        if (limit > 0) {
+            sb.append(indent).append("-> 取前 ").append(limit).append(" 条")
+              .append(topK ? " (容量 " + limit + " 的堆, Top-K)"
+                      : comparator != null ? " (候选不超过 " + limit + " 条, 全量排序)" : " (提前终止)").append('\n');
+            indent += "  ";
+        }
+        if (comparator != null) {
+            sb.append(indent).append("-> 排序: ");
+            for (int i = 0; i < sortKeys.size(); i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(sortKeys.get(i));
+            }
+            sb.append('\n');
+            indent += "  ";
+        }
+        if (residual != null) {
+            sb.append(indent).append("-> 过滤: ").append(String.join(" AND ", residualDescriptions)).append('\n');
+            indent += "  ";
+        }
+        sb.append(indent).append("-> ").append(accessPath.getDescription());
+        if (accessPath == AccessPath.INDEX_SCAN) {
+            sb.append(' ').append(index.getName()).append(" [").append(accessKey).append(']');
+        } else if (accessPath == AccessPath.PRIMARY_KEY || accessPath == AccessPath.COURSE_RANGE) {
+            sb.append(" [").append(accessKey).append(']');
+        }
+        sb.append(" (预计 ").append(estimatedRows).append(" 行)");
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+}
@@ -0,0 +1,305 @@
+package service;
+
+import model.Graduate;
+import model.Student;
+import model.Undergraduate;
+import utils.TopK;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * 组合查询规划器。
+ * 在主键、可用的二级索引与课程成绩范围中选择预计行数最少的访问路径，其余条件编译为谓词链在扫描时求值。
+ * 课程成绩范围在课程登记表的有序成绩列 (与按课程成绩排序共用，见 {@link CourseRegistry#getSortedColumn}) 上二分查找，
+ * 行数是精确的；索引相同行数时优先使用二级索引。
+ * 同时指定排序与 limit 且候选多于 limit 时使用容量为 limit 的堆做 Top-K，而不是全量排序。
+ * 无论选择哪条访问路径，候选学生都按名册顺序产生，结果 (包括排序并列时的先后与 limit 截取) 与访问路径无关。
+ */
+class QueryPlanner {
+    private final Map<String, Student> students;
+    private final Function<String, Student> reader;
+    private final ToLongFunction<String> rosterOrder;
+    private final CourseRegistry courseRegistry;
+    private final List<IndexedField> indexedFields = new ArrayList<>();
+
+    /**
+     * 可用于访问路径的索引字段。
+     */
+    private static final class IndexedField {
+        final SecondaryIndex index;
+        final Function<StudentQuery, String> valueOf;
+
+        IndexedField(SecondaryIndex index, Function<StudentQuery, String> valueOf) {
+            this.index = index;
+            this.valueOf = valueOf;
+        }
+    }
+
+    /**
+     * 构造函数。
+     * @param students 学号 → 学生
+     * @param reader 索引扫描按学号读取学生 (不填充存储的缓存)，不存在时返回 null
+     * @param rosterOrder 学号 → 名册顺序号，索引扫描按它排列候选
+     * @param courseRegistry 课程登记表，课程成绩范围扫描使用
+     * @param classIndex 班级索引
+     * @param supervisorIndex 导师索引
+     */
+    QueryPlanner(Map<String, Student> students, Function<String, Student> reader, ToLongFunction<String> rosterOrder,
+                 CourseRegistry courseRegistry, SecondaryIndex classIndex, SecondaryIndex supervisorIndex) {
+        this.students = students;
+        this.reader = reader;
+        this.rosterOrder = rosterOrder;
+        this.courseRegistry = courseRegistry;
+        indexedFields.add(new IndexedField(classIndex, StudentQuery::getClassName));
+        indexedFields.add(new IndexedField(supervisorIndex, StudentQuery::getSupervisor));
+    }
+
+    /**
+     * 生成执行计划。
+     * @param query 组合查询
+     * @return 执行计划
+     */
+    QueryPlan plan(StudentQuery query) {
+        QueryPlan.AccessPath accessPath = QueryPlan.AccessPath.FULL_SCAN;
+        SecondaryIndex chosenIndex = null;
+        String accessKey = null;
+        StudentQuery.CourseCondition chosenCondition = null;
+        CourseRegistry.SortedColumn column = null;
+        int columnFrom = 0;
+        int columnTo = 0;
+        int estimatedRows = students.size();
+
+        if (query.getStudentId() != null) {
+            accessPath = QueryPlan.AccessPath.PRIMARY_KEY;
+            accessKey = query.getStudentId();
+            estimatedRows = students.containsKey(accessKey) ? 1 : 0;
+        } else {
+            for (IndexedField field : indexedFields) {
+                String value = field.valueOf.apply(query);
+                if (value == null) {
+                    continue;
+                }
+                int rows = field.index.count(value);
+                if (chosenIndex == null || rows < estimatedRows) {
+                    chosenIndex = field.index;
+                    accessKey = value;
+                    estimatedRows = rows;
+                }
+            }
+            if (chosenIndex != null) {
+                accessPath = QueryPlan.AccessPath.INDEX_SCAN;
+            }
+            for (StudentQuery.CourseCondition condition : query.getCourseConditions()) {
+                CourseRegistry.SortedColumn candidate = courseRegistry.getSortedColumn(condition.getCourse());
+                int[] range = candidate == null ? new int[2] : range(candidate, condition);
+                if (range[1] - range[0] < estimatedRows) {
+                    accessPath = QueryPlan.AccessPath.COURSE_RANGE;
+                    chosenIndex = null;
+                    chosenCondition = condition;
+                    accessKey = condition.toString();
+                    column = candidate;
+                    columnFrom = range[0];
+                    columnTo = range[1];
+                    estimatedRows = range[1] - range[0];
+                }
+            }
+        }
+
+        List<Predicate<Student>> predicates = new ArrayList<>();
+        List<String> descriptions = new ArrayList<>();
+        if ("graduate".equals(query.getType())) {
+            predicates.add(s -> s instanceof Graduate);
+            descriptions.add("type = graduate");
+        } else if ("undergraduate".equals(query.getType())) {
+            predicates.add(s -> s instanceof Undergraduate);
+            descriptions.add("type = undergraduate");
+        }
+        // 访问路径已保证的条件不再重复求值
+        if (query.getClassName() != null && !isAccessKey(chosenIndex, "idx_class")) {
+            String expected = SecondaryIndex.normalize(query.getClassName());
+            predicates.add(s -> s.getClassName().trim().toLowerCase().equals(expected));
+            descriptions.add("class = " + query.getClassName());
+        }
+        if (query.getSupervisor() != null && !isAccessKey(chosenIndex, "idx_supervisor")) {
+            String expected = SecondaryIndex.normalize(query.getSupervisor());
+            predicates.add(s -> s instanceof Graduate && ((Graduate) s).getSupervisor().trim().toLowerCase().equals(expected));
+            descriptions.add("supervisor = " + query.getSupervisor());
+        }
+        if (query.getMajor() != null) {
+            String expected = SecondaryIndex.normalize(query.getMajor());
+            predicates.add(s -> s instanceof Undergraduate && ((Undergraduate) s).getMajor().trim().toLowerCase().equals(expected));
+            descriptions.add("major = " + query.getMajor());
+        }
+        if (query.getNameContains() != null) {
+            String expected = query.getNameContains().toLowerCase();
+            predicates.add(s -> s.getName().toLowerCase().contains(expected));
+            descriptions.add("name 包含 " + query.getNameContains());
+        }
+        for (StudentQuery.CourseCondition condition : query.getCourseConditions()) {
+            if (condition == chosenCondition) {
+                continue;
+            }
+            predicates.add(compile(condition));
+            descriptions.add(condition.toString());
+        }
+
+        Comparator<Student> comparator = null;
+        for (StudentQuery.SortKey sortKey : query.getSortKeys()) {
+            Comparator<Student> next = comparatorFor(sortKey.getField());
+            if (sortKey.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+
+        return new QueryPlan(accessPath, chosenIndex, accessKey, column, columnFrom, columnTo, estimatedRows,
+                combine(predicates), descriptions, comparator, query.getSortKeys(), query.getLimit());
+    }
+
+    /**
+     * 执行计划。
+     * @param plan 执行计划
+     * @return 结果列表；未排序时按名册顺序返回
+     */
+    List<Student> execute(QueryPlan plan) {
+        Iterable<Student> source = source(plan);
+        Predicate<Student> residual = plan.residual;
+        int limit = plan.limit;
+
+        if (plan.comparator == null) {
+            List<Student> results = new ArrayList<>();
+            for (Student student : source) {
+                if (residual == null || residual.test(student)) {
+                    results.add(student);
+                    if (limit > 0 && results.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+            return results;
+        }
+        if (!plan.topK) { // 候选不超过 limit 时全部入选，直接排序
+            List<Student> results = new ArrayList<>();
+            for (Student student : source) {
+                if (residual == null || residual.test(student)) {
+                    results.add(student);
+                }
+            }
+            results.sort(plan.comparator);
+            return limit > 0 && results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+        }
+
+        TopK<Student> topK = new TopK<>(plan.comparator, limit);
+        for (Student student : source) {
+            if (residual == null || residual.test(student)) {
+                topK.offer(student);
+            }
+        }
+        return topK.toSortedList();
+    }
+
+    /**
+     * 根据排序字段生成比较器。
+     * @param field 排序字段 (id、name、age、totalscore、course:课程名)
+     * @return 升序比较器
+     */
+    static Comparator<Student> comparatorFor(String field) {
+        String lower = field.toLowerCase();
+        if (lower.equals("id")) {
+            return Comparator.comparing(Student::getStudentId);
+        } else if (lower.equals("name")) {
+            return Comparator.comparing(Student::getName);
+        } else if (lower.equals("age")) {
+            return Comparator.comparingInt(Student::getAge);
+        } else if (lower.equals("totalscore")) {
+            return Comparator.comparingDouble(Student::calculateTotalScore);
+        } else if (lower.startsWith("course:")) {
+            String course = field.substring("course:".length()).trim();
+            return Comparator.comparingDouble(s -> s.getScore(course));
+        }
+        throw new IllegalArgumentException("无效的排序键 '" + field + "'");
+    }
+
+    private Iterable<Student> source(QueryPlan plan) {
+        switch (plan.accessPath) {
+            case PRIMARY_KEY: {
+                Student student = students.get(plan.accessKey);
+                return student == null ? Collections.emptyList() : Collections.singletonList(student);
+            }
+            case INDEX_SCAN:
+                return readInRosterOrder(new ArrayList<>(plan.index.lookup(plan.accessKey)));
+            case COURSE_RANGE:
+                return plan.column == null ? Collections.emptyList()
+                        : readInRosterOrder(new ArrayList<>(Arrays.asList(plan.column.studentIds).subList(plan.columnFrom, plan.columnTo)));
+            default:
+                return students.values();
+        }
+    }
+
+    /**
+     * 按名册顺序读取学生 (索引与成绩列中的学号不按名册顺序排列)。
+     * @param ids 学号，会被重新排序
+     * @return 仍存在的学生
+     */
+    private List<Student> readInRosterOrder(List<String> ids) {
+        ids.sort(Comparator.comparingLong(rosterOrder));
+        List<Student> candidates = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Student student = reader.apply(id);
+            if (student != null) {
+                candidates.add(student);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 课程条件在有序成绩列中对应的范围，与 {@link #compile} 的谓词选出同样的学生。
+     * @return {起始位置, 结束位置}，左闭右开
+     */
+    private static int[] range(CourseRegistry.SortedColumn column, StudentQuery.CourseCondition condition) {
+        double value = condition.getValue();
+        switch (condition.getOperator()) {
+            case ">":  return new int[] {column.upperBound(value), column.size()};
+            case ">=": return new int[] {column.lowerBound(value), column.size()};
+            case "<":  return new int[] {0, column.lowerBound(value)};
+            case "<=": return new int[] {0, column.upperBound(value)};
+            default:   return new int[] {column.lowerBound(value), column.upperBound(value)};
+        }
+    }
+
+    private static boolean isAccessKey(SecondaryIndex chosenIndex, String indexName) {
+        return chosenIndex != null && chosenIndex.getName().equals(indexName);
+    }
+
+    private static Predicate<Student> compile(StudentQuery.CourseCondition condition) {
+        String course = condition.getCourse();
+        double value = condition.getValue();
+        switch (condition.getOperator()) {
+            case ">":  return s -> s.getScores().containsKey(course) && s.getScore(course) > value;
+            case ">=": return s -> s.getScores().containsKey(course) && s.getScore(course) >= value;
+            case "<":  return s -> s.getScores().containsKey(course) && s.getScore(course) < value;
+            case "<=": return s -> s.getScores().containsKey(course) && s.getScore(course) <= value;
+            default:   return s -> s.getScores().containsKey(course) && s.getScore(course) == value;
+        }
+    }
+
+    private static Predicate<Student> combine(List<Predicate<Student>> predicates) {
+        if (predicates.isEmpty()) {
+            return null;
+        }
+        Predicate<Student> combined = predicates.get(0);
+        for (int i = 1; i < predicates.size(); i++) {
+            combined = combined.and(predicates.get(i));
+        }
+        return combined;
+    }
+}
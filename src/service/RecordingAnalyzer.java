@@ -0,0 +1,266 @@
+package service;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 汇总 JFR 记录文件：按操作 (及查询类型) 统计服务调用的延迟分位数与分配量，并列出索引建立与缓存淘汰。
+ * <p>
+ * 分配量来自分配采样事件 (jdk.ObjectAllocationSample，JDK 11-15 为 TLAB 分配事件)：
+ * 采样发生在某线程的一次服务调用期间，即计入该调用 (调用事件嵌套时计入最内层的一个)；
+ * 采样权重是 JVM 对两次采样之间分配字节数的估计，调用次数较多时合计值接近实际分配量。
+ */
+public class RecordingAnalyzer {
+    private static final String ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+    private static final String ALLOCATION_IN_NEW_TLAB = "jdk.ObjectAllocationInNewTLAB";
+    private static final String ALLOCATION_OUTSIDE_TLAB = "jdk.ObjectAllocationOutsideTLAB";
+    private static final int TOP_ALLOCATED_TYPES = 10;
+
+    private final Map<String, OperationStats> operations = new TreeMap<>();
+    private final Map<Long, List<Interval>> intervalsByThread = new HashMap<>();
+    private final List<Allocation> allocations = new ArrayList<>();
+    private final List<String> indexBuilds = new ArrayList<>();
+    private final Map<String, long[]> evictions = new TreeMap<>(); // 缓存/原因/种类 → {次数, 条目数}
+
+    private static final class OperationStats {
+        long[] durations = new long[16];
+        int count;
+        int failures;
+        long resultTotal;
+        long allocatedBytes;
+
+        void add(long durationNanos, int resultSize, boolean success) {
+            if (count == durations.length) {
+                durations = Arrays.copyOf(durations, count * 2);
+            }
+            durations[count++] = durationNanos;
+            resultTotal += resultSize;
+            if (!success) {
+                failures++;
+            }
+        }
+
+        long percentile(double percentile) {
+            int rank = (int) Math.ceil(percentile / 100 * count);
+            return durations[Math.max(0, Math.min(count - 1, rank - 1))];
+        }
+    }
+
+    private static final class Interval {
+        final long start;
+        final long end;
+        final OperationStats stats;
+
+        Interval(long start, long end, OperationStats stats) {
+            this.start = start;
+            this.end = end;
+            this.stats = stats;
+        }
+    }
+
+    private static final class Allocation {
+        final long threadId;
+        final long time;
+        final long bytes;
+        final String type;
+
+        Allocation(long threadId, long time, long bytes, String type) {
+            this.threadId = threadId;
+            this.time = time;
+            this.bytes = bytes;
+            this.type = type;
+        }
+    }
+
+    private RecordingAnalyzer() {}
+
+    /**
+     * 读取记录文件并生成汇总报告。
+     * @param recording JFR 记录文件
+     * @return 报告文本
+     * @throws IOException 读取失败或文件不是 JFR 记录时抛出
+     */
+    public static String analyze(Path recording) throws IOException {
+        RecordingAnalyzer analyzer = new RecordingAnalyzer();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                analyzer.accept(file.readEvent());
+            }
+        }
+        return analyzer.report();
+    }
+
+    private void accept(RecordedEvent event) {
+        String name = event.getEventType().getName();
+        switch (name) {
+            case ServiceEvents.OPERATION: {
+                String key = event.getString("operation");
+                String criteriaType = event.getString("criteriaType");
+                if (criteriaType != null) {
+                    key += "/" + criteriaType;
+                }
+                OperationStats stats = operations.computeIfAbsent(key, k -> new OperationStats());
+                stats.add(event.getDuration().toNanos(), event.getInt("resultSize"), event.getBoolean("success"));
+                RecordedThread thread = event.getThread();
+                if (thread != null) {
+                    intervalsByThread.computeIfAbsent(thread.getId(), k -> new ArrayList<>())
+                            .add(new Interval(nanos(event.getStartTime()), nanos(event.getEndTime()), stats));
+                }
+                break;
+            }
+            case ServiceEvents.INDEX_BUILD:
+                indexBuilds.add(String.format("%-10s %10d %12.1f", event.getString("mode"), event.getInt("studentCount"),
+                        event.getDuration().toNanos() / 1e6));
+                break;
+            case ServiceEvents.CACHE_EVICTION: {
+                String kind = event.getString("kind");
+                String key = event.getString("cache") + " / " + event.getString("reason") + (kind == null ? "" : " / " + kind);
+                long[] total = evictions.computeIfAbsent(key, k -> new long[2]);
+                total[0]++;
+                total[1] += event.getInt("entries");
+                break;
+            }
+            case ALLOCATION_SAMPLE:
+                addAllocation(event, event.getLong("weight"));
+                break;
+            case ALLOCATION_IN_NEW_TLAB:
+                addAllocation(event, event.getLong("tlabSize"));
+                break;
+            case ALLOCATION_OUTSIDE_TLAB:
+                addAllocation(event, event.getLong("allocationSize"));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void addAllocation(RecordedEvent event, long bytes) {
+        RecordedThread thread = event.getThread();
+        if (thread == null) {
+            return;
+        }
+        String type = event.getClass("objectClass") == null ? "?" : event.getClass("objectClass").getName();
+        allocations.add(new Allocation(thread.getId(), nanos(event.getStartTime()), bytes, type));
+    }
+
+    private static long nanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    /**
+     * 把每个分配采样归到同一线程上包含该时刻的服务调用 (同一线程的调用不重叠)。
+     * @return 未归属任何调用的分配字节数
+     */
+    private long attributeAllocations() {
+        Map<Long, long[]> startsByThread = new HashMap<>();
+        Map<Long, long[]> maxEndsByThread = new HashMap<>();
+        for (Map.Entry<Long, List<Interval>> entry : intervalsByThread.entrySet()) {
+            List<Interval> intervals = entry.getValue();
+            intervals.sort((a, b) -> Long.compare(a.start, b.start)); // 事件按块写出，块内不保证时间顺序
+            long[] starts = new long[intervals.size()];
+            long[] maxEnds = new long[intervals.size()]; // 前 i + 1 个调用中最晚的结束时刻
+            for (int i = 0; i < starts.length; i++) {
+                starts[i] = intervals.get(i).start;
+                maxEnds[i] = Math.max(intervals.get(i).end, i > 0 ? maxEnds[i - 1] : Long.MIN_VALUE);
+            }
+            startsByThread.put(entry.getKey(), starts);
+            maxEndsByThread.put(entry.getKey(), maxEnds);
+        }
+        long unattributed = 0;
+        for (Allocation allocation : allocations) {
+            long[] starts = startsByThread.get(allocation.threadId);
+            Interval interval = null;
+            if (starts != null) {
+                List<Interval> intervals = intervalsByThread.get(allocation.threadId);
+                long[] maxEnds = maxEndsByThread.get(allocation.threadId);
+                int position = Arrays.binarySearch(starts, allocation.time);
+                int index = position >= 0 ? position : -position - 2; // 最后一个开始时刻不晚于采样时刻的调用
+                while (index + 1 < starts.length && starts[index + 1] == allocation.time) {
+                    index++; // 开始时刻相同的调用，binarySearch 不保证命中最后一个
+                }
+                // 向前找第一个包含采样时刻的调用 (嵌套时即最内层)；更早的调用都已结束时停止
+                for (; index >= 0 && maxEnds[index] >= allocation.time; index--) {
+                    if (allocation.time <= intervals.get(index).end) {
+                        interval = intervals.get(index);
+                        break;
+                    }
+                }
+            }
+            if (interval == null) {
+                unattributed += allocation.bytes;
+            } else {
+                interval.stats.allocatedBytes += allocation.bytes;
+            }
+        }
+        return unattributed;
+    }
+
+    private String report() {
+        long unattributed = attributeAllocations();
+        StringBuilder sb = new StringBuilder();
+        sb.append("--- 服务调用 ---\n");
+        if (operations.isEmpty()) {
+            sb.append("记录中没有服务调用事件 (是否使用了 scripts/studentms.jfc？)\n");
+        } else {
+            sb.append(String.format("%-16s %8s %6s %10s %10s %10s %10s %10s %12s %12s%n", "操作", "次数", "失败",
+                    "p50(µs)", "p95(µs)", "p99(µs)", "最大(µs)", "平均结果", "分配(KB)", "每次(B)"));
+            for (Map.Entry<String, OperationStats> entry : operations.entrySet()) {
+                OperationStats stats = entry.getValue();
+                Arrays.sort(stats.durations, 0, stats.count);
+                sb.append(String.format("%-16s %8d %6d %10.1f %10.1f %10.1f %10.1f %10.1f %12.1f %12.0f%n", entry.getKey(),
+                        stats.count, stats.failures, stats.percentile(50) / 1e3, stats.percentile(95) / 1e3,
+                        stats.percentile(99) / 1e3, stats.durations[stats.count - 1] / 1e3,
+                        (double) stats.resultTotal / stats.count, stats.allocatedBytes / 1024.0,
+                        (double) stats.allocatedBytes / stats.count));
+            }
+        }
+
+        sb.append("\n--- 分配 ---\n");
+        if (allocations.isEmpty()) {
+            sb.append("记录中没有分配采样事件。\n");
+        } else {
+            long total = 0;
+            Map<String, Long> byType = new HashMap<>();
+            for (Allocation allocation : allocations) {
+                total += allocation.bytes;
+                byType.merge(allocation.type, allocation.bytes, Long::sum);
+            }
+            sb.append(String.format("采样 %d 次, 估计分配 %.1f MB, 其中服务调用之外 %.1f MB%n",
+                    allocations.size(), total / 1048576.0, unattributed / 1048576.0));
+            List<Map.Entry<String, Long>> types = new ArrayList<>(byType.entrySet());
+            types.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+            for (Map.Entry<String, Long> entry : types.subList(0, Math.min(TOP_ALLOCATED_TYPES, types.size()))) {
+                sb.append(String.format("  %-40s %10.1f KB %5.1f%%%n", entry.getKey(), entry.getValue() / 1024.0,
+                        100.0 * entry.getValue() / total));
+            }
+        }
+
+        sb.append("\n--- 建立索引 ---\n");
+        if (indexBuilds.isEmpty()) {
+            sb.append("无\n");
+        } else {
+            sb.append(String.format("%-10s %10s %12s%n", "方式", "学生人数", "耗时(ms)"));
+            indexBuilds.forEach(line -> sb.append(line).append('\n'));
+        }
+
+        sb.append("\n--- 缓存淘汰 ---\n");
+        if (evictions.isEmpty()) {
+            sb.append("无\n");
+        }
+        for (Map.Entry<String, long[]> entry : evictions.entrySet()) {
+            sb.append(String.format("%-30s 次数: %d, 条目: %d%n", entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,156 @@
+package service;
+
+import model.Address;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 地区索引：省份 → 城市 → 街道 → 学号集合，每一级都维护人数，地区人数统计不需要遍历名册。
+ * 键按 {@link SecondaryIndex#normalize} 规范化；缺失的组成部分归入空串键 (显示为 "未填写")。
+ */
+class RegionIndex {
+    static final String UNSPECIFIED = "未填写";
+
+    private final Node root = new Node("", false);
+
+    private static final class Node {
+        final String displayName; // 第一次出现时的原始写法 (去除首尾空白)
+        final Map<String, Node> children = new HashMap<>();
+        final Set<String> ids; // 仅街道级节点非空
+        int count;
+
+        Node(String displayName, boolean leaf) {
+            this.displayName = displayName;
+            this.ids = leaf ? new LinkedHashSet<>() : null;
+        }
+    }
+
+    void add(Address address, String studentId) {
+        String[] parts = parts(address);
+        Node node = root;
+        for (int level = 0; level < parts.length; level++) {
+            String display = parts[level] == null ? "" : parts[level].trim();
+            boolean leaf = level == parts.length - 1;
+            node = node.children.computeIfAbsent(key(parts[level]), k -> new Node(display, leaf));
+        }
+        if (!node.ids.add(studentId)) {
+            return;
+        }
+        node = root;
+        root.count++;
+        for (String part : parts) {
+            node = node.children.get(key(part));
+            node.count++;
+        }
+    }
+
+    void remove(Address address, String studentId) {
+        String[] parts = parts(address);
+        Node[] path = new Node[parts.length + 1];
+        path[0] = root;
+        for (int level = 0; level < parts.length; level++) {
+            path[level + 1] = path[level].children.get(key(parts[level]));
+            if (path[level + 1] == null) {
+                return;
+            }
+        }
+        if (!path[parts.length].ids.remove(studentId)) {
+            return;
+        }
+        for (int level = parts.length; level >= 0; level--) {
+            path[level].count--;
+            if (level > 0 && path[level].count == 0) {
+                path[level - 1].children.remove(key(parts[level - 1]));
+            }
+        }
+    }
+
+    /**
+     * 查找地区内的学号。
+     * @param province 省份
+     * @param city 城市，为 null 表示该省全部城市
+     * @param street 街道，为 null 表示该市全部街道 (city 为 null 时忽略)
+     * @return 只读学号集合 (同一街道内按加入顺序)
+     */
+    Set<String> lookup(String province, String city, String street) {
+        Node node = find(province, city, city == null ? null : street);
+        if (node == null) {
+            return Collections.emptySet();
+        }
+        if (node.ids != null) {
+            return Collections.unmodifiableSet(node.ids);
+        }
+        Set<String> ids = new LinkedHashSet<>(node.count * 2);
+        collect(node, ids);
+        return ids;
+    }
+
+    /**
+     * 地区人数。
+     * @param province 省份
+     * @param city 城市，为 null 表示该省全部
+     * @param street 街道，为 null 表示该市全部
+     * @return 人数
+     */
+    int count(String province, String city, String street) {
+        Node node = find(province, city, city == null ? null : street);
+        return node == null ? 0 : node.count;
+    }
+
+    /**
+     * 下一级地区的人数。
+     * @param province 省份，为 null 时返回各省人数
+     * @param city 城市，为 null 时返回该省各城市人数，否则返回该市各街道人数
+     * @return 地区名 → 人数 (按地区名排序)
+     */
+    Map<String, Integer> childCounts(String province, String city) {
+        Node node = province == null ? root : find(province, city, null);
+        Map<String, Integer> counts = new TreeMap<>();
+        if (node != null) {
+            for (Node child : node.children.values()) {
+                counts.merge(child.displayName.isEmpty() ? UNSPECIFIED : child.displayName, child.count, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    void clear() {
+        root.children.clear();
+        root.count = 0;
+    }
+
+    private Node find(String province, String city, String street) {
+        Node node = root.children.get(key(province));
+        if (node != null && city != null) {
+            node = node.children.get(key(city));
+            if (node != null && street != null) {
+                node = node.children.get(key(street));
+            }
+        }
+        return node;
+    }
+
+    private static void collect(Node node, Set<String> ids) {
+        if (node.ids != null) {
+            ids.addAll(node.ids);
+            return;
+        }
+        for (Node child : node.children.values()) {
+            collect(child, ids);
+        }
+    }
+
+    private static String[] parts(Address address) {
+        return new String[] {address.getProvince(), address.getCity(), address.getStreet()};
+    }
+
+    private static String key(String value) {
+        String key = SecondaryIndex.normalize(value);
+        return key == null ? "" : key;
+    }
+}
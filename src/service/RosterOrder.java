@@ -0,0 +1,123 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 名册顺序：为每个学号分配单调递增的顺序号 (与存储的遍历顺序一致)，并按顺序保留一份学号日志，
+ * 分块扫描 ({@link ChunkedScan}) 借助 {@link Cursor} 在两次写入之间逐段读取名册，不必一次复制全部学生。
+ * <p>
+ * 日志只追加：删除或换学号时旧条目留在原处，读取时用顺序号核对是否仍然有效。
+ * 日志写满时整理到新数组 (失效条目超过一半时丢弃它们，否则扩容)，已创建的游标继续读取旧数组，不受影响。
+ * 与服务一样不是线程安全的。
+ */
+class RosterOrder {
+    private final Map<String, Long> orders = new HashMap<>(); // 学号 → 顺序号
+    private String[] ids = new String[16];   // 按顺序号排列的学号日志
+    private long[] idOrders = new long[16];  // 日志条目对应的顺序号
+    private int count;
+    private long next;
+
+    /**
+     * 游标：遍历创建时日志中的学号，跳过此后被删除或换了学号的条目；创建后加入的学生不在其中。
+     */
+    final class Cursor {
+        private final String[] ids = RosterOrder.this.ids;
+        private final long[] idOrders = RosterOrder.this.idOrders;
+        private final int end = count;
+        private int position;
+
+        /**
+         * 读取下一段。
+         * @param max 本次最多检查的日志条目数
+         * @return 这一段中仍在名册中的学号 (可能为空)
+         */
+        List<String> next(int max) {
+            int stop = (int) Math.min(end, (long) position + max);
+            List<String> live = new ArrayList<>(stop - position);
+            for (; position < stop; position++) {
+                Long order = orders.get(ids[position]);
+                if (order != null && order == idOrders[position]) {
+                    live.add(ids[position]);
+                }
+            }
+            return live;
+        }
+
+        boolean hasNext() {
+            return position < end;
+        }
+    }
+
+    /**
+     * 为新加入名册的学号分配顺序号。
+     * @param studentId 学号
+     */
+    void assign(String studentId) {
+        if (count == ids.length) {
+            reorganize();
+        }
+        long order = next++;
+        orders.put(studentId, order);
+        ids[count] = studentId;
+        idOrders[count] = order;
+        count++;
+    }
+
+    void remove(String studentId) {
+        orders.remove(studentId);
+    }
+
+    /**
+     * 获取顺序号。
+     * @param studentId 名册中的学号
+     * @return 顺序号
+     */
+    long get(String studentId) {
+        return orders.get(studentId);
+    }
+
+    int size() {
+        return orders.size();
+    }
+
+    void clear() {
+        orders.clear();
+        ids = new String[16];
+        idOrders = new long[16];
+        count = 0;
+        next = 0;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * 日志写满时整理到新数组 (不修改旧数组，游标可能仍在读取)。
+     */
+    private void reorganize() {
+        if (orders.size() * 2 > count) {
+            ids = Arrays.copyOf(ids, count * 2);
+            idOrders = Arrays.copyOf(idOrders, count * 2);
+            return;
+        }
+        String[] liveIds = new String[Math.max(16, orders.size() * 2)];
+        long[] liveOrders = new long[liveIds.length];
+        int live = 0;
+        for (int i = 0; i < count; i++) {
+            Long order = orders.get(ids[i]);
+            if (order != null && order == idOrders[i]) {
+                liveIds[live] = ids[i];
+                liveOrders[live] = idOrders[i];
+                live++;
+            }
+        }
+        ids = liveIds;
+        idOrders = liveOrders;
+        count = live;
+    }
+}
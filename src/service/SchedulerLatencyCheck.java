@@ -0,0 +1,178 @@
+package service;
+
+import model.Address;
+import model.Student;
+import model.Undergraduate;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 调度器交互延迟检查：比较调度器空闲时与后台持续执行排序、Top-K、扫描和批量导入时，交互通道 (按学号查找) 的 p99 延迟。
+ * <p>
+ * 先在后台负载下执行一轮不计入结果的查找 (预热即时编译)，然后两个阶段按同样的节奏提交同样多的查找。
+ * 交互操作最多等待后台操作的一步 (见 {@link OperationScheduler})，一步的耗时与名册人数无关，
+ * 因此后台负载下的 p99 比空闲时多出的部分不超过 {@link #LATENCY_BUDGET_NANOS} 即通过。
+ * 由 scripts/check-scheduler.sh 调用 (Main --check-scheduler)。
+ */
+public final class SchedulerLatencyCheck {
+    private static final int LOOKUPS = 5_000;
+    private static final long LOOKUP_INTERVAL_NANOS = 200_000; // 每 0.2 ms 提交一次查找
+    private static final long LATENCY_BUDGET_NANOS = 2_000_000; // 后台负载允许增加的 p99 延迟
+    private static final int IMPORT_BATCHES = 4; // 每轮预先生成的导入批次数
+
+    private SchedulerLatencyCheck() {}
+
+    /**
+     * 检查结果。
+     */
+    public static final class Result {
+        private final int studentCount;
+        private final long idleP99Nanos;
+        private final long loadedP99Nanos;
+        private final int backgroundCompleted;
+
+        Result(int studentCount, long idleP99Nanos, long loadedP99Nanos, int backgroundCompleted) {
+            this.studentCount = studentCount;
+            this.idleP99Nanos = idleP99Nanos;
+            this.loadedP99Nanos = loadedP99Nanos;
+            this.backgroundCompleted = backgroundCompleted;
+        }
+
+        /**
+         * 是否通过：后台操作确实执行过，且 p99 延迟的增加不超过上限。
+         * @return 是否通过
+         */
+        public boolean passed() {
+            return backgroundCompleted > 0 && loadedP99Nanos - idleP99Nanos <= LATENCY_BUDGET_NANOS;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("名册 %d 人, 交互 p99: 空闲 %.2f ms, 后台负载 %.2f ms (允许增加 %.2f ms), 期间完成后台操作 %d 个",
+                    studentCount, idleP99Nanos / 1e6, loadedP99Nanos / 1e6, LATENCY_BUDGET_NANOS / 1e6, backgroundCompleted);
+        }
+    }
+
+    /**
+     * 建立名册并执行两个阶段的检查。检查期间服务打印的信息被丢弃。
+     * @param studentCount 初始名册人数
+     * @return 检查结果
+     */
+    public static Result run(int studentCount) {
+        if (studentCount <= 0) {
+            throw new IllegalArgumentException("学生数必须为正数");
+        }
+        PrintStream originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            StudentManagementSystem sms = new StudentManagementSystem();
+            for (Student student : newStudents("S", studentCount)) {
+                sms.addStudent(student);
+            }
+            Random random = new Random(42);
+            try (OperationScheduler scheduler = new OperationScheduler(sms)) {
+                issueLookups(scheduler, random, studentCount, new Background(scheduler, studentCount));
+            }
+            long idleP99;
+            try (OperationScheduler scheduler = new OperationScheduler(sms)) {
+                issueLookups(scheduler, random, studentCount, null);
+                idleP99 = scheduler.getLatencyPercentileNanos(OperationScheduler.Lane.INTERACTIVE, 99);
+            }
+            long loadedP99;
+            int backgroundCompleted;
+            try (OperationScheduler scheduler = new OperationScheduler(sms)) {
+                Background background = new Background(scheduler, studentCount);
+                issueLookups(scheduler, random, studentCount, background);
+                loadedP99 = scheduler.getLatencyPercentileNanos(OperationScheduler.Lane.INTERACTIVE, 99);
+                backgroundCompleted = background.completed;
+            }
+            return new Result(studentCount, idleP99, loadedP99, backgroundCompleted);
+        } finally {
+            System.setOut(originalOut);
+        }
+    }
+
+    private static void issueLookups(OperationScheduler scheduler, Random random, int studentCount, Background background) {
+        List<CompletableFuture<?>> lookups = new ArrayList<>(LOOKUPS);
+        long next = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (background != null) {
+                background.keepBusy();
+            }
+            long now;
+            while ((now = System.nanoTime()) < next) {
+                LockSupport.parkNanos(next - now);
+            }
+            lookups.add(scheduler.findStudentById("S" + random.nextInt(studentCount)));
+            next += LOOKUP_INTERVAL_NANOS;
+        }
+        lookups.forEach(CompletableFuture::join);
+    }
+
+    /**
+     * 后台负载：排序、Top-K、扫描、批量导入各保持一个在排队或执行中，完成后立即提交下一个。
+     * 导入的学生预先生成 (单核机器上提交线程现场生成会与工作线程争抢处理器)，用完后不再提交导入。
+     */
+    private static final class Background {
+        private static int batchSerial; // 导入批次的学号前缀，各轮不重复
+
+        private final OperationScheduler scheduler;
+        private final List<List<Student>> importBatches = new ArrayList<>();
+        private final List<CompletableFuture<?>> pending = new ArrayList<>();
+        int completed;
+
+        Background(OperationScheduler scheduler, int studentCount) {
+            this.scheduler = scheduler;
+            for (int i = 0; i < IMPORT_BATCHES; i++) {
+                importBatches.add(newStudents("N" + (batchSerial++) + "-", Math.max(1, studentCount / 4)));
+            }
+            for (int kind = 0; kind < 4; kind++) {
+                pending.add(submit(kind));
+            }
+        }
+
+        void keepBusy() {
+            for (int kind = 0; kind < pending.size(); kind++) {
+                CompletableFuture<?> future = pending.get(kind);
+                if (future != null && future.isDone()) {
+                    future.join(); // 后台操作出错时让检查失败
+                    completed++;
+                    pending.set(kind, submit(kind));
+                }
+            }
+        }
+
+        /**
+         * @return 提交的操作；导入批次已用完时为 null
+         */
+        private CompletableFuture<?> submit(int kind) {
+            switch (kind) {
+                case 0:
+                    return scheduler.sortStudents("totalScore", false);
+                case 1:
+                    return scheduler.findTopStudents("course:Java", 10, false);
+                case 2:
+                    return scheduler.searchStudents("学生1", "name");
+                default:
+                    return importBatches.isEmpty() ? null : scheduler.importStudents(importBatches.remove(importBatches.size() - 1));
+            }
+        }
+    }
+
+    private static List<Student> newStudents(String idPrefix, int count) {
+        List<Student> students = new ArrayList<>(count);
+        Address address = Address.of("浙江", "杭州", "文一路", "1");
+        for (int i = 0; i < count; i++) {
+            Student student = new Undergraduate(idPrefix + i, "学生" + i, 18 + i % 10, "班级" + (i % 50), address, "计算机");
+            student.getScores().put("Java", (double) (40 + i * 7919 % 61));
+            students.add(student);
+        }
+        return students;
+    }
+}
@@ -0,0 +1,64 @@
+package service;
+
+/**
+ * 一门课程 (可限定班级) 的成绩统计，由课程登记表的成绩列直接计算。
+ */
+public class ScoreStats {
+    /** 分数段宽度：0-9、10-19、...、90-100 共 10 段。 */
+    public static final int BUCKET_WIDTH = 10;
+    public static final int BUCKET_COUNT = 10;
+
+    private final String course;
+    private final String className;
+    private final int count;
+    private final double sum;
+    private final double min;
+    private final double max;
+    private final double threshold;
+    private final int belowThreshold;
+    private final int[] buckets;
+
+    ScoreStats(String course, String className, int count, double sum, double min, double max,
+               double threshold, int belowThreshold, int[] buckets) {
+        this.course = course;
+        this.className = className;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.threshold = threshold;
+        this.belowThreshold = belowThreshold;
+        this.buckets = buckets;
+    }
+
+    public String getCourse() { return course; }
+
+    /**
+     * 获取统计范围的班级。
+     * @return 班级；统计全部选课学生时为 null
+     */
+    public String getClassName() { return className; }
+    public int getCount() { return count; }
+    public double getSum() { return sum; }
+
+    /**
+     * 获取平均分。
+     * @return 平均分；没有选课学生时为 NaN
+     */
+    public double getAverage() { return count == 0 ? Double.NaN : sum / count; }
+    public double getMin() { return min; }
+    public double getMax() { return max; }
+    public double getThreshold() { return threshold; }
+
+    /**
+     * 获取成绩低于阈值 (不含) 的人数。
+     * @return 人数
+     */
+    public int getBelowThreshold() { return belowThreshold; }
+
+    /**
+     * 获取分数段人数：第 k 段为 [k × 10, (k + 1) × 10)，100 分计入最后一段。
+     * @return 各段人数 (副本)
+     */
+    public int[] getBuckets() { return buckets.clone(); }
+}
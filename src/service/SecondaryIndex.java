@@ -0,0 +1,82 @@
+package service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 二级索引：规范化的字段值 → 学号集合。
+ * 键统一去除首尾空白并转为小写，查询时按相同规则规范化。
+ */
+class SecondaryIndex {
+    private final String name;
+    private final Map<String, Set<String>> postings = new HashMap<>();
+
+    SecondaryIndex(String name) {
+        this.name = name;
+    }
+
+    static String normalize(String value) {
+        return value == null ? null : value.trim().toLowerCase();
+    }
+
+    void add(String value, String studentId) {
+        String key = normalize(value);
+        if (key == null || key.isEmpty()) {
+            return;
+        }
+        postings.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(studentId);
+    }
+
+    void remove(String value, String studentId) {
+        String key = normalize(value);
+        if (key == null) {
+            return;
+        }
+        Set<String> ids = postings.get(key);
+        if (ids != null) {
+            ids.remove(studentId);
+            if (ids.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 查找学号集合。
+     * @param value 字段值 (未规范化)
+     * @return 只读学号集合，不存在时为空集合
+     */
+    Set<String> lookup(String value) {
+        Set<String> ids = postings.get(normalize(value));
+        return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    int count(String value) {
+        Set<String> ids = postings.get(normalize(value));
+        return ids == null ? 0 : ids.size();
+    }
+
+    /**
+     * 所有仍有学生的键。
+     * @return 规范化的键
+     */
+    Set<String> keys() {
+        Set<String> keys = new LinkedHashSet<>();
+        postings.forEach((key, ids) -> {
+            if (!ids.isEmpty()) {
+                keys.add(key);
+            }
+        });
+        return keys;
+    }
+
+    void clear() {
+        postings.clear();
+    }
+
+    String getName() { return name; }
+    int distinctKeys() { return postings.size(); }
+}
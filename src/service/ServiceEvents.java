@@ -0,0 +1,161 @@
+package service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder 自定义事件。
+ * <p>
+ * Flight Recorder 尚未初始化 (启动参数没有 -XX:StartFlightRecording，也没有用 jcmd 开始过记录) 时不创建事件对象：
+ * 第一次加载事件类会初始化 Flight Recorder，单核机器上要花几百毫秒，会拖慢启动后的第一次查询。
+ * 此后用 jcmd 开始记录时，下一次调用起就会产生事件。开启记录的方法见 scripts/run-profiled.sh 与 scripts/studentms.jfc，
+ * 记录文件可用 {@link RecordingAnalyzer} 汇总。
+ * <p>
+ * Flight Recorder 已初始化时，即使事件被配置关闭，{@link #begin} 也会创建事件对象并填写操作名与查询类型；
+ * 事件对象要返回给调用方，因此在堆上分配 (每次调用一个小对象)。其余字段只在 {@code shouldCommit()} 为 true 时填写。
+ * <p>
+ * 一个服务调用事件只覆盖同一线程上连续执行的一段，同一线程上的服务调用事件互不重叠，
+ * {@link RecordingAnalyzer} 按此把分配采样归到调用上。调度器分块执行的查询 (见 {@link OperationScheduler})
+ * 各步之间穿插着其他操作，因此开始的一步记一个 search 事件 (结果条数为 0)，之后每一步记一个 scan 事件 (结果条数为该步匹配的人数)；
+ * 分块执行的排序与 Top-K 同样先记一个 sort 或 top 事件，之后每一步记一个 sortstep 事件 (结果条数为该步读取或输出的人数)。
+ */
+final class ServiceEvents {
+    static final String OPERATION = "studentms.Operation";
+    static final String INDEX_BUILD = "studentms.IndexBuild";
+    static final String CACHE_EVICTION = "studentms.CacheEviction";
+
+    private ServiceEvents() {}
+
+    @Name(OPERATION)
+    @Label("服务调用")
+    @Category({"学生管理系统"})
+    @Description("StudentManagementSystem 的一次增删改查调用，事件时长即调用耗时")
+    static final class Operation extends Event {
+        @Label("操作")
+        String operation;
+
+        @Label("查询类型")
+        @Description("查询、排序的字段或类型，其他操作为空")
+        String criteriaType;
+
+        @Label("结果条数")
+        int resultSize;
+
+        @Label("名册人数")
+        int rosterSize;
+
+        @Label("成功")
+        boolean success;
+    }
+
+    @Name(INDEX_BUILD)
+    @Label("建立二级索引")
+    @Category({"学生管理系统"})
+    static final class IndexBuild extends Event {
+        @Label("建立方式")
+        String mode;
+
+        @Label("学生人数")
+        int studentCount;
+    }
+
+    @Name(CACHE_EVICTION)
+    @Label("缓存淘汰")
+    @Category({"学生管理系统"})
+    static final class CacheEviction extends Event {
+        @Label("缓存")
+        String cache;
+
+        @Label("原因")
+        String reason;
+
+        @Label("查询种类")
+        @Description("查询缓存的查询种类 (search、sort 等)；学生缓存为空")
+        String kind;
+
+        @Label("条目数")
+        int entries;
+    }
+
+    /**
+     * 开始一次服务调用事件。
+     * @param operation 操作名 (add、modify、delete、find、search、scan、sort、top、sortstep、count 等)
+     * @param criteriaType 查询类型，可为 null
+     * @return 事件，调用结束时传给 {@link #end}；Flight Recorder 未初始化时为 null
+     */
+    static Operation begin(String operation, String criteriaType) {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        Operation event = new Operation();
+        event.begin();
+        event.operation = operation;
+        event.criteriaType = criteriaType;
+        return event;
+    }
+
+    /**
+     * 结束服务调用事件，达到阈值时提交。
+     */
+    static void end(Operation event, int resultSize, int rosterSize, boolean success) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.resultSize = resultSize;
+            event.rosterSize = rosterSize;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    /**
+     * 开始一次建立二级索引事件。
+     * @return 事件，建立完成时传给 {@link #endIndexBuild}；Flight Recorder 未初始化时为 null
+     */
+    static IndexBuild beginIndexBuild() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        IndexBuild event = new IndexBuild();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 结束建立二级索引事件，达到阈值时提交。
+     */
+    static void endIndexBuild(IndexBuild event, String mode, int studentCount) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.mode = mode;
+            event.studentCount = studentCount;
+            event.commit();
+        }
+    }
+
+    /**
+     * 记录一次缓存淘汰。
+     */
+    static void evicted(String cache, String reason, String kind, int entries) {
+        if (!FlightRecorder.isInitialized()) {
+            return;
+        }
+        CacheEviction event = new CacheEviction();
+        if (event.shouldCommit()) {
+            event.cache = cache;
+            event.reason = reason;
+            event.kind = kind;
+            event.entries = entries;
+            event.commit();
+        }
+    }
+}
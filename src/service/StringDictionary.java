@@ -0,0 +1,67 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 字符串字典：为重复度高的字符串 (班级、省市、课程名等) 分配整数编号，每个字符串只保存一份。
+ * 线程安全，可以由多个租户的服务共用 (见 {@link TenantRegistry})。
+ */
+class StringDictionary {
+    static final int NULL_ID = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * 获取字符串的编号，不存在时分配新编号。
+     * @param value 字符串，可为 null
+     * @return 编号；null 对应 {@link #NULL_ID}
+     */
+    synchronized int idOf(String value) {
+        if (value == null) {
+            return NULL_ID;
+        }
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = values.size();
+            values.add(value);
+            ids.put(value, id);
+        }
+        return id;
+    }
+
+    /**
+     * 根据编号取回字符串。
+     * @param id 编号
+     * @return 字符串；{@link #NULL_ID} 对应 null
+     */
+    synchronized String valueOf(int id) {
+        return id == NULL_ID ? null : values.get(id);
+    }
+
+    /**
+     * 查找字符串的编号，不存在时不分配。
+     * @param value 字符串，可为 null
+     * @return 编号；不存在或为 null 时为 {@link #NULL_ID}
+     */
+    synchronized int find(String value) {
+        Integer id = value == null ? null : ids.get(value);
+        return id == null ? NULL_ID : id;
+    }
+
+    /**
+     * 获取与 value 相等的共享实例，不存在时加入字典。
+     * @param value 字符串，可为 null
+     * @return 字典中的实例
+     */
+    synchronized String canonical(String value) {
+        return valueOf(idOf(value));
+    }
+
+    synchronized int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,190 @@
+package service;
+
+import model.Student;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 容量受限的 LRU 学生缓存，支持固定 (pin) 条目与命中率统计。
+ */
+class StudentCache {
+    private final int capacity;
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final EvictionListener evictionListener;
+    private final Node head = new Node(null, null, 0L); // 哨兵，head.next 为最久未用
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * 条目被淘汰时的回调。
+     */
+    interface EvictionListener {
+        void onEvict(String key, Student value, long checksum);
+    }
+
+    private static final class Node {
+        final String key;
+        Student value;
+        long checksum; // 装入或写入时的编码校验和，用于判断是否被修改
+        int pins;
+        Node prev;
+        Node next;
+
+        Node(String key, Student value, long checksum) {
+            this.key = key;
+            this.value = value;
+            this.checksum = checksum;
+        }
+    }
+
+    /**
+     * 构造函数。
+     * @param capacity 最大缓存条目数
+     * @param evictionListener 条目被淘汰时的回调
+     */
+    StudentCache(int capacity, EvictionListener evictionListener) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("缓存容量必须为正数");
+        }
+        this.capacity = capacity;
+        this.evictionListener = evictionListener;
+        head.prev = head;
+        head.next = head;
+    }
+
+    /**
+     * 读取并刷新最近使用顺序，同时记录命中/未命中。
+     */
+    Student get(String key) {
+        Node node = nodes.get(key);
+        if (node == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        moveToTail(node);
+        return node.value;
+    }
+
+    /**
+     * 只读查看，不影响 LRU 顺序与统计 (供扫描使用)。
+     */
+    Student peek(String key) {
+        Node node = nodes.get(key);
+        return node == null ? null : node.value;
+    }
+
+    void put(String key, Student value, long checksum) {
+        Node node = nodes.get(key);
+        if (node != null) {
+            node.value = value;
+            node.checksum = checksum;
+            moveToTail(node);
+        } else {
+            node = new Node(key, value, checksum);
+            nodes.put(key, node);
+            linkTail(node);
+        }
+        evictIfNeeded();
+    }
+
+    Student remove(String key) {
+        Node node = nodes.remove(key);
+        if (node == null) {
+            return null;
+        }
+        unlink(node);
+        return node.value;
+    }
+
+    /**
+     * 更新条目的校验和 (写回磁盘后调用)。
+     */
+    void markClean(String key, long checksum) {
+        Node node = nodes.get(key);
+        if (node != null) {
+            node.checksum = checksum;
+        }
+    }
+
+    /**
+     * 固定条目，使其在 unpin 之前不会被淘汰。
+     * @return 条目是否在缓存中
+     */
+    boolean pin(String key) {
+        Node node = nodes.get(key);
+        if (node == null) {
+            return false;
+        }
+        node.pins++;
+        return true;
+    }
+
+    void unpin(String key) {
+        Node node = nodes.get(key);
+        if (node != null && node.pins > 0) {
+            node.pins--;
+            evictIfNeeded();
+        }
+    }
+
+    /**
+     * 对每个缓存条目调用回调 (不计入淘汰次数)。
+     */
+    void forEach(EvictionListener action) {
+        for (Node node = head.next; node != head; node = node.next) {
+            action.onEvict(node.key, node.value, node.checksum);
+        }
+    }
+
+    void clear() {
+        nodes.clear();
+        head.prev = head;
+        head.next = head;
+    }
+
+    int size() { return nodes.size(); }
+    int getCapacity() { return capacity; }
+    long getHitCount() { return hitCount; }
+    long getMissCount() { return missCount; }
+    long getEvictionCount() { return evictionCount; }
+
+    double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    private void evictIfNeeded() {
+        Node node = head.next;
+        while (nodes.size() > capacity && node != head) {
+            Node next = node.next;
+            if (node.pins == 0) {
+                nodes.remove(node.key);
+                unlink(node);
+                evictionCount++;
+                ServiceEvents.evicted("student", "容量淘汰", null, 1);
+                evictionListener.onEvict(node.key, node.value, node.checksum);
+            }
+            node = next;
+        }
+    }
+
+    private void moveToTail(Node node) {
+        unlink(node);
+        linkTail(node);
+    }
+
+    private void linkTail(Node node) {
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    private void unlink(Node node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+    }
+}
@@ -0,0 +1,129 @@
+package service;
+
+import model.Address;
+import model.Graduate;
+import model.ScoreHistory;
+import model.Student;
+import model.Undergraduate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * 学生对象的二进制编解码，供磁盘存储使用。
+ * 成绩之后是各课程的成绩历史 (条数, 然后每门为 课程名、字节数、{@link ScoreHistory} 编码)；
+ * 没有这一段的旧记录解码后没有历史。
+ */
+final class StudentCodec {
+    private static final byte TYPE_UNDERGRADUATE = 1;
+    private static final byte TYPE_GRADUATE = 2;
+
+    private StudentCodec() {}
+
+    /**
+     * 将学生编码为字节数组。
+     * @param student 学生对象
+     * @return 编码结果
+     */
+    static byte[] encode(Student student) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            if (student instanceof Graduate) {
+                out.writeByte(TYPE_GRADUATE);
+            } else if (student instanceof Undergraduate) {
+                out.writeByte(TYPE_UNDERGRADUATE);
+            } else {
+                throw new IllegalArgumentException("不支持的学生类型: " + student.getClass().getName());
+            }
+            out.writeUTF(student.getStudentId());
+            out.writeUTF(student.getName());
+            out.writeInt(student.getAge());
+            out.writeUTF(student.getClassName());
+            Address address = student.getAddress();
+            writeNullable(out, address.getProvince());
+            writeNullable(out, address.getCity());
+            writeNullable(out, address.getStreet());
+            writeNullable(out, address.getHouseNumber());
+            if (student instanceof Graduate) {
+                Graduate graduate = (Graduate) student;
+                out.writeUTF(graduate.getSupervisor());
+                out.writeUTF(graduate.getResearchDirection());
+            } else {
+                out.writeUTF(((Undergraduate) student).getMajor());
+            }
+            Map<String, Double> scores = student.getScores();
+            out.writeInt(scores.size());
+            for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeDouble(entry.getValue());
+            }
+            Map<String, ScoreHistory> histories = student.getScoreHistories();
+            out.writeInt(histories.size());
+            for (Map.Entry<String, ScoreHistory> entry : histories.entrySet()) {
+                byte[] history = entry.getValue().toBytes();
+                out.writeUTF(entry.getKey());
+                out.writeInt(history.length);
+                out.write(history);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 从字节数组解码学生。
+     * @param data 编码数据
+     * @return 学生对象
+     */
+    static Student decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte type = in.readByte();
+            String studentId = in.readUTF();
+            String name = in.readUTF();
+            int age = in.readInt();
+            String className = in.readUTF();
+            Address address = Address.of(readNullable(in), readNullable(in), readNullable(in), readNullable(in));
+            Student student;
+            if (type == TYPE_GRADUATE) {
+                String supervisor = in.readUTF();
+                String researchDirection = in.readUTF();
+                student = new Graduate(studentId, name, age, className, address, supervisor, researchDirection);
+            } else if (type == TYPE_UNDERGRADUATE) {
+                student = new Undergraduate(studentId, name, age, className, address, in.readUTF());
+            } else {
+                throw new IllegalStateException("无法识别的学生类型标记: " + type);
+            }
+            int scoreCount = in.readInt();
+            for (int i = 0; i < scoreCount; i++) {
+                student.getScores().put(in.readUTF(), in.readDouble());
+            }
+            int historyCount = in.available() > 0 ? in.readInt() : 0;
+            for (int i = 0; i < historyCount; i++) {
+                String course = in.readUTF();
+                byte[] history = new byte[in.readInt()];
+                in.readFully(history);
+                student.restoreScoreHistory(course, ScoreHistory.fromBytes(history));
+            }
+            return student;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
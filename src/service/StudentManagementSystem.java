@@ -1,20 +1,152 @@
 package service;
 
 import model.Graduate;
+import model.ScoreHistory;
 import model.Student;
 import model.Undergraduate;
+import utils.Decimals;
+import utils.ObjectSizes;
+import utils.TopK;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * 学生管理系统服务类。
  */
-public class StudentManagementSystem {
+public class StudentManagementSystem implements Closeable {
+    private static final int QUERY_CACHE_CAPACITY = 64;
+    private static final int QUERY_CACHE_MAX_ELEMENTS = 1 << 20;        // 学生常驻堆的存储：缓存结果只多占引用
+    private static final int QUERY_CACHE_MAX_DECODED_ELEMENTS = 10_000; // 堆外存储：缓存结果是解码出的副本
+    private static final int PARALLEL_TOP_K_THRESHOLD = 100_000;
+    private static final int RENDER_BUFFER_SIZE = 64 * 1024; // 显示列表时攒够这么多字符再输出
+
     private final Map<String, Student> students;
+    private final QueryCache queryCache;
+    private final SecondaryIndex classIndex = new SecondaryIndex("idx_class");
+    private final SecondaryIndex supervisorIndex = new SecondaryIndex("idx_supervisor");
+    private final QueryPlanner queryPlanner;
+    private final CourseRegistry courseRegistry;
+    private final RegionIndex regionIndex = new RegionIndex();
+    private final ClassScoreTrends classTrends = new ClassScoreTrends(ZoneId.systemDefault());
+    private final Map<FuzzyMatch.Field, FuzzyIndex> fuzzyIndexes = new EnumMap<>(FuzzyMatch.Field.class);
+    private final HeapAccounting heapAccounting = new HeapAccounting();
+    private final RosterOrder rosterOrder = new RosterOrder(); // 学号 → 名册顺序号 (与遍历顺序一致)
+    private long rosterVersion; // 名册版本号，每次增删改递增，用于使查询缓存失效
+    private volatile boolean indexesReady; // 二级索引 (班级、导师、课程登记表、名册顺序) 是否已建立
+    private Thread indexBuilder;           // 后台建索引线程，仅 BACKGROUND 模式使用
+    private volatile RuntimeException indexBuildFailure;
+    private long indexBuildNanos;
+    private WorkloadRecorder recorder; // 非空时记录服务调用流
+    private final Set<String> dirtyClasses = new HashSet<>();    // 上次生成报告后有变动的班级 (规范化)
+    private final Set<String> reportedClasses = new HashSet<>(); // 报告已是最新的班级 (规范化)
+    private Path reportDirectory;          // 上次生成报告的目录
+    private ExecutorService reportExecutor; // 并行写报告的线程池，第一次生成报告时创建；租户共用时由注册表传入
+    private final boolean sharedReportExecutor;
+    private final TenantGuard tenantGuard; // 非空时执行租户配额
+
+    /**
+     * 时间戳格式，第一次使用时才初始化 (加载 java.time 的格式化与区域数据要一百毫秒左右，不应算在启动时间里)。
+     */
+    private static final class Timestamps {
+        static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    }
+
+    /**
+     * 二级索引的建立时机。
+     */
+    public enum IndexBuildMode {
+        /** 构造时立即建立。 */
+        EAGER,
+        /** 第一次需要索引的操作 (组合查询、课程排序、增删改等) 时建立。 */
+        LAZY,
+        /** 构造后在后台线程中建立；需要索引的操作会等待其完成。仅分层存储支持，其余存储按 LAZY 处理。 */
+        BACKGROUND
+    }
+
+    {
+        fuzzyIndexes.put(FuzzyMatch.Field.NAME, new FuzzyIndex("fuzzy_name"));
+        fuzzyIndexes.put(FuzzyMatch.Field.RESEARCH_DIRECTION, new FuzzyIndex("fuzzy_direction"));
+        fuzzyIndexes.put(FuzzyMatch.Field.SUPERVISOR, new FuzzyIndex("fuzzy_supervisor"));
+    }
 
     public StudentManagementSystem() {
-        this.students = new LinkedHashMap<>();
+        this(new IdIndexedStudentMap());
+    }
+
+    /**
+     * 使用指定的存储构造 (例如 {@link TieredStudentMap}、{@link OffHeapStudentMap})，立即建立索引。
+     * @param store 学号 → 学生 的存储，遍历顺序即浏览顺序
+     */
+    public StudentManagementSystem(Map<String, Student> store) {
+        this(store, IndexBuildMode.EAGER);
+    }
+
+    /**
+     * 使用指定的存储构造，并指定二级索引的建立时机。
+     * 按学号查找、浏览和关键字查询不依赖二级索引，延迟建立索引可以缩短已有大量数据时的启动时间。
+     * @param store 学号 → 学生 的存储，遍历顺序即浏览顺序
+     * @param indexBuildMode 索引建立时机
+     */
+    public StudentManagementSystem(Map<String, Student> store, IndexBuildMode indexBuildMode) {
+        this(store, indexBuildMode, new StringDictionary(), null, null);
+    }
+
+    /**
+     * 租户服务的构造函数 (见 {@link TenantRegistry})：名册与索引独立，字典与线程池由注册表共用。
+     * @param store 学号 → 学生 的存储
+     * @param indexBuildMode 索引建立时机
+     * @param dictionary 课程登记表使用的字典
+     * @param reportExecutor 写报告的线程池，为 null 时第一次生成报告时自行创建；传入的线程池不随本服务关闭
+     * @param tenantGuard 租户配额，为 null 表示不限制
+     */
+    StudentManagementSystem(Map<String, Student> store, IndexBuildMode indexBuildMode, StringDictionary dictionary,
+                            ExecutorService reportExecutor, TenantGuard tenantGuard) {
+        if (store == null) {
+            throw new IllegalArgumentException("存储不能为空");
+        }
+        this.students = store;
+        this.queryCache = new QueryCache(QUERY_CACHE_CAPACITY, queryCacheMaxElements(store));
+        this.courseRegistry = new CourseRegistry(dictionary);
+        this.reportExecutor = reportExecutor;
+        this.sharedReportExecutor = reportExecutor != null;
+        this.tenantGuard = tenantGuard;
+        this.queryPlanner = new QueryPlanner(students, this::readForScan, rosterOrder::get, courseRegistry, classIndex, supervisorIndex);
+        if (indexBuildMode == IndexBuildMode.EAGER || students.isEmpty()) {
+            buildIndexes(students.values(), IndexBuildMode.EAGER);
+        } else if (indexBuildMode == IndexBuildMode.BACKGROUND && students instanceof TieredStudentMap) {
+            Iterable<Student> snapshot = ((TieredStudentMap) students).snapshotFromDisk();
+            indexBuilder = new Thread(() -> {
+                try {
+                    buildIndexes(snapshot, IndexBuildMode.BACKGROUND);
+                } catch (RuntimeException e) {
+                    indexBuildFailure = e;
+                }
+            }, "student-index-builder");
+            indexBuilder.setDaemon(true);
+            indexBuilder.start();
+        }
+    }
+
+    /**
+     * 查询缓存的元素总数上限。分层存储与堆外存储的结果是解码出的副本，缓存它们等于把学生留在堆上：
+     * 分层存储不超过学生缓存的容量 (堆预算)，堆外存储使用固定的较小上限。
+     */
+    private static int queryCacheMaxElements(Map<String, Student> store) {
+        if (store instanceof TieredStudentMap) {
+            return Math.max(1, ((TieredStudentMap) store).getCacheCapacity());
+        }
+        return store instanceof OffHeapStudentMap ? QUERY_CACHE_MAX_DECODED_ELEMENTS : QUERY_CACHE_MAX_ELEMENTS;
     }
 
     /**
@@ -23,6 +155,17 @@ public class StudentManagementSystem {
      * @return 是否成功
      */
     public boolean addStudent(Student student) {
+        if (recorder != null) {
+            recorder.recordAdd(student);
+        }
+        throttle();
+        ServiceEvents.Operation event = ServiceEvents.begin("add", null);
+        boolean result = insertStudent(student);
+        ServiceEvents.end(event, result ? 1 : 0, students.size(), result);
+        return result;
+    }
+
+    private boolean insertStudent(Student student) {
         if (student == null) {
              System.out.println("错误：不能添加空学生对象！");
              return false;
@@ -31,7 +174,14 @@ public class StudentManagementSystem {
             System.out.println("错误：学号 " + student.getStudentId() + " 已存在，添加失败！");
             return false;
         }
+        ensureIndexes();
+        if (!admitGrowth("学生未添加")) {
+            return false;
+        }
         students.put(student.getStudentId(), student);
+        rosterOrder.assign(student.getStudentId());
+        indexStudent(student);
+        rosterVersion++;
         System.out.println("学生 " + student.getName() + " 添加成功！");
         return true;
     }
@@ -42,9 +192,34 @@ public class StudentManagementSystem {
      * @return Optional 包装的学生对象
      */
     public Optional<Student> findStudentById(String studentId) {
+        if (recorder != null) {
+            recorder.recordId(WorkloadTrace.Op.FIND, studentId);
+        }
+        throttle();
+        ServiceEvents.Operation event = ServiceEvents.begin("find", "id");
+        Optional<Student> student = Optional.ofNullable(students.get(studentId));
+        ServiceEvents.end(event, student.isPresent() ? 1 : 0, students.size(), true);
+        return student;
+    }
+
+    /**
+     * 按学号读取学生，供修改前取得原有信息等内部用途：不记录到工作负载轨迹，不产生 JFR 事件，也不计入租户配额。
+     * @param studentId 学号
+     * @return Optional 包装的学生对象
+     */
+    public Optional<Student> lookupStudent(String studentId) {
         return Optional.ofNullable(students.get(studentId));
     }
 
+    /**
+     * 判断学号是否已存在 (不创建 Optional，也不会把分层存储中的学生读入缓存)。
+     * @param studentId 学号
+     * @return 是否存在
+     */
+    public boolean containsStudentId(String studentId) {
+        return students.containsKey(studentId);
+    }
+
     /**
      * 修改学生信息。
      * @param oldStudentId 旧学号
@@ -52,6 +227,17 @@ public class StudentManagementSystem {
      * @return 是否成功
      */
     public boolean modifyStudent(String oldStudentId, Student updatedStudent) {
+        if (recorder != null) {
+            recorder.recordModify(oldStudentId, updatedStudent);
+        }
+        throttle();
+        ServiceEvents.Operation event = ServiceEvents.begin("modify", null);
+        boolean result = replaceStudent(oldStudentId, updatedStudent);
+        ServiceEvents.end(event, result ? 1 : 0, students.size(), result);
+        return result;
+    }
+
+    private boolean replaceStudent(String oldStudentId, Student updatedStudent) {
         if (updatedStudent == null) {
              System.out.println("错误：更新的学生信息不能为空！");
              return false;
@@ -61,17 +247,33 @@ public class StudentManagementSystem {
             System.out.println("错误：未找到学号为 " + oldStudentId + " 的学生，修改失败！");
             return false;
         }
-        String newStudentId = updatedStudent.getStudentId();
-        if (!oldStudentId.equals(newStudentId) && students.containsKey(newStudentId)) {
-            System.out.println("错误：新学号 " + newStudentId + " 已被其他学生使用，修改失败！");
-            return false;
-        }
-        if (!oldStudentId.equals(newStudentId)) {
-            students.remove(oldStudentId);
+        boolean pinned = pinInCache(oldStudentId);
+        try {
+            String newStudentId = updatedStudent.getStudentId();
+            if (!oldStudentId.equals(newStudentId) && students.containsKey(newStudentId)) {
+                System.out.println("错误：新学号 " + newStudentId + " 已被其他学生使用，修改失败！");
+                return false;
+            }
+            ensureIndexes();
+            if (!admitGrowth("修改失败")) {
+                return false;
+            }
+            unindexStudent(existingStudent, oldStudentId);
+            if (!oldStudentId.equals(newStudentId)) {
+                students.remove(oldStudentId);
+                rosterOrder.remove(oldStudentId);
+                rosterOrder.assign(newStudentId);
+            }
+            students.put(newStudentId, updatedStudent);
+            indexStudent(updatedStudent);
+            rosterVersion++;
+            System.out.println("学号 " + oldStudentId + " 的学生信息已更新！" + (oldStudentId.equals(newStudentId) ? "" : " 新学号为 " + newStudentId));
+            return true;
+        } finally {
+            if (pinned) {
+                unpinInCache(oldStudentId);
+            }
         }
-        students.put(newStudentId, updatedStudent);
-        System.out.println("学号 " + oldStudentId + " 的学生信息已更新！" + (oldStudentId.equals(newStudentId) ? "" : " 新学号为 " + newStudentId));
-        return true;
     }
 
     /**
@@ -80,8 +282,23 @@ public class StudentManagementSystem {
      * @return 是否成功
      */
     public boolean deleteStudent(String studentId) {
+        if (recorder != null) {
+            recorder.recordId(WorkloadTrace.Op.DELETE, studentId);
+        }
+        throttle();
+        ServiceEvents.Operation event = ServiceEvents.begin("delete", null);
+        boolean result = removeStudent(studentId);
+        ServiceEvents.end(event, result ? 1 : 0, students.size(), result);
+        return result;
+    }
+
+    private boolean removeStudent(String studentId) {
+        ensureIndexes();
         Student removedStudent = students.remove(studentId);
         if (removedStudent != null) {
+            unindexStudent(removedStudent, studentId);
+            rosterOrder.remove(studentId);
+            rosterVersion++;
             System.out.println("学号为 " + studentId + " 的学生 (" + removedStudent.getName() + ") 已被删除。");
             return true;
         } else {
@@ -101,22 +318,40 @@ public class StudentManagementSystem {
             System.out.println("没有找到符合条件的学生。");
             return;
         }
-        studentList.forEach(System.out::println);
+        StringBuilder sb = new StringBuilder(RENDER_BUFFER_SIZE + 512);
+        String lineSeparator = System.lineSeparator();
+        for (Student student : studentList) {
+            student.appendTo(sb).append(lineSeparator);
+            if (sb.length() >= RENDER_BUFFER_SIZE) {
+                System.out.append(sb);
+                sb.setLength(0);
+            }
+        }
+        System.out.append(sb);
         System.out.println("--------------------");
     }
 
     // --- 浏览方法 ---
     public void browseAllStudents() {
+        if (recorder != null) {
+            recorder.recordBrowse(WorkloadRecorder.BROWSE_ALL);
+        }
         displayStudentList(new ArrayList<>(students.values()), "所有学生信息");
     }
     public void browseUndergraduates() {
+        if (recorder != null) {
+            recorder.recordBrowse(WorkloadRecorder.BROWSE_UNDERGRADUATES);
+        }
         List<Student> undergraduates = students.values().stream()
                 .filter(s -> s instanceof Undergraduate)
                 .collect(Collectors.toList());
         displayStudentList(undergraduates, "所有本科生信息");
     }
     public void browseGraduates() {
-         List<Student> graduates = students.values().stream()
+        if (recorder != null) {
+            recorder.recordBrowse(WorkloadRecorder.BROWSE_GRADUATES);
+        }
+        List<Student> graduates = students.values().stream()
                 .filter(s -> s instanceof Graduate)
                 .collect(Collectors.toList());
         displayStudentList(graduates, "所有研究生信息");
@@ -124,91 +359,814 @@ public class StudentManagementSystem {
 
     /**
      * 查询学生。
+     * 相同的查询在名册未变化时直接返回缓存结果 (只读列表)。
      * @param criteria 查询关键字
      * @param type 查询类型 ("id", "name", "class")
      * @return 学生列表
      */
     public List<Student> searchStudents(String criteria, String type) {
+        if (recorder != null) {
+            recorder.recordSearch(type, criteria);
+        }
+        throttle();
+        ServiceEvents.Operation event = ServiceEvents.begin("search", type);
+        List<Student> result = filterStudents(criteria, type);
+        ServiceEvents.end(event, result.size(), students.size(), true);
+        return result;
+    }
+
+    private List<Student> filterStudents(String criteria, String type) {
         if (criteria == null || criteria.trim().isEmpty() || type == null) {
             System.out.println("警告：查询条件或类型不能为空。");
             return Collections.emptyList();
         }
         String lowerCaseCriteria = criteria.toLowerCase().trim();
+        String lowerCaseType = type.toLowerCase();
+        boolean cacheable = lowerCaseType.equals("id") || lowerCaseType.equals("name") || lowerCaseType.equals("class");
+        String cacheKey = QueryCache.key("search", lowerCaseType, lowerCaseCriteria);
+        if (cacheable) {
+            List<Student> cached = queryCache.get(cacheKey, rosterVersion);
+            if (cached != null) {
+                return cached;
+            }
+        }
 
-        return students.values().stream()
-                .filter(student -> {
-                    switch (type.toLowerCase()) {
-                        case "id":
-                            return student.getStudentId().equalsIgnoreCase(criteria.trim());
-                        case "name":
-                            return student.getName().toLowerCase().contains(lowerCaseCriteria);
-                        case "class":
-                            return student.getClassName().toLowerCase().contains(lowerCaseCriteria);
-                        default:
-                            System.out.println("警告：未知的查询类型 '" + type + "'。");
-                            return false;
-                    }
-                })
+        List<Student> results = students.values().stream()
+                .filter(searchMatcher(criteria, type))
                 .collect(Collectors.toList());
+        if (!cacheable) {
+            return results;
+        }
+        List<Student> readOnly = Collections.unmodifiableList(results);
+        queryCache.put(cacheKey, rosterVersion, readOnly);
+        return readOnly;
+    }
+
+    private static Predicate<Student> searchMatcher(String criteria, String type) {
+        String lowerCaseCriteria = criteria.toLowerCase().trim();
+        switch (type.toLowerCase()) {
+            case "id":
+                return student -> student.getStudentId().equalsIgnoreCase(criteria.trim());
+            case "name":
+                return student -> student.getName().toLowerCase().contains(lowerCaseCriteria);
+            case "class":
+                return student -> student.getClassName().toLowerCase().contains(lowerCaseCriteria);
+            default:
+                return student -> {
+                    System.out.println("警告：未知的查询类型 '" + type + "'。");
+                    return false;
+                };
+        }
+    }
+
+    /**
+     * 开始一次可分块执行的查询 (供 {@link OperationScheduler} 使用)，名册在扫描期间不变时结果与 {@link #searchStudents} 相同。
+     * 缓存命中或参数无效时返回的查询已完成；否则只记下名册顺序日志的位置，之后每次 {@link ChunkedScan#advance}
+     * 按名册顺序读取并检查一段，各段之间可以执行其他操作。结果包含开始时已在名册中、检查到时仍在名册中的学生，
+     * 按检查到时的内容匹配；扫描期间新加入的学生不在其中。完成时写入查询缓存 (名册已变化时该结果不会再命中)。
+     * 本方法是调度器的一步，记录一个 search 事件；需要扫描时其结果条数为 0，之后每一步另记一个 scan 事件 (见 {@link ChunkedScan})。
+     * @param criteria 查询关键字
+     * @param type 查询类型 ("id", "name", "class")
+     * @return 分块查询
+     */
+    ChunkedScan beginSearch(String criteria, String type) {
+        if (recorder != null) {
+            recorder.recordSearch(type, criteria);
+        }
+        throttle();
+        ServiceEvents.Operation event = ServiceEvents.begin("search", type);
+        if (criteria == null || criteria.trim().isEmpty() || type == null) {
+            System.out.println("警告：查询条件或类型不能为空。");
+            ServiceEvents.end(event, 0, students.size(), true);
+            return ChunkedScan.completed(Collections.emptyList());
+        }
+        String lowerCaseType = type.toLowerCase();
+        boolean cacheable = lowerCaseType.equals("id") || lowerCaseType.equals("name") || lowerCaseType.equals("class");
+        String cacheKey = QueryCache.key("search", lowerCaseType, criteria.toLowerCase().trim());
+        List<Student> cached = cacheable ? queryCache.get(cacheKey, rosterVersion) : null;
+        if (cached != null) {
+            ServiceEvents.end(event, cached.size(), students.size(), true);
+            return ChunkedScan.completed(cached);
+        }
+        ensureIndexes();
+        long version = rosterVersion;
+        int rosterSize = students.size();
+        ChunkedScan scan = new ChunkedScan(rosterOrder.cursor(), this::readForScan, searchMatcher(criteria, type), results -> {
+            List<Student> readOnly = Collections.unmodifiableList(results);
+            if (cacheable) {
+                queryCache.put(cacheKey, version, readOnly);
+            }
+            return readOnly;
+        }, type, rosterSize);
+        ServiceEvents.end(event, 0, rosterSize, true); // 这一步只建立扫描，匹配人数由之后各步的 scan 事件记录
+        return scan;
+    }
+
+    /**
+     * 分层存储中固定缓存里的学生 (刚由 get 装入)，修改期间不会被淘汰：
+     * 否则建索引等步骤可能把它挤出缓存，之后再读取得到的是另一个副本，与正在修改的对象脱节。
+     * @return 是否已固定；不是分层存储或学生不在缓存中时为 false
+     */
+    private boolean pinInCache(String studentId) {
+        return students instanceof TieredStudentMap && ((TieredStudentMap) students).pin(studentId);
+    }
+
+    private void unpinInCache(String studentId) {
+        ((TieredStudentMap) students).unpin(studentId);
+    }
+
+    /**
+     * 批量读取学生 (分块扫描、索引与课程成绩范围扫描、区域与模糊查询的结果、课程排序、班级报告)；
+     * 分层存储不把读到的学生放入缓存，以免一次批量读取挤掉常用的学生。
+     */
+    private Student readForScan(String studentId) {
+        return students instanceof TieredStudentMap ? ((TieredStudentMap) students).readUncached(studentId) : students.get(studentId);
     }
 
     /**
      * 排序并显示学生。
+     * 排序结果按 (排序字段, 方向) 缓存，名册未变化时重复排序不再重新计算。
      * @param sortBy 排序字段
      * @param ascending 是否升序
      */
     public void sortAndDisplayStudents(String sortBy, boolean ascending) {
+        if (recorder != null) {
+            recorder.recordSort(sortBy, ascending);
+        }
+        throttle();
+        ServiceEvents.Operation event = ServiceEvents.begin("sort", sortBy);
+        int shown = sortAndDisplay(sortBy, ascending);
+        ServiceEvents.end(event, Math.max(shown, 0), students.size(), shown >= 0);
+    }
+
+    /**
+     * 排序并显示。
+     * @return 显示的条数；参数无效或排序出错时为 -1
+     */
+    private int sortAndDisplay(String sortBy, boolean ascending) {
         if (students.isEmpty()) {
             System.out.println("系统中没有学生信息可供排序。");
-            return;
+            return 0;
         }
-        List<Student> sortedList = new ArrayList<>(students.values());
         Comparator<Student> comparator = null;
         String sortFieldDescription = "";
         String lowerSortBy = sortBy.toLowerCase();
+        String cacheKey;
+        List<Student> sortedList;
 
         if (lowerSortBy.equals("id")) {
             comparator = Comparator.comparing(Student::getStudentId);
             sortFieldDescription = "学号";
+            cacheKey = QueryCache.key("sort", lowerSortBy, String.valueOf(ascending));
+            sortedList = queryCache.get(cacheKey, rosterVersion);
         } else if (lowerSortBy.equals("totalscore")) {
             comparator = Comparator.comparingDouble(Student::calculateTotalScore);
             sortFieldDescription = "总成绩";
+            cacheKey = QueryCache.key("sort", lowerSortBy, String.valueOf(ascending));
+            sortedList = queryCache.get(cacheKey, rosterVersion);
         } else if (lowerSortBy.startsWith("course:")) {
             String courseName = sortBy.substring("course:".length()).trim();
             if (courseName.isEmpty()) {
                  System.out.println("错误：未指定课程名称进行排序。");
-                 return;
+                 return -1;
             }
-            boolean courseExists = students.values().stream()
-                                          .anyMatch(s -> s.getScores().containsKey(courseName));
-            if (!courseExists) {
+            cacheKey = QueryCache.key("sort", "course:" + courseName, String.valueOf(ascending));
+            sortedList = queryCache.get(cacheKey, rosterVersion);
+            ensureIndexes();
+            if (!courseRegistry.hasCourse(courseName)) {
                  System.out.println("错误：系统中没有关于课程 '" + courseName + "' 的成绩记录，无法排序。");
-                 return;
+                 return -1;
+            }
+            if (sortedList == null) {
+                sortedList = Collections.unmodifiableList(sortByCourse(courseName, ascending));
+                queryCache.put(cacheKey, rosterVersion, sortedList);
             }
-            comparator = Comparator.comparingDouble(s -> s.getScore(courseName));
             sortFieldDescription = "课程 '" + courseName + "' 成绩";
         } else {
             System.out.println("错误：无效的排序依据 '" + sortBy + "'！");
+            return -1;
+        }
+        if (sortedList == null) {
+            if (!ascending) {
+                comparator = comparator.reversed();
+            }
+            sortedList = new ArrayList<>(students.values());
+            try {
+                sortedList.sort(comparator);
+            } catch (Exception e) {
+                System.out.println("排序时发生错误: " + e.getMessage());
+                return -1;
+            }
+            sortedList = Collections.unmodifiableList(sortedList);
+            queryCache.put(cacheKey, rosterVersion, sortedList);
+        }
+
+        String sortOrder = ascending ? "升序" : "降序";
+        displayStudentList(sortedList, "按 " + sortFieldDescription + " " + sortOrder + " 排序后的学生信息");
+        return sortedList.size();
+    }
+
+    /**
+     * 执行组合查询，语法见 {@link StudentQuery}。
+     * @param queryText 查询语句
+     * @return 学生列表；语法错误时打印错误并返回空列表
+     */
+    public List<Student> executeQuery(String queryText) {
+        if (recorder != null) {
+            recorder.recordQuery(queryText);
+        }
+        throttle();
+        ServiceEvents.Operation event = ServiceEvents.begin("search", "query");
+        ensureIndexes();
+        List<Student> results;
+        boolean success = true;
+        try {
+            results = queryPlanner.execute(queryPlanner.plan(StudentQuery.parse(queryText)));
+        } catch (IllegalArgumentException e) {
+            System.out.println("错误：" + e.getMessage());
+            results = Collections.emptyList();
+            success = false;
+        }
+        ServiceEvents.end(event, results.size(), students.size(), success);
+        return results;
+    }
+
+    /**
+     * 返回组合查询的执行计划 (EXPLAIN)。
+     * @param queryText 查询语句
+     * @return 执行计划说明；语法错误时返回错误信息
+     */
+    public String explainQuery(String queryText) {
+        ensureIndexes();
+        try {
+            return queryPlanner.plan(StudentQuery.parse(queryText)).explain();
+        } catch (IllegalArgumentException e) {
+            return "错误：" + e.getMessage();
+        }
+    }
+
+    /**
+     * 按排序字段选出排在最前的 k 名学生 (Top-K)，用容量为 k 的堆代替全量排序。
+     * 结果与 sortAndDisplayStudents 排序结果的前 k 条一致；学生数较多时按线程分段选择后归并。
+     * @param sortBy 排序字段 ("id", "totalScore", "course:课程名")
+     * @param k 人数
+     * @param ascending 是否升序 (升序即取最小的 k 名)
+     * @return 至多 k 名学生；参数无效时打印错误并返回空列表
+     */
+    public List<Student> findTopStudents(String sortBy, int k, boolean ascending) {
+        if (recorder != null) {
+            recorder.recordTop(sortBy, k, ascending);
+        }
+        throttle();
+        ServiceEvents.Operation event = ServiceEvents.begin("top", sortBy);
+        List<Student> result = selectTopStudents(sortBy, k, ascending);
+        ServiceEvents.end(event, result.size(), students.size(), k > 0);
+        return result;
+    }
+
+    private List<Student> selectTopStudents(String sortBy, int k, boolean ascending) {
+        if (k <= 0) {
+            System.out.println("错误：人数必须为正数！");
+            return Collections.emptyList();
+        }
+        Comparator<Student> comparator = sortComparator(sortBy, ascending);
+        if (comparator == null) {
+            return Collections.emptyList();
+        }
+        if (k >= students.size()) {
+            return TopK.select(students.values(), comparator, k); // 全部入选，退化为稳定排序
+        }
+        boolean parallel = students.size() >= PARALLEL_TOP_K_THRESHOLD && !(students instanceof TieredStudentMap);
+        return TopK.select(parallel ? students.values().parallelStream() : students.values().stream(), comparator, k);
+    }
+
+    /**
+     * 检查排序字段并生成比较器。
+     * @param sortBy 排序字段 ("id", "totalScore", "course:课程名")
+     * @param ascending 是否升序
+     * @return 比较器；排序字段无效时打印错误并返回 null
+     */
+    private Comparator<Student> sortComparator(String sortBy, boolean ascending) {
+        String lowerSortBy = sortBy.toLowerCase();
+        if (lowerSortBy.startsWith("course:")) {
+            String courseName = sortBy.substring("course:".length()).trim();
+            if (courseName.isEmpty()) {
+                System.out.println("错误：未指定课程名称进行排序。");
+                return null;
+            }
+            ensureIndexes();
+            if (!courseRegistry.hasCourse(courseName)) {
+                System.out.println("错误：系统中没有关于课程 '" + courseName + "' 的成绩记录，无法排序。");
+                return null;
+            }
+        } else if (!lowerSortBy.equals("id") && !lowerSortBy.equals("totalscore")) {
+            System.out.println("错误：无效的排序依据 '" + sortBy + "'！");
+            return null;
+        }
+        Comparator<Student> comparator = QueryPlanner.comparatorFor(sortBy);
+        return ascending ? comparator : comparator.reversed();
+    }
+
+    /**
+     * 开始一次可分块执行的 Top-K (供 {@link OperationScheduler} 使用)，名册在执行期间不变时结果与 {@link #findTopStudents} 相同。
+     * 本方法是调度器的一步，只检查参数并记下名册顺序日志的位置，记录一个结果条数为 0 的 top 事件；
+     * 之后的每一步见 {@link ChunkedSort}。
+     * @param sortBy 排序字段 ("id", "totalScore", "course:课程名")
+     * @param k 人数
+     * @param ascending 是否升序
+     * @return 分块排序；参数无效时已完成，结果为空列表
+     */
+    ChunkedSort beginTop(String sortBy, int k, boolean ascending) {
+        if (recorder != null) {
+            recorder.recordTop(sortBy, k, ascending);
+        }
+        throttle();
+        ServiceEvents.Operation event = ServiceEvents.begin("top", sortBy);
+        if (k <= 0) {
+            System.out.println("错误：人数必须为正数！");
+            ServiceEvents.end(event, 0, students.size(), false);
+            return ChunkedSort.completed(Collections.emptyList());
+        }
+        return beginChunkedSort(event, sortBy, k, ascending);
+    }
+
+    /**
+     * 开始一次可分块执行的全量排序 (供 {@link OperationScheduler} 使用)，名册在执行期间不变时结果与排序显示的列表相同。
+     * 本方法是调度器的一步，只检查参数并记下名册顺序日志的位置，记录一个结果条数为 0 的 sort 事件；
+     * 之后的每一步见 {@link ChunkedSort}。结果不写入查询缓存。
+     * @param sortBy 排序字段 ("id", "totalScore", "course:课程名")
+     * @param ascending 是否升序
+     * @return 分块排序；参数无效时已完成，结果为空列表
+     */
+    ChunkedSort beginSort(String sortBy, boolean ascending) {
+        if (recorder != null) {
+            recorder.recordSort(sortBy, ascending);
+        }
+        throttle();
+        return beginChunkedSort(ServiceEvents.begin("sort", sortBy), sortBy, Integer.MAX_VALUE, ascending);
+    }
+
+    private ChunkedSort beginChunkedSort(ServiceEvents.Operation event, String sortBy, int limit, boolean ascending) {
+        Comparator<Student> comparator = sortComparator(sortBy, ascending);
+        if (comparator == null) {
+            ServiceEvents.end(event, 0, students.size(), false);
+            return ChunkedSort.completed(Collections.emptyList());
+        }
+        int rosterSize = students.size();
+        ChunkedSort sort = new ChunkedSort(rosterOrder.cursor(), this::readForScan, comparator, limit, sortBy, rosterSize);
+        ServiceEvents.end(event, 0, rosterSize, true); // 这一步只建立排序，各步的处理人数由 sortstep 事件记录
+        return sort;
+    }
+
+    /**
+     * 显示排在最前的 k 名学生。
+     * @param sortBy 排序字段
+     * @param k 人数
+     * @param ascending 是否升序
+     */
+    public void displayTopStudents(String sortBy, int k, boolean ascending) {
+        if (students.isEmpty()) {
+            System.out.println("系统中没有学生信息可供排序。");
             return;
         }
-        if (!ascending) {
-            comparator = comparator.reversed();
+        List<Student> topStudents = findTopStudents(sortBy, k, ascending);
+        if (!topStudents.isEmpty()) {
+            displayStudentList(topStudents, "按 " + sortBy + " " + (ascending ? "升序" : "降序") + " 排在前 " + k + " 名的学生信息");
+        }
+    }
+
+    /**
+     * 添加或更新学生的课程成绩，并同步维护课程登记表、成绩历史与班级趋势。
+     * 通过本方法修改成绩才能保证课程排序与查询缓存正确。
+     * @param studentId 学号
+     * @param course 课程名
+     * @param score 成绩 (0-100)
+     * @return 是否成功
+     */
+    public boolean updateScore(String studentId, String course, double score) {
+        return updateScore(studentId, course, score, System.currentTimeMillis());
+    }
+
+    /**
+     * 添加或更新学生的课程成绩，变更时间由调用方指定 (用于补录历史改分)。
+     * @param studentId 学号
+     * @param course 课程名
+     * @param score 成绩 (0-100)
+     * @param epochMillis 变更时间 (毫秒时间戳)
+     * @return 是否成功
+     */
+    public boolean updateScore(String studentId, String course, double score, long epochMillis) {
+        if (recorder != null) {
+            recorder.recordScore(studentId, course, score);
+        }
+        throttle();
+        ServiceEvents.Operation event = ServiceEvents.begin("score", course);
+        boolean result = applyScore(studentId, course, score, epochMillis);
+        ServiceEvents.end(event, result ? 1 : 0, students.size(), result);
+        return result;
+    }
+
+    private boolean applyScore(String studentId, String course, double score, long epochMillis) {
+        Student student = students.get(studentId);
+        if (student == null) {
+            System.out.println("错误：未找到学号为 " + studentId + " 的学生，成绩未更新！");
+            return false;
         }
+        boolean pinned = pinInCache(studentId);
         try {
-            sortedList.sort(comparator);
-        } catch (Exception e) {
-            System.out.println("排序时发生错误: " + e.getMessage());
+            if (course == null || course.trim().isEmpty() || score < 0 || score > 100) {
+                student.addOrUpdateScore(course, score); // 打印与直接调用一致的警告
+                return false;
+            }
+            ensureIndexes();
+            if (!admitGrowth("成绩未更新")) {
+                return false;
+            }
+            Double previous = student.getScores().get(course.trim());
+            heapAccounting.remove(student); // 按改分前的内容扣除
+            student.addOrUpdateScore(course, score, epochMillis);
+            heapAccounting.add(student);
+            reportUsage();
+            students.put(studentId, student); // 分层存储需要写入新的记录
+            Double current = student.getScores().get(course.trim()); // 补录历史时当前成绩不变
+            if (previous == null) {
+                classTrends.add(student.getClassName(), course.trim(), current, epochMillis);
+            } else if (!previous.equals(current)) {
+                classTrends.change(student.getClassName(), course.trim(), previous, current, epochMillis);
+            }
+            courseRegistry.updateScore(studentId, rosterOrder.get(studentId), student.getClassName(), course.trim(), current);
+            dirtyClasses.add(SecondaryIndex.normalize(student.getClassName()));
+            rosterVersion++;
+            return true;
+        } finally {
+            if (pinned) {
+                unpinInCache(studentId);
+            }
+        }
+    }
+
+    /**
+     * 获取某一时刻的课程成绩。
+     * @param studentId 学号
+     * @param course 课程名
+     * @param epochMillis 时间 (毫秒时间戳)
+     * @return 该时刻的成绩；学生不存在或此前没有变更记录时为空
+     */
+    public OptionalDouble getScoreAsOf(String studentId, String course, long epochMillis) {
+        Student student = students.get(studentId);
+        ScoreHistory history = student == null ? null : student.getScoreHistory(course);
+        if (history == null) {
+            return OptionalDouble.empty();
+        }
+        double score = history.scoreAsOf(epochMillis);
+        return Double.isNaN(score) ? OptionalDouble.empty() : OptionalDouble.of(score);
+    }
+
+    /**
+     * 获取学生在时间窗口内的全部成绩变更。
+     * @param studentId 学号
+     * @param fromMillis 起始时间 (含)，毫秒时间戳
+     * @param toMillis 结束时间 (不含)，毫秒时间戳
+     * @return 课程名 → 变更列表 (按课程名排序，只含有变更的课程)；学生不存在时为空
+     */
+    public Map<String, List<ScoreHistory.Change>> getScoreChanges(String studentId, long fromMillis, long toMillis) {
+        Student student = students.get(studentId);
+        Map<String, List<ScoreHistory.Change>> changes = new TreeMap<>();
+        if (student != null) {
+            for (Map.Entry<String, ScoreHistory> entry : student.getScoreHistories().entrySet()) {
+                List<ScoreHistory.Change> courseChanges = entry.getValue().changesBetween(fromMillis, toMillis);
+                if (!courseChanges.isEmpty()) {
+                    changes.put(entry.getKey(), courseChanges);
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * 打印学生在时间窗口内的成绩变更。
+     * @param studentId 学号
+     * @param fromMillis 起始时间 (含)
+     * @param toMillis 结束时间 (不含)
+     */
+    public void printScoreHistory(String studentId, long fromMillis, long toMillis) {
+        if (!students.containsKey(studentId)) {
+            System.out.println("错误：未找到学号为 " + studentId + " 的学生！");
             return;
         }
+        Map<String, List<ScoreHistory.Change>> changes = getScoreChanges(studentId, fromMillis, toMillis);
+        System.out.println("\n--- 学号 " + studentId + " 的成绩变更 ---");
+        if (changes.isEmpty()) {
+            System.out.println("该时间段内没有成绩变更记录。");
+        }
+        StringBuilder sb = new StringBuilder(64);
+        for (Map.Entry<String, List<ScoreHistory.Change>> entry : changes.entrySet()) {
+            for (ScoreHistory.Change change : entry.getValue()) {
+                sb.setLength(0);
+                sb.append(Timestamps.FORMAT.format(Instant.ofEpochMilli(change.getEpochMillis()))).append("  ")
+                  .append(entry.getKey()).append(": ");
+                if (Double.isNaN(change.getPreviousScore())) {
+                    sb.append("录入 ");
+                } else {
+                    Decimals.appendFixed(sb, change.getPreviousScore(), 1).append(" -> ");
+                }
+                Decimals.appendFixed(sb, change.getScore(), 1);
+                System.out.println(sb);
+            }
+        }
+        System.out.println("--------------------");
+    }
 
-        String sortOrder = ascending ? "升序" : "降序";
-        displayStudentList(sortedList, "按 " + sortFieldDescription + " " + sortOrder + " 排序后的学生信息");
+    /**
+     * 获取班级某门课程平均分的每日趋势 (增量维护，不遍历名册)。
+     * @param className 班级
+     * @param course 课程名
+     * @return 按日期排序的数据点
+     */
+    public List<ClassScoreTrends.Point> getClassTrend(String className, String course) {
+        ensureIndexes();
+        return classTrends.getTrend(className, course);
+    }
+
+    /**
+     * 打印班级某门课程平均分的每日趋势。
+     * @param className 班级
+     * @param course 课程名
+     */
+    public void printClassTrend(String className, String course) {
+        List<ClassScoreTrends.Point> points = getClassTrend(className, course);
+        System.out.println("\n--- 班级 " + className + " 课程 '" + course + "' 平均分趋势 ---");
+        if (points.isEmpty()) {
+            System.out.println("没有该班级该课程的成绩记录。");
+        }
+        StringBuilder sb = new StringBuilder(64);
+        for (ClassScoreTrends.Point point : points) {
+            sb.setLength(0);
+            sb.append(point.getDay()).append("  平均分: ");
+            Decimals.appendFixed(sb, point.getAverage(), 2)
+              .append(", 人数: ").append(point.getStudentCount())
+              .append(", 当日变动: ").append(point.getChangeCount());
+            System.out.println(sb);
+        }
+        System.out.println("--------------------");
+    }
+
+    /**
+     * 获取所有课程及选课人数。
+     * @return 课程名 → 选课人数 (按课程名排序)
+     */
+    public Map<String, Integer> getCourseEnrollments() {
+        ensureIndexes();
+        return courseRegistry.getEnrollments();
+    }
+
+    /**
+     * 打印所有课程及选课人数。
+     */
+    public void printCourseEnrollments() {
+        ensureIndexes();
+        Map<String, Integer> enrollments = courseRegistry.getEnrollments();
+        System.out.println("\n--- 课程选课人数 ---");
+        if (enrollments.isEmpty()) {
+            System.out.println("暂无课程成绩记录。");
+        }
+        enrollments.forEach((course, count) -> System.out.println(course + ": " + count + " 人"));
+        System.out.println("--------------------");
+    }
+
+    /**
+     * 课程成绩统计：人数、平均分、最高/最低分、低于阈值的人数和分数段人数。
+     * 直接扫描课程登记表中的成绩列，不遍历名册。
+     * @param course 课程名
+     * @param className 班级，为空表示全部选课学生
+     * @param threshold 统计低于该分数 (不含) 的人数，如 60
+     * @return 统计结果；课程不存在时打印提示并返回 null
+     */
+    public ScoreStats getCourseStats(String course, String className, double threshold) {
+        if (course == null || course.trim().isEmpty()) {
+            System.out.println("警告：课程名不能为空。");
+            return null;
+        }
+        ensureIndexes();
+        String classKey = className == null || className.trim().isEmpty() ? null : className;
+        ScoreStats stats = courseRegistry.stats(course.trim(), classKey, threshold);
+        if (stats == null) {
+            System.out.println("提示：没有课程 '" + course.trim() + "' 的成绩记录。");
+        }
+        return stats;
+    }
+
+    /**
+     * 打印课程成绩统计。
+     * @param course 课程名
+     * @param className 班级，为空表示全部选课学生
+     * @param threshold 统计低于该分数 (不含) 的人数
+     */
+    public void printCourseStats(String course, String className, double threshold) {
+        ScoreStats stats = getCourseStats(course, className, threshold);
+        if (stats == null) {
+            return;
+        }
+        String scope = stats.getClassName() == null ? "" : stats.getClassName().trim() + " ";
+        System.out.println("\n--- " + scope + stats.getCourse() + " 成绩统计 ---");
+        System.out.println("人数: " + stats.getCount());
+        if (stats.getCount() > 0) {
+            System.out.printf("平均分: %.2f, 最高分: %.1f, 最低分: %.1f%n", stats.getAverage(), stats.getMax(), stats.getMin());
+            System.out.printf("低于 %.1f 分: %d 人 (%.1f%%)%n", stats.getThreshold(), stats.getBelowThreshold(), 100.0 * stats.getBelowThreshold() / stats.getCount());
+            int[] buckets = stats.getBuckets();
+            for (int k = 0; k < buckets.length; k++) {
+                int low = k * ScoreStats.BUCKET_WIDTH;
+                int high = k == buckets.length - 1 ? 100 : low + ScoreStats.BUCKET_WIDTH - 1;
+                System.out.printf("%3d-%-3d: %d%n", low, high, buckets[k]);
+            }
+        }
+        System.out.println("--------------------");
+    }
+
+    /**
+     * 按地区查找学生 (省份必填，城市、街道留空表示不限)，结果按名册顺序排列。
+     * 名册未变化时重复查询直接返回缓存结果 (只读列表)。
+     * @param province 省份
+     * @param city 城市，可为空
+     * @param street 街道，可为空 (城市为空时忽略)
+     * @return 学生列表；省份为空时打印警告并返回空列表
+     */
+    public List<Student> findStudentsByRegion(String province, String city, String street) {
+        if (recorder != null) {
+            recorder.recordRegion(province, city, street);
+        }
+        throttle();
+        ServiceEvents.Operation event = ServiceEvents.begin("search", "region");
+        List<Student> result = lookupRegion(province, city, street);
+        ServiceEvents.end(event, result.size(), students.size(), province != null && !province.trim().isEmpty());
+        return result;
+    }
+
+    private List<Student> lookupRegion(String province, String city, String street) {
+        if (province == null || province.trim().isEmpty()) {
+            System.out.println("警告：省份不能为空。");
+            return Collections.emptyList();
+        }
+        String cityKey = city == null || city.trim().isEmpty() ? null : city;
+        String streetKey = cityKey == null || street == null || street.trim().isEmpty() ? null : street;
+        ensureIndexes();
+        String cacheKey = QueryCache.key("region", SecondaryIndex.normalize(province),
+                String.valueOf(SecondaryIndex.normalize(cityKey)), String.valueOf(SecondaryIndex.normalize(streetKey)));
+        List<Student> cached = queryCache.get(cacheKey, rosterVersion);
+        if (cached != null) {
+            return cached;
+        }
+        List<String> ids = new ArrayList<>(regionIndex.lookup(province, cityKey, streetKey));
+        ids.sort(Comparator.comparingLong(rosterOrder::get));
+        List<Student> results = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            results.add(readForScan(id));
+        }
+        List<Student> readOnly = Collections.unmodifiableList(results);
+        queryCache.put(cacheKey, rosterVersion, readOnly);
+        return readOnly;
+    }
+
+    /**
+     * 获取下一级地区的人数 (由地区索引直接给出，不遍历名册)。
+     * @param province 省份，为空时返回各省人数
+     * @param city 城市，为空时返回该省各城市人数，否则返回该市各街道人数
+     * @return 地区名 → 人数 (按地区名排序)
+     */
+    public Map<String, Integer> getRegionCounts(String province, String city) {
+        ensureIndexes();
+        String provinceKey = province == null || province.trim().isEmpty() ? null : province;
+        String cityKey = provinceKey == null || city == null || city.trim().isEmpty() ? null : city;
+        return regionIndex.childCounts(provinceKey, cityKey);
+    }
+
+    /**
+     * 打印下一级地区的人数。
+     * @param province 省份，为空时打印各省人数
+     * @param city 城市，为空时打印该省各城市人数
+     */
+    public void printRegionCounts(String province, String city) {
+        Map<String, Integer> counts = getRegionCounts(province, city);
+        boolean allProvinces = province == null || province.trim().isEmpty();
+        boolean allCities = allProvinces || city == null || city.trim().isEmpty();
+        String scope = allProvinces ? "各省份" : allCities ? province.trim() + " 各城市" : province.trim() + city.trim() + " 各街道";
+        System.out.println("\n--- " + scope + "人数 ---");
+        if (counts.isEmpty()) {
+            System.out.println("没有该地区的学生。");
+        }
+        counts.forEach((region, count) -> System.out.println(region + ": " + count + " 人"));
+        System.out.println("--------------------");
+    }
+
+    /**
+     * 模糊查询：按编辑距离相似度查找姓名、研究方向或导师与输入相近的学生 (忽略空白与大小写)。
+     * 结果按相似度从高到低排列，相似度相同时按名册顺序；一名学生有多个字段匹配时只保留相似度最高的一个。
+     * 名册未变化时重复查询直接返回缓存结果 (只读列表)。
+     * @param text 查询文本
+     * @param fields 参与匹配的字段，为空表示全部字段
+     * @param minSimilarity 相似度阈值 (0-1]
+     * @param limit 最多返回的条数 (大于 0)
+     * @return 匹配结果；参数无效时打印警告并返回空列表
+     */
+    public List<FuzzyMatch> fuzzySearch(String text, Set<FuzzyMatch.Field> fields, double minSimilarity, int limit) {
+        if (recorder != null) {
+            recorder.recordFuzzy(text, fields, minSimilarity, limit);
+        }
+        throttle();
+        ServiceEvents.Operation event = ServiceEvents.begin("search", "fuzzy");
+        List<FuzzyMatch> result = matchFuzzy(text, fields, minSimilarity, limit);
+        ServiceEvents.end(event, result.size(), students.size(), text != null && !text.trim().isEmpty() && minSimilarity > 0 && minSimilarity <= 1 && limit > 0);
+        return result;
+    }
+
+    private List<FuzzyMatch> matchFuzzy(String text, Set<FuzzyMatch.Field> fields, double minSimilarity, int limit) {
+        if (text == null || text.trim().isEmpty()) {
+            System.out.println("警告：查询关键字不能为空。");
+            return Collections.emptyList();
+        }
+        if (!(minSimilarity > 0 && minSimilarity <= 1) || limit <= 0) {
+            System.out.println("警告：相似度阈值应在 (0, 1] 内，返回条数应大于 0。");
+            return Collections.emptyList();
+        }
+        Set<FuzzyMatch.Field> targets = fields == null || fields.isEmpty() ? EnumSet.allOf(FuzzyMatch.Field.class) : EnumSet.copyOf(fields);
+        ensureIndexes();
+        String cacheKey = QueryCache.key("fuzzy", FuzzyIndex.normalize(text), targets.toString(), String.valueOf(minSimilarity), String.valueOf(limit));
+        List<FuzzyMatch> cached = queryCache.get(cacheKey, rosterVersion);
+        if (cached != null) {
+            return cached;
+        }
+        List<FuzzyMatch> candidates = new ArrayList<>(); // 每个匹配的值一条 (学生为空)，按相似度从高到低
+        Map<FuzzyMatch, Set<String>> idsByMatch = new IdentityHashMap<>();
+        for (FuzzyMatch.Field field : targets) {
+            for (FuzzyIndex.TermMatch match : fuzzyIndexes.get(field).search(text, minSimilarity)) {
+                FuzzyMatch candidate = new FuzzyMatch(null, field, match.term, match.similarity);
+                candidates.add(candidate);
+                idsByMatch.put(candidate, match.studentIds);
+            }
+        }
+        candidates.sort(Comparator.comparingDouble(FuzzyMatch::getSimilarity).reversed());
+        // 按相似度分层取结果，够 limit 条即停止；同一层内只保留名册顺序最靠前的若干名，大量同分学生不需要排序
+        List<FuzzyMatch> results = new ArrayList<>();
+        Set<String> taken = new HashSet<>(); // 已在更高层取到的学号 (一名学生只保留相似度最高的字段)
+        for (int i = 0; i < candidates.size() && results.size() < limit; ) {
+            double similarity = candidates.get(i).getSimilarity();
+            int room = limit - results.size();
+            TreeMap<Long, FuzzyMatch> level = new TreeMap<>(); // 名册顺序号 → 匹配 (学号取自 rosterIds)
+            Map<Long, String> rosterIds = new HashMap<>();
+            for (; i < candidates.size() && candidates.get(i).getSimilarity() == similarity; i++) {
+                FuzzyMatch candidate = candidates.get(i);
+                for (String id : idsByMatch.get(candidate)) {
+                    long order = rosterOrder.get(id);
+                    if (level.size() == room && order >= level.lastKey() || taken.contains(id)) {
+                        continue;
+                    }
+                    if (level.putIfAbsent(order, candidate) == null) { // 同一学生多个字段相似度相同时保留先出现的字段
+                        rosterIds.put(order, id);
+                        if (level.size() > room) {
+                            rosterIds.remove(level.pollLastEntry().getKey());
+                        }
+                    }
+                }
+            }
+            for (Map.Entry<Long, FuzzyMatch> entry : level.entrySet()) {
+                String id = rosterIds.get(entry.getKey());
+                FuzzyMatch match = entry.getValue();
+                results.add(new FuzzyMatch(readForScan(id), match.getField(), match.getMatchedValue(), similarity));
+                taken.add(id);
+            }
+        }
+        List<FuzzyMatch> readOnly = Collections.unmodifiableList(results);
+        queryCache.put(cacheKey, rosterVersion, readOnly);
+        return readOnly;
+    }
+
+    /**
+     * 打印模糊查询结果。
+     * @param matches {@link #fuzzySearch} 的结果
+     */
+    public void printFuzzyMatches(List<FuzzyMatch> matches) {
+        System.out.println("\n--- 模糊查询结果 ---");
+        if (matches.isEmpty()) {
+            System.out.println("没有相似的学生。");
+        }
+        for (FuzzyMatch match : matches) {
+            Student student = match.getStudent();
+            System.out.printf("%.2f  %s: %s  | %s %s (%s)%n", match.getSimilarity(), match.getField().getDescription(),
+                    match.getMatchedValue(), student.getStudentId(), student.getName(), student.getClassName());
+        }
+        System.out.println("共 " + matches.size() + " 条");
+        System.out.println("--------------------");
     }
 
     /**
      * 打印学生人数统计。
      */
     public void printStudentCounts() {
+        if (recorder != null) {
+            recorder.recordCount();
+        }
+        throttle();
+        ServiceEvents.Operation event = ServiceEvents.begin("count", null);
         long total = students.size();
         long undergraduateCount = students.values().stream().filter(s -> s instanceof Undergraduate).count();
         long graduateCount = total - undergraduateCount;
@@ -218,6 +1176,418 @@ public class StudentManagementSystem {
         System.out.println("本科生: " + undergraduateCount);
         System.out.println("研究生: " + graduateCount);
         System.out.println("--------------------");
+        ServiceEvents.end(event, 1, students.size(), true);
+    }
+
+    /**
+     * 打印存储统计 (仅分层存储有缓存统计)。
+     */
+    public void printStorageStats() {
+        System.out.println("\n--- 存储统计 ---");
+        if (students instanceof TieredStudentMap) {
+            System.out.println(((TieredStudentMap) students).statsString());
+        } else if (students instanceof OffHeapStudentMap) {
+            System.out.println(((OffHeapStudentMap) students).statsString());
+        } else {
+            System.out.println("内存存储，共 " + students.size() + " 条记录。");
+        }
+        System.out.println("查询缓存: " + queryCache.size() + " 条 (共 " + queryCache.getTotalElements() + " 个结果元素), 命中: " + queryCache.getHitCount() + ", 未命中: " + queryCache.getMissCount() + ", 名册版本: " + rosterVersion);
+        System.out.println("二级索引: " + (indexesReady ? String.format("已建立 (耗时 %.1f ms)", indexBuildNanos / 1e6) : "尚未建立"));
+        System.out.println("--------------------");
+    }
+
+    /**
+     * 获取名册及其数据结构的内存占用估算。估算随增删改增量维护，调用本身不遍历名册。
+     * @return 估算结果
+     */
+    public MemoryFootprint getMemoryFootprint() {
+        ensureIndexes();
+        long storeBytes = 0;
+        boolean resident = true;
+        if (students instanceof IdIndexedStudentMap) {
+            storeBytes = ((IdIndexedStudentMap) students).structureBytes();
+        } else if (students instanceof HashMap) {
+            storeBytes = ObjectSizes.hashMapSize(students.size());
+        } else {
+            resident = false; // 分层存储、堆外存储：学生对象只在缓存中常驻
+        }
+        return heapAccounting.snapshot(students.size(), storeBytes, resident);
+    }
+
+    /**
+     * 打印内存占用估算：各组成部分、学生类型，以及占用最多的班级与课程。
+     * @param limit 班级与课程各显示的条数
+     */
+    public void printMemoryFootprint(int limit) {
+        MemoryFootprint footprint = getMemoryFootprint();
+        long total = footprint.getTotalBytes();
+        System.out.println("\n--- 内存占用估算 ---");
+        System.out.println(String.format("学生人数: %d, 合计: %s (平均每人 %s)", footprint.getStudentCount(), formatBytes(total),
+                formatBytes(footprint.getStudentCount() == 0 ? 0 : total / footprint.getStudentCount())));
+        if (!footprint.isResident()) {
+            System.out.println("注意：当前存储只在缓存中保留部分学生，以下为全部学生常驻内存时的估算，存储结构本身未计入。");
+        }
+        for (Map.Entry<MemoryFootprint.Component, Long> entry : footprint.getComponents().entrySet()) {
+            System.out.println(String.format("  %s: %s (%.1f%%)", entry.getKey().getDescription(), formatBytes(entry.getValue()),
+                    total == 0 ? 0.0 : 100.0 * entry.getValue() / total));
+        }
+        System.out.println("按学生类型:");
+        footprint.getByType().forEach((type, bytes) -> System.out.println("  " + type + ": " + formatBytes(bytes)));
+        printLargest("按班级", footprint.getByClass(), limit);
+        printLargest("按课程", footprint.getByCourse(), limit);
+        System.out.println("--------------------");
+    }
+
+    private static void printLargest(String title, Map<String, Long> bytesByKey, int limit) {
+        System.out.println(title + " (共 " + bytesByKey.size() + " 项" + (bytesByKey.size() > limit ? ", 显示最大的 " + limit + " 项" : "") + "):");
+        int shown = 0;
+        for (Map.Entry<String, Long> entry : bytesByKey.entrySet()) {
+            if (shown++ >= limit) {
+                break;
+            }
+            System.out.println("  " + entry.getKey() + ": " + formatBytes(entry.getValue()));
+        }
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / 1048576.0);
+    }
+
+    /**
+     * 关闭底层存储，分层存储会写回修改并刷盘。
+     * @throws IOException 写回失败时抛出
+     */
+    @Override
+    public void close() throws IOException {
+        if (indexBuilder != null) {
+            ensureIndexes(); // 后台线程仍在读取存储文件，等待其结束后再关闭
+        }
+        if (reportExecutor != null && !sharedReportExecutor) {
+            reportExecutor.shutdown();
+        }
+        if (students instanceof Closeable) {
+            ((Closeable) students).close();
+        }
+    }
+
+    /**
+     * 按课程成绩排序，结果与对整个名册做稳定排序 (未选课按 0 分) 一致。
+     * 选课学生直接取课程登记表中预排好序的成绩列；成绩为 0 的一段 (含未选课学生) 按名册顺序排列，
+     * 这一段需要遍历名册收集。
+     */
+    private List<Student> sortByCourse(String courseName, boolean ascending) {
+        CourseRegistry.SortedColumn column = courseRegistry.getSortedColumn(courseName);
+        List<Student> zeroBlock = new ArrayList<>();
+        for (Student student : students.values()) {
+            if (Double.compare(student.getScore(courseName), 0.0) == 0) {
+                zeroBlock.add(student);
+            }
+        }
+        int n = column.size();
+        int firstZero = 0;
+        while (firstZero < n && Double.compare(column.scores[firstZero], 0.0) < 0) {
+            firstZero++;
+        }
+        int firstPositive = firstZero;
+        while (firstPositive < n && Double.compare(column.scores[firstPositive], 0.0) == 0) {
+            firstPositive++;
+        }
+
+        List<Student> sortedList = new ArrayList<>(students.size());
+        if (ascending) {
+            appendColumn(sortedList, column, 0, firstZero, true);
+            sortedList.addAll(zeroBlock);
+            appendColumn(sortedList, column, firstPositive, n, true);
+        } else {
+            appendColumn(sortedList, column, firstPositive, n, false);
+            sortedList.addAll(zeroBlock);
+            appendColumn(sortedList, column, 0, firstZero, false);
+        }
+        return sortedList;
+    }
+
+    /**
+     * 追加成绩列中 [from, to) 的学生；降序时按成绩分组倒序，组内仍保持名册顺序。
+     */
+    private void appendColumn(List<Student> target, CourseRegistry.SortedColumn column, int from, int to, boolean ascending) {
+        if (ascending) {
+            for (int i = from; i < to; i++) {
+                target.add(readForScan(column.studentIds[i]));
+            }
+            return;
+        }
+        int groupEnd = to;
+        while (groupEnd > from) {
+            int groupStart = groupEnd - 1;
+            while (groupStart > from && Double.compare(column.scores[groupStart - 1], column.scores[groupEnd - 1]) == 0) {
+                groupStart--;
+            }
+            for (int i = groupStart; i < groupEnd; i++) {
+                target.add(readForScan(column.studentIds[i]));
+            }
+            groupEnd = groupStart;
+        }
+    }
+
+    /**
+     * 生成班级成绩报告：每个班级一个文件 (总分排名、各课程平均分、不及格学生)，写入给定目录。
+     * 只重新生成上次生成后有过增删改或成绩变动的班级，以及报告文件缺失的班级；已无学生的班级删除其报告。
+     * 换了目录或 force 为 true 时全部重新生成。渲染与写文件在线程池中并行执行。
+     * @param directory 输出目录，不存在时创建
+     * @param force 是否全部重新生成
+     * @return 是否全部成功
+     */
+    public boolean generateClassReports(String directory, boolean force) {
+        if (recorder != null) {
+            recorder.recordReport(directory, force);
+        }
+        if (directory == null || directory.trim().isEmpty()) {
+            System.out.println("警告：报告目录不能为空。");
+            return false;
+        }
+        long start = System.nanoTime();
+        Path dir = Paths.get(directory.trim()).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            System.out.println("错误：无法创建报告目录 " + dir + " (" + e.getMessage() + ")");
+            return false;
+        }
+        ensureIndexes();
+        if (force || !dir.equals(reportDirectory)) {
+            reportedClasses.clear();
+        }
+        reportedClasses.removeAll(dirtyClasses);
+        Set<String> classes = new TreeSet<>(classIndex.keys());
+        classes.addAll(dirtyClasses); // 含已无学生的班级
+        List<ClassReportWriter.ClassSnapshot> snapshots = new ArrayList<>();
+        int skipped = 0;
+        for (String key : classes) {
+            if (reportedClasses.contains(key) && Files.exists(dir.resolve(ClassReportWriter.fileName(key)))) {
+                skipped++;
+                continue;
+            }
+            List<String> ids = new ArrayList<>(classIndex.lookup(key));
+            ids.sort(Comparator.comparingLong(rosterOrder::get));
+            List<Student> members = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                members.add(readForScan(id));
+            }
+            String displayName = members.isEmpty() ? key : members.get(0).getClassName().trim();
+            snapshots.add(new ClassReportWriter.ClassSnapshot(key, displayName, members));
+        }
+        long collected = System.nanoTime();
+        if (reportExecutor == null) {
+            reportExecutor = ClassReportWriter.newExecutor();
+        }
+        Map<String, String> failures = ClassReportWriter.writeAll(dir, snapshots,
+                Timestamps.FORMAT.format(Instant.now()), reportExecutor);
+        long written = System.nanoTime();
+        int generated = 0;
+        int removed = 0;
+        for (ClassReportWriter.ClassSnapshot snapshot : snapshots) {
+            if (failures.containsKey(snapshot.key)) {
+                continue;
+            }
+            dirtyClasses.remove(snapshot.key);
+            if (snapshot.students.isEmpty()) {
+                reportedClasses.remove(snapshot.key);
+                removed++;
+            } else {
+                reportedClasses.add(snapshot.key);
+                generated++;
+            }
+        }
+        reportDirectory = dir;
+
+        System.out.println("\n--- 班级成绩报告 ---");
+        System.out.println("目录: " + dir);
+        System.out.println("生成: " + generated + " 个, 删除: " + removed
+                + " 个 (班级已无学生), 跳过: " + skipped + " 个 (无变动), 失败: " + failures.size() + " 个");
+        failures.forEach((key, message) -> System.out.println("  " + key + ": " + message));
+        System.out.printf("耗时: %.1f ms (收集 %.1f ms, 并行渲染写出 %.1f ms)%n",
+                (written - start) / 1e6, (collected - start) / 1e6, (written - collected) / 1e6);
+        System.out.println("--------------------");
+        return failures.isEmpty();
+    }
+
+    /**
+     * 挂上 (或取下) 工作负载记录器，之后的服务调用会被写入轨迹。记录器由调用方负责关闭。
+     * @param recorder 记录器；为 null 时停止记录
+     */
+    public void setWorkloadRecorder(WorkloadRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * 租户限速：取得一次调用的令牌，超出每秒调用数时等待。
+     */
+    private void throttle() {
+        if (tenantGuard != null) {
+            tenantGuard.acquire();
+        }
+    }
+
+    /**
+     * 检查租户内存上限，已达上限时打印错误。
+     * @param consequence 拒绝时提示的后果 (如 "学生未添加")
+     * @return 能否新增数据
+     */
+    private boolean admitGrowth(String consequence) {
+        if (tenantGuard == null || tenantGuard.admitGrowth()) {
+            return true;
+        }
+        System.out.println("错误：租户 " + tenantGuard.getTenantId() + " 的学生数据已达内存上限 ("
+                + formatBytes(tenantGuard.getQuota().getMaxHeapBytes()) + ")，" + consequence + "！");
+        return false;
+    }
+
+    private void reportUsage() {
+        if (tenantGuard != null) {
+            tenantGuard.updateUsage(heapAccounting.totalBytes(), students.size());
+        }
+    }
+
+    /**
+     * 确保二级索引已建立：后台建立中则等待，尚未建立则就地建立。
+     */
+    private void ensureIndexes() {
+        if (indexesReady) {
+            return;
+        }
+        if (indexBuilder != null) {
+            boolean interrupted = false;
+            while (indexBuilder.isAlive()) {
+                try {
+                    indexBuilder.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            indexBuilder = null;
+            if (indexBuildFailure == null) {
+                return;
+            }
+            System.out.println("警告：后台建立索引失败 (" + indexBuildFailure.getMessage() + ")，改为重新建立。");
+            indexBuildFailure = null;
+            resetIndexes();
+        }
+        buildIndexes(students.values(), IndexBuildMode.LAZY);
+    }
+
+    private void buildIndexes(Iterable<Student> source, IndexBuildMode mode) {
+        ServiceEvents.IndexBuild event = ServiceEvents.beginIndexBuild();
+        long start = System.nanoTime();
+        for (Student student : source) {
+            rosterOrder.assign(student.getStudentId());
+            indexStudent(student);
+        }
+        indexBuildNanos = System.nanoTime() - start;
+        ServiceEvents.endIndexBuild(event, mode.name(), rosterOrder.size());
+        dirtyClasses.clear(); // 尚未生成过报告，所有班级都需要生成，不需要逐个标记
+        indexesReady = true;
+    }
+
+    private void resetIndexes() {
+        rosterOrder.clear();
+        classIndex.clear();
+        supervisorIndex.clear();
+        courseRegistry.clear();
+        regionIndex.clear();
+        classTrends.clear();
+        fuzzyIndexes.values().forEach(FuzzyIndex::clear);
+        heapAccounting.clear();
+        dirtyClasses.clear();
+        reportedClasses.clear();
+        indexesReady = false;
+    }
+
+    /**
+     * 二级索引是否已建立完成。
+     * @return 是否已建立
+     */
+    public boolean isIndexReady() {
+        return indexesReady;
+    }
+
+    /**
+     * 获取最近一次建立二级索引的耗时。
+     * @return 纳秒；尚未建立时为 0
+     */
+    public long getIndexBuildNanos() {
+        return indexBuildNanos;
+    }
+
+    private void indexStudent(Student student) {
+        dirtyClasses.add(SecondaryIndex.normalize(student.getClassName()));
+        heapAccounting.add(student);
+        reportUsage();
+        courseRegistry.register(student, rosterOrder.get(student.getStudentId()));
+        classIndex.add(student.getClassName(), student.getStudentId());
+        regionIndex.add(student.getAddress(), student.getStudentId());
+        fuzzyIndexes.get(FuzzyMatch.Field.NAME).add(student.getName(), student.getStudentId());
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Double> entry : student.getScores().entrySet()) {
+            classTrends.add(student.getClassName(), entry.getKey(), entry.getValue(), now);
+        }
+        if (student instanceof Graduate) {
+            Graduate graduate = (Graduate) student;
+            supervisorIndex.add(graduate.getSupervisor(), student.getStudentId());
+            fuzzyIndexes.get(FuzzyMatch.Field.RESEARCH_DIRECTION).add(graduate.getResearchDirection(), student.getStudentId());
+            fuzzyIndexes.get(FuzzyMatch.Field.SUPERVISOR).add(graduate.getSupervisor(), student.getStudentId());
+        }
+    }
+
+    private void unindexStudent(Student student, String studentId) {
+        dirtyClasses.add(SecondaryIndex.normalize(student.getClassName()));
+        heapAccounting.remove(student);
+        reportUsage();
+        courseRegistry.unregister(student, studentId);
+        classIndex.remove(student.getClassName(), studentId);
+        regionIndex.remove(student.getAddress(), studentId);
+        fuzzyIndexes.get(FuzzyMatch.Field.NAME).remove(student.getName(), studentId);
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Double> entry : student.getScores().entrySet()) {
+            classTrends.remove(student.getClassName(), entry.getKey(), entry.getValue(), now);
+        }
+        if (student instanceof Graduate) {
+            Graduate graduate = (Graduate) student;
+            supervisorIndex.remove(graduate.getSupervisor(), studentId);
+            fuzzyIndexes.get(FuzzyMatch.Field.RESEARCH_DIRECTION).remove(graduate.getResearchDirection(), studentId);
+            fuzzyIndexes.get(FuzzyMatch.Field.SUPERVISOR).remove(graduate.getSupervisor(), studentId);
+        }
+    }
+
+    /**
+     * 获取名册版本号，每次成功的增删改都会使其递增。
+     * @return 名册版本号
+     */
+    public long getRosterVersion() {
+        return rosterVersion;
+    }
+
+    /**
+     * 清空查询缓存。直接修改了学生对象 (未经过本服务) 后应调用。
+     */
+    public void invalidateQueryCache() {
+        queryCache.clear();
+    }
+
+    /**
+     * 获取学生总数。
+     * @return 学生总数
+     */
+    public int getStudentCount() {
+        return students.size();
     }
 
     /**
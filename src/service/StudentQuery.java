@@ -0,0 +1,187 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 组合查询。
+ * <p>
+ * 文本语法为空白分隔的若干条件 (值中不能含空白)：
+ * <pre>
+ *   id:U24001              学号精确匹配
+ *   type:graduate          学生类型 (undergraduate/graduate, 或 本科生/研究生)
+ *   class:计算机2401        班级精确匹配 (忽略大小写)
+ *   name:张                 姓名包含
+ *   supervisor:赵教授       导师精确匹配 (忽略大小写)
+ *   major:软件工程          专业精确匹配 (忽略大小写)
+ *   course:Java&gt;85         课程成绩比较，支持 &gt; &gt;= &lt; &lt;= =
+ *   sort:totalScore:desc,id 排序键，支持 id、name、age、totalScore、course:课程名，可加 :asc/:desc
+ *   limit:20               返回条数上限
+ * </pre>
+ */
+public class StudentQuery {
+    private String studentId;
+    private String type;
+    private String className;
+    private String nameContains;
+    private String supervisor;
+    private String major;
+    private final List<CourseCondition> courseConditions = new ArrayList<>();
+    private final List<SortKey> sortKeys = new ArrayList<>();
+    private int limit; // 0 表示不限
+
+    /**
+     * 课程成绩比较条件。
+     */
+    public static final class CourseCondition {
+        private final String course;
+        private final String operator;
+        private final double value;
+
+        CourseCondition(String course, String operator, double value) {
+            this.course = course;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        public String getCourse() { return course; }
+        public String getOperator() { return operator; }
+        public double getValue() { return value; }
+
+        @Override
+        public String toString() {
+            return "course:" + course + " " + operator + " " + value;
+        }
+    }
+
+    /**
+     * 排序键。
+     */
+    public static final class SortKey {
+        private final String field; // id、name、age、totalscore 或 course:课程名
+        private final boolean descending;
+
+        SortKey(String field, boolean descending) {
+            this.field = field;
+            this.descending = descending;
+        }
+
+        public String getField() { return field; }
+        public boolean isDescending() { return descending; }
+
+        @Override
+        public String toString() {
+            return field + (descending ? " DESC" : " ASC");
+        }
+    }
+
+    /**
+     * 解析查询文本。
+     * @param text 查询文本
+     * @return 查询对象
+     * @throws IllegalArgumentException 语法错误时抛出
+     */
+    public static StudentQuery parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("查询语句不能为空");
+        }
+        StudentQuery query = new StudentQuery();
+        for (String token : text.trim().split("\\s+")) {
+            int colon = token.indexOf(':');
+            if (colon <= 0 || colon == token.length() - 1) {
+                throw new IllegalArgumentException("无法识别的查询条件 '" + token + "'");
+            }
+            String key = token.substring(0, colon).toLowerCase();
+            String value = token.substring(colon + 1);
+            switch (key) {
+                case "id": query.studentId = value; break;
+                case "type": query.type = parseType(value); break;
+                case "class": query.className = value; break;
+                case "name": query.nameContains = value; break;
+                case "supervisor": query.supervisor = value; break;
+                case "major": query.major = value; break;
+                case "course": query.courseConditions.add(parseCourseCondition(value)); break;
+                case "sort": parseSortKeys(value, query.sortKeys); break;
+                case "limit":
+                    try {
+                        query.limit = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("limit 必须为整数: '" + value + "'");
+                    }
+                    if (query.limit <= 0) {
+                        throw new IllegalArgumentException("limit 必须为正数");
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知的查询字段 '" + key + "'");
+            }
+        }
+        return query;
+    }
+
+    private static String parseType(String value) {
+        String lower = value.toLowerCase();
+        if (lower.equals("undergraduate") || lower.equals("ug") || value.equals("本科生")) {
+            return "undergraduate";
+        }
+        if (lower.equals("graduate") || lower.equals("g") || value.equals("研究生")) {
+            return "graduate";
+        }
+        throw new IllegalArgumentException("未知的学生类型 '" + value + "'");
+    }
+
+    private static CourseCondition parseCourseCondition(String value) {
+        String[] operators = {">=", "<=", ">", "<", "="};
+        for (String operator : operators) {
+            int index = value.indexOf(operator);
+            if (index > 0) {
+                String course = value.substring(0, index).trim();
+                String number = value.substring(index + operator.length()).trim();
+                try {
+                    return new CourseCondition(course, operator, Double.parseDouble(number));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("课程条件中的分数无效: '" + value + "'");
+                }
+            }
+        }
+        throw new IllegalArgumentException("课程条件缺少比较运算符: '" + value + "'");
+    }
+
+    private static void parseSortKeys(String value, List<SortKey> sortKeys) {
+        for (String item : value.split(",")) {
+            String field = item.trim();
+            boolean descending = false;
+            String lower = field.toLowerCase();
+            if (lower.endsWith(":desc")) {
+                descending = true;
+                field = field.substring(0, field.length() - ":desc".length());
+            } else if (lower.endsWith(":asc")) {
+                field = field.substring(0, field.length() - ":asc".length());
+            }
+            String lowerField = field.toLowerCase();
+            if (lowerField.startsWith("course:")) {
+                String course = field.substring("course:".length()).trim();
+                if (course.isEmpty()) {
+                    throw new IllegalArgumentException("排序键未指定课程名称");
+                }
+                sortKeys.add(new SortKey("course:" + course, descending));
+            } else if (lowerField.equals("id") || lowerField.equals("name") || lowerField.equals("age") || lowerField.equals("totalscore")) {
+                sortKeys.add(new SortKey(lowerField, descending));
+            } else {
+                throw new IllegalArgumentException("无效的排序键 '" + field + "'");
+            }
+        }
+    }
+
+    // --- Getters ---
+    public String getStudentId() { return studentId; }
+    public String getType() { return type; }
+    public String getClassName() { return className; }
+    public String getNameContains() { return nameContains; }
+    public String getSupervisor() { return supervisor; }
+    public String getMajor() { return major; }
+    public List<CourseCondition> getCourseConditions() { return Collections.unmodifiableList(courseConditions); }
+    public List<SortKey> getSortKeys() { return Collections.unmodifiableList(sortKeys); }
+    public int getLimit() { return limit; }
+}
@@ -0,0 +1,84 @@
+package service;
+
+/**
+ * 单个租户的配额执行与计数：令牌桶限制每秒调用数，内存上限限制新增数据。线程安全。
+ * <p>
+ * 服务在每个公开操作的入口调用 {@link #acquire()}，令牌不足时在调用线程上等待，
+ * 批量导入因此被压到配额速率，不会占满 CPU 拖慢其他租户的查询。
+ * 学生加入或移出索引后服务调用 {@link #updateUsage}，新增数据前用 {@link #admitGrowth()} 检查内存上限。
+ */
+class TenantGuard {
+    private final String tenantId;
+    private final TenantQuota quota;
+    private final long nanosPerToken;
+    private double tokens;
+    private long refilledAt;
+
+    private long operations;
+    private long throttledOperations;
+    private long throttleWaitNanos;
+    private long rejectedWrites;
+    private volatile long heapBytes;
+    private volatile int studentCount;
+
+    TenantGuard(String tenantId, TenantQuota quota) {
+        this.tenantId = tenantId;
+        this.quota = quota;
+        this.nanosPerToken = quota.getOpsPerSecond() == 0 ? 0 : (long) (1e9 / quota.getOpsPerSecond());
+        this.tokens = quota.getBurst();
+        this.refilledAt = System.nanoTime();
+    }
+
+    String getTenantId() { return tenantId; }
+    TenantQuota getQuota() { return quota; }
+
+    /**
+     * 取得一次调用的令牌，必要时等待。等待期间被中断时不再等待，保留中断状态。
+     */
+    void acquire() {
+        long waitNanos;
+        synchronized (this) {
+            operations++;
+            if (nanosPerToken == 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            tokens = Math.min(quota.getBurst(), tokens + (double) (now - refilledAt) / nanosPerToken);
+            refilledAt = now;
+            tokens -= 1; // 可以透支：等待期间到达的令牌已预留给本次调用，后来者排在其后
+            if (tokens >= 0) {
+                return;
+            }
+            waitNanos = (long) (-tokens * nanosPerToken);
+            throttledOperations++;
+            throttleWaitNanos += waitNanos;
+        }
+        try {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 检查是否还能新增数据 (内存估算未达上限)。
+     * @return 能否新增；不能时计入被拒绝的写操作
+     */
+    synchronized boolean admitGrowth() {
+        if (quota.getMaxHeapBytes() == 0 || heapBytes < quota.getMaxHeapBytes()) {
+            return true;
+        }
+        rejectedWrites++;
+        return false;
+    }
+
+    void updateUsage(long heapBytes, int studentCount) {
+        this.heapBytes = heapBytes;
+        this.studentCount = studentCount;
+    }
+
+    synchronized TenantMetrics metrics() {
+        return new TenantMetrics(tenantId, quota, studentCount, heapBytes, operations, throttledOperations,
+                throttleWaitNanos, rejectedWrites);
+    }
+}
@@ -0,0 +1,56 @@
+package service;
+
+/**
+ * 租户的运行指标快照。
+ */
+public class TenantMetrics {
+    private final String tenantId;
+    private final TenantQuota quota;
+    private final int studentCount;
+    private final long heapBytes;
+    private final long operations;
+    private final long throttledOperations;
+    private final long throttleWaitNanos;
+    private final long rejectedWrites;
+
+    TenantMetrics(String tenantId, TenantQuota quota, int studentCount, long heapBytes, long operations,
+                  long throttledOperations, long throttleWaitNanos, long rejectedWrites) {
+        this.tenantId = tenantId;
+        this.quota = quota;
+        this.studentCount = studentCount;
+        this.heapBytes = heapBytes;
+        this.operations = operations;
+        this.throttledOperations = throttledOperations;
+        this.throttleWaitNanos = throttleWaitNanos;
+        this.rejectedWrites = rejectedWrites;
+    }
+
+    public String getTenantId() { return tenantId; }
+    public TenantQuota getQuota() { return quota; }
+    public int getStudentCount() { return studentCount; }
+
+    /**
+     * 获取学生数据的估算内存 (字节)，口径同 {@link MemoryFootprint} 中除存储结构外的各项。
+     * @return 字节数
+     */
+    public long getHeapBytes() { return heapBytes; }
+
+    /**
+     * 获取服务调用总数 (含被限速的调用)。
+     * @return 调用数
+     */
+    public long getOperations() { return operations; }
+
+    /**
+     * 获取因超出每秒调用数而等待过的调用数。
+     * @return 调用数
+     */
+    public long getThrottledOperations() { return throttledOperations; }
+    public long getThrottleWaitNanos() { return throttleWaitNanos; }
+
+    /**
+     * 获取因达到内存上限而被拒绝的写操作数。
+     * @return 操作数
+     */
+    public long getRejectedWrites() { return rejectedWrites; }
+}
@@ -0,0 +1,39 @@
+package service;
+
+/**
+ * 租户配额：学生数据的内存上限与每秒操作数上限。
+ */
+public final class TenantQuota {
+    /** 不限制。 */
+    public static final TenantQuota UNLIMITED = new TenantQuota(0, 0, 0);
+
+    private final long maxHeapBytes;
+    private final double opsPerSecond;
+    private final int burst;
+
+    /**
+     * 构造函数。
+     * @param maxHeapBytes 学生数据的估算内存上限 (字节，见 {@link MemoryFootprint})，达到后拒绝新增学生与成绩；0 表示不限制
+     * @param opsPerSecond 每秒允许的服务调用数，超出时调用方等待；0 表示不限制
+     * @param burst 允许的突发调用数 (令牌桶容量)，为 0 时取每秒调用数 (至少 1)
+     * @throws IllegalArgumentException 参数为负数时抛出
+     */
+    public TenantQuota(long maxHeapBytes, double opsPerSecond, int burst) {
+        if (maxHeapBytes < 0) {
+            throw new IllegalArgumentException("内存上限不能为负数");
+        }
+        if (opsPerSecond < 0 || Double.isNaN(opsPerSecond)) {
+            throw new IllegalArgumentException("每秒操作数不能为负数");
+        }
+        if (burst < 0) {
+            throw new IllegalArgumentException("突发调用数不能为负数");
+        }
+        this.maxHeapBytes = maxHeapBytes;
+        this.opsPerSecond = opsPerSecond;
+        this.burst = burst > 0 ? burst : (int) Math.max(1, Math.min(Integer.MAX_VALUE, opsPerSecond));
+    }
+
+    public long getMaxHeapBytes() { return maxHeapBytes; }
+    public double getOpsPerSecond() { return opsPerSecond; }
+    public int getBurst() { return burst; }
+}
@@ -0,0 +1,181 @@
+package service;
+
+import model.Student;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 租户注册表：同一 JVM 中为多所学校各提供一个 {@link StudentManagementSystem}。
+ * <p>
+ * 各租户的名册、二级索引、查询缓存互相独立；字符串字典 (课程名、班级编码，堆外存储的字符串) 与写报告的线程池由所有租户共用。
+ * 每个租户有自己的配额 ({@link TenantQuota})：超出每秒调用数时调用方等待，学生数据达到内存上限时拒绝新增。
+ * 注册表本身线程安全；单个租户的服务与普通服务一样不是线程安全的，应由一个线程 (或外部加锁) 使用。
+ */
+public class TenantRegistry implements Closeable {
+    private final StringDictionary dictionary = new StringDictionary();
+    private final ExecutorService reportExecutor = ClassReportWriter.newExecutor();
+    private final Map<String, Tenant> tenants = new LinkedHashMap<>();
+
+    private static final class Tenant {
+        final StudentManagementSystem sms;
+        final TenantGuard guard;
+
+        Tenant(StudentManagementSystem sms, TenantGuard guard) {
+            this.sms = sms;
+            this.guard = guard;
+        }
+    }
+
+    /**
+     * 创建使用内存存储的租户。
+     * @param tenantId 租户标识
+     * @param quota 配额
+     * @return 租户的服务
+     * @throws IllegalArgumentException 标识为空或已存在时抛出
+     */
+    public StudentManagementSystem createTenant(String tenantId, TenantQuota quota) {
+        return register(tenantId, quota, new IdIndexedStudentMap(), StudentManagementSystem.IndexBuildMode.EAGER);
+    }
+
+    /**
+     * 创建使用堆外存储的租户，存储中的字符串使用共用的字典。
+     * @param tenantId 租户标识
+     * @param quota 配额 (内存上限按学生对象常驻堆内时估算)
+     * @param initialArenaBytes 初始堆外内存大小 (字节)
+     * @return 租户的服务
+     * @throws IllegalArgumentException 标识为空或已存在时抛出
+     */
+    public StudentManagementSystem createOffHeapTenant(String tenantId, TenantQuota quota, int initialArenaBytes) {
+        return register(tenantId, quota, new OffHeapStudentMap(initialArenaBytes, dictionary), StudentManagementSystem.IndexBuildMode.EAGER);
+    }
+
+    /**
+     * 使用指定的存储创建租户 (例如已打开的 {@link TieredStudentMap})。存储随租户移除或注册表关闭而关闭。
+     * @param tenantId 租户标识
+     * @param quota 配额
+     * @param store 学号 → 学生 的存储
+     * @param indexBuildMode 索引建立时机
+     * @return 租户的服务
+     * @throws IllegalArgumentException 标识为空或已存在时抛出
+     */
+    public StudentManagementSystem createTenant(String tenantId, TenantQuota quota, Map<String, Student> store,
+                                                StudentManagementSystem.IndexBuildMode indexBuildMode) {
+        return register(tenantId, quota, store, indexBuildMode);
+    }
+
+    private synchronized StudentManagementSystem register(String tenantId, TenantQuota quota, Map<String, Student> store,
+                                                          StudentManagementSystem.IndexBuildMode indexBuildMode) {
+        if (tenantId == null || tenantId.trim().isEmpty()) {
+            throw new IllegalArgumentException("租户标识不能为空");
+        }
+        if (tenants.containsKey(tenantId)) {
+            throw new IllegalArgumentException("租户 " + tenantId + " 已存在");
+        }
+        TenantGuard guard = new TenantGuard(tenantId, quota == null ? TenantQuota.UNLIMITED : quota);
+        StudentManagementSystem sms = new StudentManagementSystem(store, indexBuildMode, dictionary, reportExecutor, guard);
+        tenants.put(tenantId, new Tenant(sms, guard));
+        return sms;
+    }
+
+    /**
+     * 获取租户的服务。
+     * @param tenantId 租户标识
+     * @return 服务；租户不存在时为 null
+     */
+    public synchronized StudentManagementSystem getTenant(String tenantId) {
+        Tenant tenant = tenants.get(tenantId);
+        return tenant == null ? null : tenant.sms;
+    }
+
+    /**
+     * 获取全部租户标识。
+     * @return 按创建顺序的租户标识
+     */
+    public synchronized List<String> getTenantIds() {
+        return new ArrayList<>(tenants.keySet());
+    }
+
+    /**
+     * 移除租户并关闭其服务 (及存储)。
+     * @param tenantId 租户标识
+     * @return 租户是否存在
+     * @throws IOException 关闭存储失败时抛出
+     */
+    public boolean removeTenant(String tenantId) throws IOException {
+        Tenant tenant;
+        synchronized (this) {
+            tenant = tenants.remove(tenantId);
+        }
+        if (tenant == null) {
+            return false;
+        }
+        tenant.sms.close();
+        return true;
+    }
+
+    /**
+     * 获取租户的运行指标。
+     * @param tenantId 租户标识
+     * @return 指标；租户不存在时为 null
+     */
+    public synchronized TenantMetrics getMetrics(String tenantId) {
+        Tenant tenant = tenants.get(tenantId);
+        return tenant == null ? null : tenant.guard.metrics();
+    }
+
+    /**
+     * 打印全部租户的运行指标与配额。
+     */
+    public void printMetrics() {
+        List<TenantMetrics> all = new ArrayList<>();
+        synchronized (this) {
+            for (Tenant tenant : tenants.values()) {
+                all.add(tenant.guard.metrics());
+            }
+        }
+        System.out.println("\n--- 租户指标 (共 " + all.size() + " 个, 共用字典 " + dictionary.size() + " 项) ---");
+        for (TenantMetrics metrics : all) {
+            TenantQuota quota = metrics.getQuota();
+            System.out.println(String.format("%s: 学生 %d 名, 内存 %.1f MB%s, 调用 %d 次%s, 限速等待 %d 次 (共 %.1f ms), 超出内存上限被拒 %d 次",
+                    metrics.getTenantId(), metrics.getStudentCount(), metrics.getHeapBytes() / 1048576.0,
+                    quota.getMaxHeapBytes() == 0 ? "" : String.format(" / %.1f MB", quota.getMaxHeapBytes() / 1048576.0),
+                    metrics.getOperations(),
+                    quota.getOpsPerSecond() == 0 ? "" : String.format(" (限 %.0f 次/秒)", quota.getOpsPerSecond()),
+                    metrics.getThrottledOperations(), metrics.getThrottleWaitNanos() / 1e6, metrics.getRejectedWrites()));
+        }
+        System.out.println("--------------------");
+    }
+
+    /**
+     * 关闭全部租户与共用的线程池。某个租户关闭失败时仍会关闭其余租户，最后抛出第一个异常。
+     * @throws IOException 关闭存储失败时抛出
+     */
+    @Override
+    public void close() throws IOException {
+        List<Tenant> all;
+        synchronized (this) {
+            all = new ArrayList<>(tenants.values());
+            tenants.clear();
+        }
+        IOException failure = null;
+        for (Tenant tenant : all) {
+            try {
+                tenant.sms.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        reportExecutor.shutdown();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,568 @@
+package service;
+
+import model.Student;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * 冷热分层的学生存储：热数据保存在容量受限的 LRU 缓存中，全部记录以追加日志的形式保存在磁盘上。
+ * <p>
+ * 磁盘文件由顺序追加的记录组成，内存中只保留 学号 → 记录偏移 的目录 (保持插入顺序)。
+ * 点查先查缓存，未命中时从磁盘读入并放入缓存；遍历 (values/entrySet) 直接从磁盘流式读取，不会填充缓存。
+ * 缓存条目被淘汰时若内容已被修改 (编码校验和变化)，会先写回磁盘，因此调用方对取出的学生对象所做的修改不会丢失。
+ * <p>
+ * 关闭时写出目录提示文件 ({@link DirectoryHint})。下次打开时目录在后台线程中从提示文件加载，
+ * 加载完成前按学号查找直接查提示文件中的散列表，不等待；遍历、写入等需要完整目录的操作才等待加载完成。
+ */
+public class TieredStudentMap extends AbstractMap<String, Student> implements Closeable {
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final int COMPACT_GARBAGE_PERCENT = 50; // 关闭时失效记录超过日志的这个比例就压缩
+
+    private final Path file;
+    private FileChannel channel;
+    private Map<String, Long> directory;  // 学号 → 最新记录偏移；从提示文件打开时在后台加载，加载完成前为 null
+    private DirectoryHint pendingHint;    // 目录加载完成前按学号查找用
+    private Thread directoryLoader;
+    private volatile Map<String, Long> loadedDirectory; // 后台线程加载的结果；加载失败时为 null
+    private final StudentCache cache;
+    private long writeBackCount;
+    private long garbageBytes; // 已被覆盖或删除的记录字节数
+
+    private TieredStudentMap(Path file, int cacheCapacity) throws IOException {
+        this.file = file;
+        this.cache = new StudentCache(cacheCapacity, this::writeBackIfDirty);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        DirectoryHint hint = DirectoryHint.open(hintFile(), channel.size());
+        if (hint == null) {
+            directory = new LinkedHashMap<>();
+            loadDirectory();
+        } else if (!hint.isSearchable()) {
+            try (hint) {
+                directory = hint.readAll();
+            }
+            garbageBytes = hint.getGarbageBytes();
+        } else {
+            garbageBytes = hint.getGarbageBytes();
+            pendingHint = hint;
+            directoryLoader = new Thread(() -> {
+                try {
+                    loadedDirectory = hint.readAll();
+                } catch (IOException | RuntimeException e) {
+                    loadedDirectory = null; // 需要目录时改为扫描日志重建
+                }
+            }, "student-directory-loader");
+            directoryLoader.setDaemon(true);
+            directoryLoader.start();
+        }
+    }
+
+    /**
+     * 打开 (或新建) 分层存储。
+     * @param file 磁盘日志文件
+     * @param cacheCapacity 内存中最多缓存的学生数
+     * @return 分层存储
+     * @throws IOException 文件读写失败时抛出
+     */
+    public static TieredStudentMap open(Path file, int cacheCapacity) throws IOException {
+        return new TieredStudentMap(file, cacheCapacity);
+    }
+
+    @Override
+    public int size() {
+        return directory == null ? pendingHint.getCount() : directory.size(); // 目录加载完成前不会有写入
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && offsetOf((String) key) != null;
+    }
+
+    /**
+     * 点查：命中缓存则直接返回，否则从磁盘读入并放入缓存。
+     */
+    @Override
+    public Student get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String studentId = (String) key;
+        Student cached = cache.get(studentId);
+        if (cached != null) {
+            return cached;
+        }
+        Long offset = offsetOf(studentId);
+        if (offset == null) {
+            return null;
+        }
+        byte[] payload = readPayload(offset);
+        Student student = StudentCodec.decode(payload);
+        cache.put(studentId, student, checksum(payload));
+        return student;
+    }
+
+    /**
+     * 写入学生记录并放入缓存。
+     * @return 缓存中的旧值；旧值不在缓存中时返回 null (不会为了返回值读盘)
+     */
+    @Override
+    public Student put(String studentId, Student student) {
+        Student previous = cache.peek(studentId);
+        byte[] payload = StudentCodec.encode(student);
+        appendPut(studentId, payload);
+        cache.put(studentId, student, checksum(payload));
+        return previous;
+    }
+
+    @Override
+    public Student remove(Object key) {
+        if (!(key instanceof String) || !directory().containsKey(key)) {
+            return null;
+        }
+        String studentId = (String) key;
+        Student removed = cache.remove(studentId);
+        if (removed == null) {
+            removed = StudentCodec.decode(readPayload(directory().get(studentId)));
+        }
+        appendDelete(studentId);
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        for (String studentId : directory().keySet().toArray(new String[0])) {
+            appendDelete(studentId);
+        }
+        cache.clear();
+    }
+
+    /**
+     * 读取学生但不放入缓存，供分块扫描逐个读取，不挤掉缓存中的热点学生。
+     * @param studentId 学号
+     * @return 学生；不存在时为 null
+     */
+    Student readUncached(String studentId) {
+        Student cached = cache.peek(studentId);
+        if (cached != null) {
+            return cached;
+        }
+        Long offset = offsetOf(studentId);
+        return offset == null ? null : StudentCodec.decode(readPayload(offset));
+    }
+
+    /**
+     * 按插入顺序遍历；未缓存的记录直接从磁盘解码，不进入缓存。
+     */
+    @Override
+    public Set<Entry<String, Student>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Student>> iterator() {
+                Iterator<Map.Entry<String, Long>> keys = directory().entrySet().iterator();
+                return new Iterator<>() {
+                    private String lastKey;
+
+                    @Override
+                    public boolean hasNext() {
+                        return keys.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Student> next() {
+                        Map.Entry<String, Long> entry = keys.next();
+                        lastKey = entry.getKey();
+                        Student student = cache.peek(lastKey);
+                        if (student == null) {
+                            student = StudentCodec.decode(readPayload(entry.getValue()));
+                        }
+                        return new SimpleImmutableEntry<>(lastKey, student);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (lastKey == null) {
+                            throw new IllegalStateException();
+                        }
+                        garbageBytes += recordLength(directory().get(lastKey));
+                        keys.remove();
+                        cache.remove(lastKey);
+                        appendRecord(OP_DELETE, lastKey, null);
+                        lastKey = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return TieredStudentMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * 固定缓存中的学生，修改期间不会被淘汰。
+     * @param studentId 学号
+     * @return 学生是否在缓存中 (不在缓存中时先调用 get 装入)
+     */
+    public boolean pin(String studentId) {
+        return cache.pin(studentId);
+    }
+
+    /**
+     * 解除固定。
+     * @param studentId 学号
+     */
+    public void unpin(String studentId) {
+        cache.unpin(studentId);
+    }
+
+    /**
+     * 将缓存中已修改的学生写回磁盘并刷盘。
+     */
+    public void flush() {
+        cache.forEach(this::writeBackIfDirty);
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 压缩磁盘日志，丢弃被覆盖和已删除的记录。
+     * @throws IOException 文件读写失败时抛出
+     */
+    public void compact() throws IOException {
+        flush();
+        Path temp = file.resolveSibling(file.getFileName() + ".compact");
+        Map<String, Long> compacted = new LinkedHashMap<>();
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<String, Long> entry : directory().entrySet()) {
+                ByteBuffer record = readRecord(entry.getValue());
+                compacted.put(entry.getKey(), out.position());
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+            }
+            out.force(false);
+        }
+        channel.close();
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        directory.clear();
+        directory.putAll(compacted);
+        garbageBytes = 0;
+    }
+
+    /**
+     * 写回缓存并关闭。失效记录 (被覆盖或删除的记录) 超过日志的一半时先压缩日志。
+     * 目录从未加载过 (打开后没有写入) 且不需要压缩时提示文件仍然有效，不重新写出。
+     * 压缩会替换日志文件，只在关闭时进行：此时不会再有 {@link #snapshotFromDisk} 快照在其他线程中按旧偏移读取。
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (garbageBytes * 100 > channel.size() * COMPACT_GARBAGE_PERCENT) {
+            compact();
+        }
+        if (directory == null) {
+            pendingHint.close();
+        } else {
+            DirectoryHint.write(hintFile(), channel.size(), garbageBytes, directory);
+        }
+        channel.close();
+    }
+
+    /**
+     * 返回一个只读快照：按当前目录顺序直接从磁盘解码，不读写缓存。
+     * 快照创建后可以在其他线程中遍历 (文件按位置读取是线程安全的)；
+     * 遍历期间对本存储的写入不会反映到快照中。目录仍在后台加载时，开始遍历时从提示文件读取偏移，不等待加载完成。
+     * @return 学生快照
+     */
+    public Iterable<Student> snapshotFromDisk() {
+        if (directory == null) {
+            DirectoryHint hint = pendingHint; // 目录加载完成前不会有写入，提示文件中的目录就是当前目录
+            return () -> {
+                try {
+                    return decoding(hint.readOffsets());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+        }
+        long[] offsets = new long[directory.size()];
+        int i = 0;
+        for (long offset : directory.values()) {
+            offsets[i++] = offset;
+        }
+        return () -> decoding(offsets);
+    }
+
+    private Iterator<Student> decoding(long[] offsets) {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < offsets.length;
+            }
+
+            @Override
+            public Student next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return StudentCodec.decode(readPayload(offsets[next++]));
+            }
+        };
+    }
+
+    // --- 统计 ---
+    public long getHitCount() { return cache.getHitCount(); }
+    public long getMissCount() { return cache.getMissCount(); }
+    public long getEvictionCount() { return cache.getEvictionCount(); }
+    public long getWriteBackCount() { return writeBackCount; }
+    public double getHitRate() { return cache.getHitRate(); }
+    public int getCachedCount() { return cache.size(); }
+    public int getCacheCapacity() { return cache.getCapacity(); }
+    public long getGarbageBytes() { return garbageBytes; }
+
+    /**
+     * 返回缓存统计信息的字符串表示。
+     * @return 格式化字符串
+     */
+    public String statsString() {
+        return String.format("缓存: %d/%d, 命中: %d, 未命中: %d, 命中率: %.2f%%, 淘汰: %d, 写回: %d, 可回收: %d 字节",
+                cache.size(), cache.getCapacity(), getHitCount(), getMissCount(), getHitRate() * 100,
+                getEvictionCount(), writeBackCount, garbageBytes);
+    }
+
+    private void writeBackIfDirty(String studentId, Student student, long loadedChecksum) {
+        if (offsetOf(studentId) == null) {
+            return;
+        }
+        byte[] payload = StudentCodec.encode(student);
+        long currentChecksum = checksum(payload);
+        if (currentChecksum != loadedChecksum) {
+            appendPut(studentId, payload);
+            cache.markClean(studentId, currentChecksum);
+            writeBackCount++;
+        }
+    }
+
+    private void appendPut(String studentId, byte[] payload) {
+        long offset = appendRecord(OP_PUT, studentId, payload);
+        Long previous = directory().put(studentId, offset);
+        if (previous != null) {
+            garbageBytes += recordLength(previous);
+        }
+    }
+
+    private void appendDelete(String studentId) {
+        Long previous = directory().remove(studentId);
+        appendRecord(OP_DELETE, studentId, null);
+        if (previous != null) {
+            garbageBytes += recordLength(previous);
+        }
+    }
+
+    /**
+     * 记录格式: [int 长度][byte 操作][UTF 学号][int 数据长度][数据]。
+     */
+    private long appendRecord(byte op, String studentId, byte[] payload) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload == null ? 32 : payload.length + 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0);
+            out.writeByte(op);
+            out.writeUTF(studentId);
+            out.writeInt(payload == null ? 0 : payload.length);
+            if (payload != null) {
+                out.write(payload);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        record.putInt(0, record.capacity() - Integer.BYTES);
+        try {
+            long offset = channel.size();
+            long position = offset;
+            while (record.hasRemaining()) {
+                position += channel.write(record, position);
+            }
+            return offset;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ByteBuffer readRecord(long offset) {
+        try {
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            readFully(length, offset);
+            ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + length.getInt(0));
+            readFully(record, offset);
+            record.flip();
+            return record;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] readPayload(long offset) {
+        ByteBuffer record = readRecord(offset);
+        record.position(Integer.BYTES + 1);
+        int keyLength = Short.toUnsignedInt(record.getShort());
+        record.position(record.position() + keyLength);
+        byte[] payload = new byte[record.getInt()];
+        record.get(payload);
+        return payload;
+    }
+
+    private long recordLength(long offset) {
+        try {
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            readFully(length, offset);
+            return Integer.BYTES + length.getInt(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("存储文件在偏移 " + position + " 处被截断");
+            }
+            position += read;
+        }
+    }
+
+    private Path hintFile() {
+        return file.resolveSibling(file.getFileName() + ".hint");
+    }
+
+    /**
+     * 获取目录；仍在后台加载时等待加载完成。提示文件读取失败时改为扫描日志重建。
+     */
+    private Map<String, Long> directory() {
+        if (directory != null) {
+            return directory;
+        }
+        boolean interrupted = false;
+        while (directoryLoader.isAlive()) {
+            try {
+                directoryLoader.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        Map<String, Long> loaded = loadedDirectory;
+        loadedDirectory = null;
+        directoryLoader = null;
+        try {
+            pendingHint.close();
+        } catch (IOException ignored) {
+            // 只用于读取，关闭失败不影响数据
+        }
+        pendingHint = null;
+        if (loaded != null) {
+            directory = loaded;
+            return directory;
+        }
+        directory = new LinkedHashMap<>();
+        garbageBytes = 0;
+        try {
+            loadDirectory();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return directory;
+    }
+
+    /**
+     * 按学号取得最新记录的偏移；目录仍在后台加载时直接查提示文件，不等待。
+     * @return 偏移；学号不存在时为 null
+     */
+    private Long offsetOf(String studentId) {
+        if (directory == null && directoryLoader.isAlive()) {
+            try {
+                long offset = pendingHint.find(studentId);
+                return offset < 0 ? null : offset;
+            } catch (IOException e) {
+                // 提示文件读取失败，改为等待完整目录
+            }
+        }
+        return directory().get(studentId);
+    }
+
+    /**
+     * 顺序扫描日志重建目录；末尾不完整的记录会被截掉。
+     */
+    private void loadDirectory() throws IOException {
+        long fileSize = channel.size();
+        long offset = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0)), 1 << 16));
+        while (offset + Integer.BYTES <= fileSize) {
+            int length = in.readInt();
+            if (length <= 0 || offset + Integer.BYTES + length > fileSize) {
+                break;
+            }
+            byte op = in.readByte();
+            String studentId = in.readUTF();
+            int payloadLength = in.readInt();
+            int skipped = 0;
+            while (skipped < payloadLength) {
+                int n = in.skipBytes(payloadLength - skipped);
+                if (n <= 0) {
+                    throw new EOFException("存储文件在偏移 " + offset + " 处被截断");
+                }
+                skipped += n;
+            }
+            Long previous = op == OP_PUT ? directory.put(studentId, offset) : directory.remove(studentId);
+            if (previous != null) {
+                garbageBytes += recordLength(previous);
+            }
+            if (op == OP_DELETE) {
+                garbageBytes += Integer.BYTES + length;
+            }
+            offset += Integer.BYTES + length;
+        }
+        if (offset < fileSize) {
+            channel.truncate(offset);
+        }
+    }
+
+    private static long checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,159 @@
+package service;
+
+import model.Address;
+import model.Graduate;
+import model.Student;
+import model.Undergraduate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 合成工作负载生成器。
+ * <p>
+ * 轨迹先以零间隔添加 keyCount 名学生作为初始名册，再生成 operationCount 个混合操作：
+ * <ul>
+ *   <li>读操作：按学号查找 70%，按班级查询 15%，按姓名查询 5%，Top-K 5%，组合查询 5%；</li>
+ *   <li>写操作：更新成绩 80%，修改学生 10%，添加新学生 10%。</li>
+ * </ul>
+ * 点读点写的学号服从 Zipf 分布 (排名 r 的概率与 1/r^s 成正比)，热点学号在名册中随机分布。
+ * 操作间隔服从指数分布 (泊松到达)。
+ */
+public class WorkloadGenerator {
+    private static final String[] SURNAMES = {"张", "王", "李", "赵", "刘", "陈", "杨", "黄", "周", "吴"};
+    private static final String[] GIVEN_NAMES = {"伟", "芳", "娜", "敏", "静", "强", "磊", "洋", "艳", "杰", "涛", "明"};
+    private static final String[] PROVINCES = {"北京", "上海", "广东", "浙江", "江苏", "四川"};
+    private static final String[] COURSES = {"高等数学", "大学英语", "数据结构", "操作系统"};
+    private static final int CLASS_COUNT = 50;
+
+    private final Random random;
+    private long clockNanos;
+
+    public WorkloadGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * 生成轨迹文件。
+     * @param file 输出文件
+     * @param keyCount 初始学生数
+     * @param operationCount 初始名册之后的操作数
+     * @param readRatio 读操作比例 (0-1)
+     * @param zipfExponent Zipf 指数 s，0 为均匀分布，越大越集中
+     * @param opsPerSecond 平均每秒操作数；不大于 0 时操作间隔为 0 (只适合闭环回放)
+     * @return 写入的事件数
+     * @throws IOException 写入失败时抛出
+     */
+    public long generate(Path file, int keyCount, int operationCount, double readRatio, double zipfExponent,
+                         double opsPerSecond) throws IOException {
+        if (keyCount <= 0 || operationCount < 0) {
+            throw new IllegalArgumentException("学生数必须为正数，操作数不能为负数");
+        }
+        if (readRatio < 0 || readRatio > 1) {
+            throw new IllegalArgumentException("读操作比例必须在 0-1 之间");
+        }
+        clockNanos = 0;
+        double[] cumulative = zipfCumulative(keyCount, zipfExponent);
+        int[] hotOrder = shuffledIndexes(keyCount);
+        int nextNewKey = keyCount;
+        try (WorkloadRecorder recorder = new WorkloadRecorder(file, () -> clockNanos)) {
+            for (int i = 0; i < keyCount; i++) {
+                recorder.recordAdd(newStudent(i));
+            }
+            for (int n = 0; n < operationCount; n++) {
+                if (opsPerSecond > 0) {
+                    clockNanos += (long) (-Math.log(1 - random.nextDouble()) / opsPerSecond * 1e9);
+                }
+                int key = hotOrder[sampleRank(cumulative)];
+                double choice = random.nextDouble();
+                if (random.nextDouble() < readRatio) {
+                    if (choice < 0.70) {
+                        recorder.recordId(WorkloadTrace.Op.FIND, studentId(key));
+                    } else if (choice < 0.85) {
+                        recorder.recordSearch("class", className(key));
+                    } else if (choice < 0.90) {
+                        recorder.recordSearch("name", SURNAMES[key % SURNAMES.length]);
+                    } else if (choice < 0.95) {
+                        recorder.recordTop("totalScore", 10, false);
+                    } else {
+                        recorder.recordQuery("class:" + className(key) + " sort:totalscore:desc limit:10");
+                    }
+                } else {
+                    if (choice < 0.80) {
+                        recorder.recordScore(studentId(key), COURSES[random.nextInt(COURSES.length)], randomScore());
+                    } else if (choice < 0.90) {
+                        recorder.recordModify(studentId(key), newStudent(key));
+                    } else {
+                        recorder.recordAdd(newStudent(nextNewKey++));
+                    }
+                }
+            }
+            return recorder.getEventCount();
+        }
+    }
+
+    private Student newStudent(int key) {
+        String name = SURNAMES[key % SURNAMES.length] + GIVEN_NAMES[random.nextInt(GIVEN_NAMES.length)];
+        int age = 18 + random.nextInt(10);
+        Address address = Address.of(PROVINCES[key % PROVINCES.length], "市" + (key % 20), "街道" + (key % 100), String.valueOf(key % 500));
+        Student student = isGraduate(key)
+                ? new Graduate(studentId(key), name, age, className(key), address, "导师" + (key % 40), "方向" + (key % 15))
+                : new Undergraduate(studentId(key), name, age, className(key), address, "专业" + (key % 12));
+        for (String course : COURSES) {
+            if (random.nextInt(4) != 0) {
+                student.getScores().put(course, randomScore());
+            }
+        }
+        return student;
+    }
+
+    private double randomScore() {
+        return 40 + random.nextInt(61);
+    }
+
+    private static boolean isGraduate(int key) {
+        return key % 4 == 0;
+    }
+
+    private static String studentId(int key) {
+        return (isGraduate(key) ? "G" : "U") + key;
+    }
+
+    private static String className(int key) {
+        return "班级" + (key % CLASS_COUNT);
+    }
+
+    private static double[] zipfCumulative(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private int sampleRank(double[] cumulative) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+
+    private int[] shuffledIndexes(int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+}
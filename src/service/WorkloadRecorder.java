@@ -0,0 +1,226 @@
+package service;
+
+import model.Student;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * 工作负载记录器：把服务调用流写入紧凑的二进制轨迹文件 (格式见 {@link WorkloadTrace})。
+ * <p>
+ * 通过 {@link StudentManagementSystem#setWorkloadRecorder} 挂到系统上后，菜单和批处理发起的调用都会被记录，
+ * 记录发生在调用入口 (无论调用是否成功)。写入失败时打印一次警告并停止记录，不影响正常操作。
+ */
+public class WorkloadRecorder implements Closeable {
+    static final byte BROWSE_ALL = 0;
+    static final byte BROWSE_UNDERGRADUATES = 1;
+    static final byte BROWSE_GRADUATES = 2;
+
+    private final DataOutputStream out;
+    private final LongSupplier clock;
+    private long startNanos = -1;
+    private long lastMicros;
+    private long eventCount;
+    private boolean failed;
+
+    WorkloadRecorder(Path file, LongSupplier clock) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        this.clock = clock;
+        out.writeInt(WorkloadTrace.MAGIC);
+        out.writeByte(WorkloadTrace.FORMAT_VERSION);
+    }
+
+    /**
+     * 新建 (覆盖) 轨迹文件并开始记录，时间戳取自 System.nanoTime。
+     * @param file 轨迹文件
+     * @return 记录器
+     * @throws IOException 文件创建失败时抛出
+     */
+    public static WorkloadRecorder open(Path file) throws IOException {
+        return new WorkloadRecorder(file, System::nanoTime);
+    }
+
+    synchronized void recordAdd(Student student) {
+        if (student == null || !begin(WorkloadTrace.Op.ADD)) {
+            return;
+        }
+        try {
+            WorkloadTrace.writeStudent(out, student);
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordModify(String oldStudentId, Student student) {
+        if (oldStudentId == null || student == null || !begin(WorkloadTrace.Op.MODIFY)) {
+            return;
+        }
+        try {
+            out.writeUTF(oldStudentId);
+            WorkloadTrace.writeStudent(out, student);
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordId(WorkloadTrace.Op op, String studentId) {
+        recordStrings(op, studentId);
+    }
+
+    synchronized void recordSearch(String type, String criteria) {
+        recordStrings(WorkloadTrace.Op.SEARCH, type, criteria);
+    }
+
+    synchronized void recordQuery(String queryText) {
+        recordStrings(WorkloadTrace.Op.QUERY, queryText);
+    }
+
+    synchronized void recordSort(String sortBy, boolean ascending) {
+        if (!begin(WorkloadTrace.Op.SORT)) {
+            return;
+        }
+        try {
+            out.writeUTF(nonNull(sortBy));
+            out.writeBoolean(ascending);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordTop(String sortBy, int k, boolean ascending) {
+        if (!begin(WorkloadTrace.Op.TOP)) {
+            return;
+        }
+        try {
+            out.writeUTF(nonNull(sortBy));
+            out.writeInt(k);
+            out.writeBoolean(ascending);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordScore(String studentId, String course, double score) {
+        if (!begin(WorkloadTrace.Op.SCORE)) {
+            return;
+        }
+        try {
+            out.writeUTF(nonNull(studentId));
+            out.writeUTF(nonNull(course));
+            out.writeDouble(score);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordCount() {
+        begin(WorkloadTrace.Op.COUNT);
+    }
+
+    synchronized void recordBrowse(byte scope) {
+        if (!begin(WorkloadTrace.Op.BROWSE)) {
+            return;
+        }
+        try {
+            out.writeByte(scope);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordFuzzy(String text, Set<FuzzyMatch.Field> fields, double minSimilarity, int limit) {
+        if (!begin(WorkloadTrace.Op.FUZZY)) {
+            return;
+        }
+        try {
+            out.writeUTF(nonNull(text));
+            out.writeByte(WorkloadTrace.fieldMask(fields));
+            out.writeDouble(minSimilarity);
+            out.writeInt(limit);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordRegion(String province, String city, String street) {
+        recordStrings(WorkloadTrace.Op.REGION, province, city, street); // 城市、街道为空与为 null 含义相同
+    }
+
+    synchronized void recordReport(String directory, boolean force) {
+        if (!begin(WorkloadTrace.Op.REPORT)) {
+            return;
+        }
+        try {
+            out.writeUTF(nonNull(directory));
+            out.writeBoolean(force);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void recordStrings(WorkloadTrace.Op op, String... values) {
+        if (!begin(op)) {
+            return;
+        }
+        try {
+            for (String value : values) {
+                out.writeUTF(nonNull(value)); // null 记为空串，回放时同样触发 "条件不能为空" 的分支
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * 写入操作码与时间差。
+     * @return 是否继续写入参数
+     */
+    private boolean begin(WorkloadTrace.Op op) {
+        if (failed) {
+            return false;
+        }
+        long now = clock.getAsLong();
+        if (startNanos < 0) {
+            startNanos = now;
+        }
+        long micros = Math.max(lastMicros, (now - startNanos) / 1000);
+        try {
+            out.writeByte(op.ordinal());
+            WorkloadTrace.writeVarLong(out, micros - lastMicros);
+        } catch (IOException e) {
+            fail(e);
+            return false;
+        }
+        lastMicros = micros;
+        eventCount++;
+        return true;
+    }
+
+    private void fail(Exception e) {
+        failed = true;
+        System.out.println("警告：写入工作负载轨迹失败 (" + e.getMessage() + ")，已停止记录。");
+    }
+
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * 获取已记录的事件数。
+     * @return 事件数
+     */
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,206 @@
+package service;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 工作负载回放器：把轨迹中的调用按原速、N 倍速或多线程闭环的方式施加到系统上，统计吞吐量与各操作的延迟分位数。
+ * <p>
+ * 回放期间 System.out 被替换为空输出，只测量服务本身的开销。
+ * 按时间回放 (开环) 时，延迟从事件的计划时间算起，系统跟不上时排队等待的时间也计入延迟，避免低估尾延迟。
+ * 多线程闭环回放时，各线程依次领取下一个事件，调用在系统对象上串行执行 (系统本身不是线程安全的)，
+ * 延迟包含等待锁的时间。
+ */
+public class WorkloadReplayer {
+    private final StudentManagementSystem sms;
+
+    public WorkloadReplayer(StudentManagementSystem sms) {
+        if (sms == null) {
+            throw new IllegalArgumentException("回放目标系统不能为空");
+        }
+        this.sms = sms;
+    }
+
+    /**
+     * 按轨迹中的时间间隔回放 (开环)。
+     * @param trace 轨迹
+     * @param speed 速度倍数 (1 为原速)；不大于 0 时不等待，尽快依次执行
+     * @return 回放统计
+     */
+    public Report replay(WorkloadTrace trace, double speed) {
+        LatencyLog log = new LatencyLog();
+        PrintStream originalOut = silenceStdout();
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < trace.size(); i++) {
+                long scheduled = speed > 0 ? start + (long) (trace.getTimeNanos(i) / speed) : System.nanoTime();
+                long now;
+                while ((now = System.nanoTime()) < scheduled) {
+                    LockSupport.parkNanos(scheduled - now);
+                }
+                trace.execute(i, sms);
+                log.add(trace.getOp(i), System.nanoTime() - scheduled);
+            }
+        } finally {
+            System.setOut(originalOut);
+        }
+        String mode = speed > 0 ? String.format("开环 %.2f 倍速", speed) : "开环 不限速";
+        return new Report(mode, System.nanoTime() - start, Arrays.asList(log));
+    }
+
+    /**
+     * 多线程闭环回放：每个线程执行完一个事件立即领取下一个，忽略轨迹中的时间间隔。
+     * @param trace 轨迹
+     * @param threads 线程数
+     * @return 回放统计
+     */
+    public Report replayClosedLoop(WorkloadTrace trace, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("线程数必须为正数");
+        }
+        AtomicInteger cursor = new AtomicInteger();
+        List<LatencyLog> logs = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            LatencyLog log = new LatencyLog();
+            logs.add(log);
+            workers.add(new Thread(() -> {
+                int i;
+                while ((i = cursor.getAndIncrement()) < trace.size()) {
+                    long begin = System.nanoTime();
+                    synchronized (sms) {
+                        trace.execute(i, sms);
+                    }
+                    log.add(trace.getOp(i), System.nanoTime() - begin);
+                }
+            }, "workload-replay-" + t));
+        }
+        PrintStream originalOut = silenceStdout();
+        long start = System.nanoTime();
+        try {
+            workers.forEach(Thread::start);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            System.setOut(originalOut);
+        }
+        return new Report("闭环 " + threads + " 线程", System.nanoTime() - start, logs);
+    }
+
+    private static PrintStream silenceStdout() {
+        PrintStream originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return originalOut;
+    }
+
+    /**
+     * 单个线程记录的各操作延迟 (纳秒)。
+     */
+    private static final class LatencyLog {
+        private final long[][] latencies = new long[WorkloadTrace.Op.values().length][];
+        private final int[] counts = new int[latencies.length];
+
+        void add(WorkloadTrace.Op op, long nanos) {
+            int k = op.ordinal();
+            if (latencies[k] == null) {
+                latencies[k] = new long[256];
+            } else if (counts[k] == latencies[k].length) {
+                latencies[k] = Arrays.copyOf(latencies[k], counts[k] * 2);
+            }
+            latencies[k][counts[k]++] = nanos;
+        }
+    }
+
+    /**
+     * 回放统计：总吞吐量，以及每种操作的次数与延迟分位数。
+     */
+    public static final class Report {
+        private final String mode;
+        private final long elapsedNanos;
+        private final long[][] sortedLatencies; // 按操作序号，已排序
+
+        private Report(String mode, long elapsedNanos, List<LatencyLog> logs) {
+            this.mode = mode;
+            this.elapsedNanos = elapsedNanos;
+            int opCount = WorkloadTrace.Op.values().length;
+            sortedLatencies = new long[opCount][];
+            for (int k = 0; k < opCount; k++) {
+                int total = 0;
+                for (LatencyLog log : logs) {
+                    total += log.counts[k];
+                }
+                long[] merged = new long[total];
+                int filled = 0;
+                for (LatencyLog log : logs) {
+                    if (log.counts[k] > 0) {
+                        System.arraycopy(log.latencies[k], 0, merged, filled, log.counts[k]);
+                        filled += log.counts[k];
+                    }
+                }
+                Arrays.sort(merged);
+                sortedLatencies[k] = merged;
+            }
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getOperationCount() {
+            long total = 0;
+            for (long[] latencies : sortedLatencies) {
+                total += latencies.length;
+            }
+            return total;
+        }
+
+        /**
+         * 获取每秒完成的操作数。
+         * @return 吞吐量
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : getOperationCount() * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * 获取某操作的延迟分位数。
+         * @param op 操作
+         * @param percentile 分位 (0-100)
+         * @return 纳秒；没有该操作时为 0
+         */
+        public long getPercentileNanos(WorkloadTrace.Op op, double percentile) {
+            long[] latencies = sortedLatencies[op.ordinal()];
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * latencies.length);
+            return latencies[Math.max(0, Math.min(latencies.length - 1, rank - 1))];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("回放方式: %s, 操作数: %d, 耗时: %.1f ms, 吞吐量: %.0f 次/秒%n",
+                    mode, getOperationCount(), elapsedNanos / 1e6, getThroughput()));
+            sb.append(String.format("%-10s %8s %10s %10s %10s %10s%n", "操作", "次数", "p50(µs)", "p95(µs)", "p99(µs)", "最大(µs)"));
+            for (WorkloadTrace.Op op : WorkloadTrace.Op.values()) {
+                long[] latencies = sortedLatencies[op.ordinal()];
+                if (latencies.length == 0) {
+                    continue;
+                }
+                sb.append(String.format("%-10s %8d %10.1f %10.1f %10.1f %10.1f%n", op.getDescription(), latencies.length,
+                        getPercentileNanos(op, 50) / 1e3, getPercentileNanos(op, 95) / 1e3,
+                        getPercentileNanos(op, 99) / 1e3, latencies[latencies.length - 1] / 1e3));
+            }
+            return sb.toString();
+        }
+    }
+}
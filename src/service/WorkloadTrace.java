@@ -0,0 +1,307 @@
+package service;
+
+import model.Student;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 读入内存的工作负载轨迹：按时间顺序排列的服务调用 (操作、参数、时间戳)。
+ * <p>
+ * 文件格式：魔数、版本号，之后每个事件依次为
+ * <pre>
+ *   操作码 (1 字节) | 距上一事件的微秒数 (变长整数) | 参数 (按操作固定顺序)
+ * </pre>
+ * 字符串参数用 writeUTF，学生对象为 变长长度 + {@link StudentCodec} 编码，模糊查询的字段集合为按字段序号的位掩码 (1 字节)。
+ * 典型的查找事件只占 8-12 字节。新操作的操作码追加在最后，旧轨迹文件仍可读取。
+ * 班级报告事件回放时与原调用一样写入记录的目录。
+ */
+public class WorkloadTrace {
+    static final int MAGIC = 0x57544C31; // "WTL1"
+    static final byte FORMAT_VERSION = 1;
+
+    /**
+     * 被记录的服务操作，操作码即枚举序号。
+     */
+    public enum Op {
+        ADD("添加"),
+        MODIFY("修改"),
+        DELETE("删除"),
+        FIND("按学号查找"),
+        SEARCH("关键字查询"),
+        SORT("排序显示"),
+        TOP("Top-K"),
+        QUERY("组合查询"),
+        SCORE("更新成绩"),
+        COUNT("人数统计"),
+        BROWSE("浏览"),
+        FUZZY("模糊查询"),
+        REGION("按地区查找"),
+        REPORT("班级报告");
+
+        private static final Op[] VALUES = values();
+        private final String description;
+
+        Op(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public boolean isWrite() {
+            return this == ADD || this == MODIFY || this == DELETE || this == SCORE;
+        }
+
+        static Op of(int code) {
+            if (code < 0 || code >= VALUES.length) {
+                throw new IllegalStateException("无法识别的操作码: " + code);
+            }
+            return VALUES[code];
+        }
+    }
+
+    private Op[] ops = new Op[1024];
+    private long[] timesNanos = new long[1024]; // 相对第一个事件的时间
+    private Object[][] args = new Object[1024][];
+    private int size;
+
+    private WorkloadTrace() {}
+
+    /**
+     * 读取轨迹文件。
+     * @param file 轨迹文件
+     * @return 轨迹
+     * @throws IOException 读取失败或格式错误时抛出
+     */
+    public static WorkloadTrace read(Path file) throws IOException {
+        WorkloadTrace trace = new WorkloadTrace();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("不是工作负载轨迹文件: " + file);
+            }
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("不支持的轨迹版本: " + version);
+            }
+            long micros = 0;
+            int code;
+            while ((code = in.read()) >= 0) {
+                Op op = Op.of(code);
+                Object[] eventArgs;
+                try {
+                    micros += readVarLong(in);
+                    eventArgs = readArgs(op, in);
+                } catch (EOFException e) {
+                    break; // 记录进程异常退出时最后一个事件可能不完整，丢弃即可
+                }
+                trace.append(op, micros * 1000, eventArgs);
+            }
+        }
+        return trace;
+    }
+
+    private static Object[] readArgs(Op op, DataInputStream in) throws IOException {
+        switch (op) {
+            case ADD:
+                return new Object[] {readBytes(in)};
+            case MODIFY:
+                return new Object[] {in.readUTF(), readBytes(in)};
+            case DELETE:
+            case FIND:
+            case QUERY:
+                return new Object[] {in.readUTF()};
+            case SEARCH:
+                return new Object[] {in.readUTF(), in.readUTF()};
+            case SORT:
+                return new Object[] {in.readUTF(), in.readBoolean()};
+            case TOP:
+                return new Object[] {in.readUTF(), in.readInt(), in.readBoolean()};
+            case SCORE:
+                return new Object[] {in.readUTF(), in.readUTF(), in.readDouble()};
+            case BROWSE:
+                return new Object[] {in.readByte()};
+            case FUZZY:
+                return new Object[] {in.readUTF(), in.readByte(), in.readDouble(), in.readInt()};
+            case REGION:
+                return new Object[] {in.readUTF(), in.readUTF(), in.readUTF()};
+            case REPORT:
+                return new Object[] {in.readUTF(), in.readBoolean()};
+            default:
+                return new Object[0];
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private void append(Op op, long timeNanos, Object[] eventArgs) {
+        if (size == ops.length) {
+            ops = Arrays.copyOf(ops, size * 2);
+            timesNanos = Arrays.copyOf(timesNanos, size * 2);
+            args = Arrays.copyOf(args, size * 2);
+        }
+        ops[size] = op;
+        timesNanos[size] = timeNanos;
+        args[size] = eventArgs;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Op getOp(int index) {
+        return ops[index];
+    }
+
+    /**
+     * 获取事件相对于第一个事件的时间。
+     * @param index 事件序号
+     * @return 纳秒 (记录精度为微秒)
+     */
+    public long getTimeNanos(int index) {
+        return timesNanos[index];
+    }
+
+    /**
+     * 统计各操作的事件数。
+     * @return 以操作序号为下标的计数
+     */
+    public int[] countByOp() {
+        int[] counts = new int[Op.VALUES.length];
+        for (int i = 0; i < size; i++) {
+            counts[ops[i].ordinal()]++;
+        }
+        return counts;
+    }
+
+    /**
+     * 对系统执行第 index 个事件对应的调用。学生参数每次都重新解码，因此同一轨迹可以重复回放。
+     * @param index 事件序号
+     * @param sms 目标系统
+     */
+    void execute(int index, StudentManagementSystem sms) {
+        Object[] a = args[index];
+        switch (ops[index]) {
+            case ADD:
+                sms.addStudent(StudentCodec.decode((byte[]) a[0]));
+                break;
+            case MODIFY:
+                sms.modifyStudent((String) a[0], StudentCodec.decode((byte[]) a[1]));
+                break;
+            case DELETE:
+                sms.deleteStudent((String) a[0]);
+                break;
+            case FIND:
+                sms.findStudentById((String) a[0]);
+                break;
+            case SEARCH:
+                sms.searchStudents((String) a[1], (String) a[0]);
+                break;
+            case SORT:
+                sms.sortAndDisplayStudents((String) a[0], (Boolean) a[1]);
+                break;
+            case TOP:
+                sms.findTopStudents((String) a[0], (Integer) a[1], (Boolean) a[2]);
+                break;
+            case QUERY:
+                sms.executeQuery((String) a[0]);
+                break;
+            case SCORE:
+                sms.updateScore((String) a[0], (String) a[1], (Double) a[2]);
+                break;
+            case COUNT:
+                sms.printStudentCounts();
+                break;
+            case BROWSE: {
+                byte scope = (Byte) a[0];
+                if (scope == WorkloadRecorder.BROWSE_UNDERGRADUATES) {
+                    sms.browseUndergraduates();
+                } else if (scope == WorkloadRecorder.BROWSE_GRADUATES) {
+                    sms.browseGraduates();
+                } else {
+                    sms.browseAllStudents();
+                }
+                break;
+            }
+            case FUZZY:
+                sms.fuzzySearch((String) a[0], fields((Byte) a[1]), (Double) a[2], (Integer) a[3]);
+                break;
+            case REGION:
+                sms.findStudentsByRegion((String) a[0], (String) a[1], (String) a[2]);
+                break;
+            case REPORT:
+                sms.generateClassReports((String) a[0], (Boolean) a[1]);
+                break;
+            default:
+                throw new IllegalStateException("未处理的操作: " + ops[index]);
+        }
+    }
+
+    // --- 变长整数 (每字节 7 位，最高位表示后面还有字节) ---
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("轨迹文件在事件中间结束");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("变长整数过长");
+    }
+
+    /**
+     * 模糊查询字段集合 → 位掩码，null 与空集合都记为 0 (都表示全部字段)。
+     */
+    static byte fieldMask(Set<FuzzyMatch.Field> fields) {
+        int mask = 0;
+        if (fields != null) {
+            for (FuzzyMatch.Field field : fields) {
+                mask |= 1 << field.ordinal();
+            }
+        }
+        return (byte) mask;
+    }
+
+    private static Set<FuzzyMatch.Field> fields(byte mask) {
+        Set<FuzzyMatch.Field> fields = EnumSet.noneOf(FuzzyMatch.Field.class);
+        for (FuzzyMatch.Field field : FuzzyMatch.Field.values()) {
+            if ((mask & 1 << field.ordinal()) != 0) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    static void writeStudent(DataOutputStream out, Student student) throws IOException {
+        byte[] bytes = StudentCodec.encode(student);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+}
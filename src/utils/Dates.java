@@ -0,0 +1,51 @@
+package utils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+
+/**
+ * 日期输入解析 (按系统时区)。
+ */
+public final class Dates {
+    private Dates() {}
+
+    /**
+     * 解析 "2024-06-30" 或 "2024-06-30T14:05[:30]" 形式的时间。
+     * @param text 输入
+     * @return 毫秒时间戳；只有日期时为当天 0 点
+     * @throws IllegalArgumentException 格式无效时抛出
+     */
+    public static long parseMillis(String text) {
+        String value = text.trim();
+        try {
+            LocalDateTime dateTime = value.indexOf('T') >= 0 ? LocalDateTime.parse(value) : LocalDate.parse(value).atStartOfDay();
+            return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("时间格式应为 yyyy-MM-dd 或 yyyy-MM-ddTHH:mm[:ss]: '" + text + "'");
+        }
+    }
+
+    /**
+     * 解析日期，结果为次日 0 点，用作 "截止到该日 (含)" 的不含上界。
+     * @param text 日期或日期时间 (日期时间按原样返回)
+     * @return 毫秒时间戳
+     * @throws IllegalArgumentException 格式无效时抛出
+     */
+    public static long parseEndMillis(String text) {
+        String value = text.trim();
+        if (value.indexOf('T') >= 0) {
+            return parseMillis(value);
+        }
+        return parseMillis(plusOneDay(value));
+    }
+
+    private static String plusOneDay(String date) {
+        try {
+            return LocalDate.parse(date).plusDays(1).toString();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("时间格式应为 yyyy-MM-dd 或 yyyy-MM-ddTHH:mm[:ss]: '" + date + "'");
+        }
+    }
+}
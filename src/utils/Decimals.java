@@ -0,0 +1,68 @@
+package utils;
+
+import java.util.Locale;
+
+/**
+ * 定点小数格式化，结果与 {@code String.format(Locale.ROOT, "%.Nf", value)} 一致 (小数点总是 '.'，与默认区域无关)，
+ * 但直接追加到 StringBuilder，不解析格式串，常见取值下也不创建中间对象。
+ */
+public final class Decimals {
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+    private static final double FAST_PATH_LIMIT = 1e7;
+    private static final double TIE_EPSILON = 1e-6;
+
+    private Decimals() {}
+
+    /**
+     * 追加保留 precision 位小数的定点表示。
+     * @param sb 目标
+     * @param value 数值
+     * @param precision 小数位数 (0-9)
+     * @return 目标 sb
+     */
+    public static StringBuilder appendFixed(StringBuilder sb, double value, int precision) {
+        if (precision < 0 || precision >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("小数位数必须在 0-9 之间");
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return sb.append(format(value, precision));
+        }
+        boolean negative = Double.doubleToRawLongBits(value) < 0; // 包括 -0.0
+        double magnitude = Math.abs(value);
+        if (magnitude >= FAST_PATH_LIMIT) {
+            return sb.append(format(value, precision));
+        }
+        long scale = POWERS_OF_TEN[precision];
+        double scaled = magnitude * scale;
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        if (Math.abs(fraction - 0.5) < TIE_EPSILON) {
+            // 接近进位边界时，Formatter 按最短十进制表示做四舍五入，交给它处理以保证结果一致
+            return sb.append(format(value, precision));
+        }
+        long rounded = (long) floor + (fraction > 0.5 ? 1 : 0);
+
+        if (negative) {
+            sb.append('-');
+        }
+        sb.append(rounded / scale);
+        if (precision > 0) {
+            sb.append('.');
+            long fractionDigits = rounded % scale;
+            for (long p = scale / 10; p > 1 && fractionDigits < p; p /= 10) {
+                sb.append('0');
+            }
+            sb.append(fractionDigits);
+        }
+        return sb;
+    }
+
+    /**
+     * 回退路径：用 Formatter 格式化。固定使用 Locale.ROOT，否则在小数点为 ',' 的默认区域下与快速路径的结果不一致。
+     */
+    private static String format(double value, int precision) {
+        return String.format(Locale.ROOT, "%." + precision + "f", value);
+    }
+}
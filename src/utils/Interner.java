@@ -0,0 +1,40 @@
+package utils;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 弱引用驻留池：相等的值共享同一个实例。
+ * 池本身不阻止实例被回收，不再被引用的值会自动从池中消失。线程安全。
+ * @param <T> 值类型，须正确实现 equals/hashCode 且不可变
+ */
+public final class Interner<T> {
+    private final Map<T, WeakReference<T>> pool = new WeakHashMap<>();
+
+    /**
+     * 返回与 value 相等的规范实例；池中没有时把 value 本身放入池中。
+     * @param value 值
+     * @return 规范实例；value 为 null 时返回 null
+     */
+    public synchronized T intern(T value) {
+        if (value == null) {
+            return null;
+        }
+        WeakReference<T> ref = pool.get(value);
+        T canonical = ref == null ? null : ref.get();
+        if (canonical == null) {
+            pool.put(value, new WeakReference<>(value));
+            canonical = value;
+        }
+        return canonical;
+    }
+
+    /**
+     * 获取池中当前的实例数 (含尚未清理的已回收条目)。
+     * @return 实例数
+     */
+    public synchronized int size() {
+        return pool.size();
+    }
+}
@@ -0,0 +1,141 @@
+package utils;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+
+/**
+ * HotSpot 64 位 JVM 上对象占用字节数的估算，不遍历堆，也不需要 Instrumentation。
+ * <p>
+ * 对象大小 = 对象头 + 各实例字段 (含父类) 之和，按 8 字节对齐。对象头是 8 字节标记字加类指针，
+ * 开启压缩类指针 (默认) 时类指针 4 字节，否则 8 字节；开启压缩指针 (堆小于 32 GB 时的默认) 时引用 4 字节，否则 8 字节。
+ * JDK 15 起两者相互独立，关闭压缩指针后对象头仍是 12 字节。字段布局按紧凑排列计算，与 JDK 15 以后的布局一致，
+ * 更早的 JDK 上个别类可能因父类字段对齐多出 4 字节。字符串按紧凑字符串 (JDK 9+ 默认) 计算。
+ * 估算与实测堆占用的比较见 scripts/check-object-sizes.sh。
+ */
+public final class ObjectSizes {
+    public static final boolean COMPRESSED_OOPS = vmFlag("UseCompressedOops");
+    public static final boolean COMPRESSED_CLASS_POINTERS = vmFlag("UseCompressedClassPointers");
+    public static final int OBJECT_HEADER = COMPRESSED_CLASS_POINTERS ? 12 : 16;
+    public static final int ARRAY_HEADER = OBJECT_HEADER + 4;
+    public static final int REFERENCE = COMPRESSED_OOPS ? 4 : 8;
+
+    private static final ClassValue<Long> SHALLOW_SIZES = new ClassValue<>() {
+        @Override
+        protected Long computeValue(Class<?> type) {
+            long size = OBJECT_HEADER;
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        size += fieldSize(field.getType());
+                    }
+                }
+            }
+            return align(size);
+        }
+    };
+
+    public static final long BOXED_DOUBLE = align(OBJECT_HEADER + Double.BYTES);
+    public static final long STRING = shallowSize(String.class);
+    public static final long HASH_MAP = shallowSize(HashMap.class);
+    public static final long HASH_MAP_NODE = shallowSize(nestedClass(HashMap.class, "Node"));
+
+    private ObjectSizes() {}
+
+    /**
+     * 对象本身 (不含其引用的对象) 的字节数。
+     * @param type 类 (非数组)
+     * @return 字节数
+     */
+    public static long shallowSize(Class<?> type) {
+        return SHALLOW_SIZES.get(type);
+    }
+
+    /**
+     * 数组的字节数。
+     * @param length 元素个数
+     * @param elementBytes 每个元素的字节数 (引用数组用 {@link #REFERENCE})
+     * @return 字节数
+     */
+    public static long arraySize(int length, int elementBytes) {
+        return align(ARRAY_HEADER + (long) length * elementBytes);
+    }
+
+    /**
+     * 字符串及其字符数组的字节数。
+     * @param value 字符串，可为 null
+     * @return 字节数；null 为 0
+     */
+    public static long stringSize(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = value.length();
+        boolean latin1 = true;
+        for (int i = 0; i < length && latin1; i++) {
+            latin1 = value.charAt(i) < 0x100;
+        }
+        return STRING + arraySize(length, latin1 ? 1 : 2);
+    }
+
+    /**
+     * 默认参数 (初始容量 16、负载因子 0.75) 的 HashMap 在放入 size 个条目后的字节数，
+     * 含桶数组与条目节点，不含键和值。没有放入过条目时桶数组尚未分配。
+     * @param size 条目数
+     * @return 字节数
+     */
+    public static long hashMapSize(int size) {
+        if (size == 0) {
+            return HASH_MAP;
+        }
+        int capacity = 16;
+        while (size > capacity * 3 / 4) {
+            capacity <<= 1;
+        }
+        return HASH_MAP + arraySize(capacity, REFERENCE) + size * HASH_MAP_NODE;
+    }
+
+    /**
+     * 按 8 字节对齐。
+     */
+    public static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    private static int fieldSize(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return REFERENCE;
+        }
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static Class<?> nestedClass(Class<?> outer, String simpleName) {
+        for (Class<?> nested : outer.getDeclaredClasses()) {
+            if (nested.getSimpleName().equals(simpleName)) {
+                return nested;
+            }
+        }
+        throw new IllegalStateException(outer.getName() + " 中没有 " + simpleName);
+    }
+
+    private static boolean vmFlag(String name) {
+        try {
+            HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return bean == null || Boolean.parseBoolean(bean.getVMOption(name).getValue());
+        } catch (RuntimeException e) {
+            return true; // 非 HotSpot JVM 或没有这个参数，按默认配置估算
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package utils;
+
+/**
+ * 学号编码：把 "字母前缀 + 数字" 形式的学号 (如 U24001、G24002) 无损压缩成一个 long。
+ * <p>
+ * 编码布局 (共 62 位，结果恒为非负)：
+ * <pre>
+ *   位 44-61  前缀，最多 3 个 ASCII 字母，每个 6 位 (A-Z 为 1-26, a-z 为 27-52)
+ *   位 40-43  数字位数 (1-12，用于保留前导零)
+ *   位 0-39   数字部分的值
+ * </pre>
+ * 不符合该形式的学号返回 {@link #NOT_ENCODABLE}，调用方需走字符串回退路径。
+ * 编码过程只读取字符，不分配对象。
+ */
+public final class StudentIdCodec {
+    public static final long NOT_ENCODABLE = -1L;
+
+    private static final int MAX_PREFIX_LETTERS = 3;
+    private static final int MAX_DIGITS = 12;
+    private static final int DIGITS_SHIFT = 40;
+    private static final int PREFIX_SHIFT = 44;
+
+    private StudentIdCodec() {}
+
+    /**
+     * 编码学号。
+     * @param studentId 学号
+     * @return 编码结果；无法编码时返回 {@link #NOT_ENCODABLE}
+     */
+    public static long encode(CharSequence studentId) {
+        if (studentId == null) {
+            return NOT_ENCODABLE;
+        }
+        int length = studentId.length();
+        int i = 0;
+        long prefix = 0;
+        while (i < length) {
+            int code = letterCode(studentId.charAt(i));
+            if (code == 0) {
+                break;
+            }
+            if (i == MAX_PREFIX_LETTERS) {
+                return NOT_ENCODABLE;
+            }
+            prefix = (prefix << 6) | code;
+            i++;
+        }
+        int digits = length - i;
+        if (digits < 1 || digits > MAX_DIGITS) {
+            return NOT_ENCODABLE;
+        }
+        long value = 0;
+        for (; i < length; i++) {
+            char c = studentId.charAt(i);
+            if (c < '0' || c > '9') {
+                return NOT_ENCODABLE;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return (prefix << PREFIX_SHIFT) | ((long) digits << DIGITS_SHIFT) | value;
+    }
+
+    /**
+     * 解码学号。
+     * @param code 编码结果
+     * @return 学号字符串
+     */
+    public static String decode(long code) {
+        if (code < 0) {
+            throw new IllegalArgumentException("无效的学号编码: " + code);
+        }
+        StringBuilder sb = new StringBuilder(MAX_PREFIX_LETTERS + MAX_DIGITS);
+        long prefix = code >>> PREFIX_SHIFT;
+        for (int shift = 12; shift >= 0; shift -= 6) {
+            int letter = (int) ((prefix >>> shift) & 0x3F);
+            if (letter != 0) {
+                sb.append(letter <= 26 ? (char) ('A' + letter - 1) : (char) ('a' + letter - 27));
+            }
+        }
+        int digits = (int) ((code >>> DIGITS_SHIFT) & 0xF);
+        String number = Long.toString(code & ((1L << DIGITS_SHIFT) - 1));
+        for (int pad = digits - number.length(); pad > 0; pad--) {
+            sb.append('0');
+        }
+        return sb.append(number).toString();
+    }
+
+    private static int letterCode(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 1;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 27;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,129 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Top-K 选择：用容量为 k 的堆在一次遍历中选出按比较器排在最前的 k 个元素，
+ * 时间 O(n log k)，额外空间 O(k)。
+ * 并列元素按出现顺序排列，结果与对全部元素做稳定排序后取前 k 个一致。
+ * 堆按实际加入的元素增长，不按 k 预分配，k 可以远大于元素个数 (如 Integer.MAX_VALUE)。
+ * @param <T> 元素类型
+ */
+public class TopK<T> {
+    private static final int MAX_INITIAL_CAPACITY = 64;
+
+    private final Comparator<T> comparator;
+    private final int k;
+    private final Comparator<Ranked<T>> order;
+    private final PriorityQueue<Ranked<T>> heap; // 堆顶为当前第 k 名
+    private long seen; // 已遍历的元素个数，用作出现顺序
+
+    private static final class Ranked<T> {
+        final T element;
+        final long sequence;
+
+        Ranked(T element, long sequence) {
+            this.element = element;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * 构造函数。
+     * @param comparator 排序比较器，排在前面的元素优先保留
+     * @param k 保留个数
+     */
+    public TopK(Comparator<T> comparator, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k 必须为正数");
+        }
+        this.comparator = comparator;
+        this.k = k;
+        this.order = Comparator.<Ranked<T>, T>comparing(r -> r.element, comparator).thenComparingLong(r -> r.sequence);
+        this.heap = new PriorityQueue<>(Math.min(k, MAX_INITIAL_CAPACITY) + 1, order.reversed());
+    }
+
+    /**
+     * 加入一个元素。
+     * @param element 元素
+     */
+    public void offer(T element) {
+        offer(new Ranked<>(element, seen++));
+    }
+
+    private void offer(Ranked<T> ranked) {
+        if (heap.size() < k) {
+            heap.add(ranked);
+        } else if (order.compare(ranked, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(ranked);
+        }
+    }
+
+    /**
+     * 合并另一个 (出现顺序在本对象之后的) 选择结果，供并行归并使用。
+     * @param later 后半部分的选择结果
+     * @return 本对象
+     */
+    public TopK<T> merge(TopK<T> later) {
+        for (Ranked<T> ranked : later.heap) {
+            offer(new Ranked<>(ranked.element, seen + ranked.sequence));
+        }
+        seen += later.seen;
+        return this;
+    }
+
+    /**
+     * 返回已选出的元素 (按比较器排序)。
+     * @return 最多 k 个元素
+     */
+    public List<T> toSortedList() {
+        List<Ranked<T>> ranked = new ArrayList<>(heap);
+        ranked.sort(order);
+        List<T> results = new ArrayList<>(ranked.size());
+        for (Ranked<T> r : ranked) {
+            results.add(r.element);
+        }
+        return results;
+    }
+
+    /**
+     * 顺序选择。来源是元素个数不超过 k 的集合时全部入选，直接做稳定排序。
+     * @param source 元素来源
+     * @param comparator 排序比较器
+     * @param k 保留个数
+     * @return 排在最前的至多 k 个元素
+     */
+    public static <T> List<T> select(Iterable<T> source, Comparator<T> comparator, int k) {
+        if (k > 0 && source instanceof Collection && ((Collection<T>) source).size() <= k) {
+            List<T> all = new ArrayList<>((Collection<T>) source);
+            all.sort(comparator);
+            return all;
+        }
+        TopK<T> topK = new TopK<>(comparator, k);
+        for (T element : source) {
+            topK.offer(element);
+        }
+        return topK.toSortedList();
+    }
+
+    /**
+     * 基于流的选择；并行流中每个线程维护自己的堆，最后按出现顺序归并。
+     * 流必须是有序的，才能保证并列元素的顺序与稳定排序一致。
+     * @param stream 元素流 (可为并行流)
+     * @param comparator 排序比较器
+     * @param k 保留个数
+     * @return 排在最前的至多 k 个元素
+     */
+    public static <T> List<T> select(Stream<T> stream, Comparator<T> comparator, int k) {
+        return stream.collect(() -> new TopK<>(comparator, k), TopK::offer, TopK::merge).toSortedList();
+    }
+
+    public int getK() { return k; }
+    public Comparator<T> getComparator() { return comparator; }
+}
@@ -0,0 +1,309 @@
+package view;
+
+import model.Address;
+import model.Graduate;
+import model.Student;
+import model.Undergraduate;
+import service.FuzzyMatch;
+import service.StudentManagementSystem;
+import utils.Dates;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+
+/**
+ * 批处理模式：从脚本或标准输入逐行读取命令并执行，不等待键盘输入。
+ * <p>
+ * 每行一条命令，字段以 '|' 分隔 (首尾空白会被去掉)，空行和以 '#' 开头的行被忽略：
+ * <pre>
+ *   add|U|学号|姓名|年龄|班级|省份|城市|街道|门牌号|专业[|课程=分数;课程=分数]
+ *   add|G|学号|姓名|年龄|班级|省份|城市|街道|门牌号|导师|研究方向[|课程=分数;...]
+ *   modify|旧学号|U 或 G|新学号|...(同 add)...   成绩在原有成绩基础上添加/覆盖
+ *   score|学号|课程|分数[|变更时间]     变更时间为 yyyy-MM-dd 或 yyyy-MM-ddTHH:mm[:ss]，默认为当前时间
+ *   history|学号[|起始日期|截止日期]      截止日期当天包含在内
+ *   asof|学号|课程|时间
+ *   trend|班级|课程
+ *   stats|课程[|班级 (留空为全部)[|阈值 (默认 60)]]
+ *   report|目录[|force]                只重新生成有变动的班级，加 force 全部重新生成
+ *   delete|学号
+ *   search|class 或 name 或 id|关键字
+ *   query|组合查询语句
+ *   sort|id 或 totalScore 或 course:课程名|asc 或 desc[|前 K 名]
+ *   browse|all 或 undergraduate 或 graduate
+ *   region|省份[|城市[|街道]]
+ *   fuzzy|all 或 name 或 direction 或 supervisor|关键字[|相似度阈值 (默认 0.5)|前 K 名 (默认 20)]
+ *   count
+ *   memory[|显示的班级、课程数 (默认 10)]
+ * </pre>
+ * 某一行执行失败 (包括意外的运行时异常) 时打印行号与原因，继续执行后面的命令。
+ * 输出经过缓冲，结束时打印每类命令的次数与耗时。
+ */
+public class BatchRunner {
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    private final StudentManagementSystem sms;
+    private final Map<String, long[]> timings = new LinkedHashMap<>(); // 命令 → {次数, 总纳秒, 失败次数}
+    private int errorCount;
+
+    public BatchRunner(StudentManagementSystem sms) {
+        this.sms = sms;
+    }
+
+    /**
+     * 执行全部命令。执行期间 System.out 被替换为包装原 System.out 的缓冲输出 (原输出已被重定向时仍写到重定向的目标)，结束后恢复。
+     * @param reader 命令来源
+     * @throws IOException 读取失败时抛出
+     */
+    public void run(BufferedReader reader) throws IOException {
+        PrintStream originalOut = System.out;
+        PrintStream bufferedOut = buffered(originalOut);
+        System.setOut(bufferedOut);
+        long start = System.nanoTime();
+        int lineNumber = 0;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                executeLine(line, lineNumber);
+            }
+            printSummary(lineNumber, System.nanoTime() - start);
+        } finally {
+            bufferedOut.flush();
+            System.setOut(originalOut);
+        }
+    }
+
+    private void executeLine(String line, int lineNumber) {
+        String[] fields = line.split("\\|", -1);
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = fields[i].trim();
+        }
+        String command = fields[0].toLowerCase();
+        long begin = System.nanoTime();
+        boolean ok;
+        try {
+            ok = execute(command, fields);
+        } catch (IllegalArgumentException e) {
+            System.out.println("第 " + lineNumber + " 行执行失败：" + e.getMessage());
+            ok = false;
+        } catch (RuntimeException e) { // 存储读写失败等意外错误：报告后继续执行后面的命令
+            System.out.println("第 " + lineNumber + " 行执行出错：" + e);
+            ok = false;
+        }
+        long elapsed = System.nanoTime() - begin;
+        long[] stats = timings.computeIfAbsent(command, k -> new long[3]);
+        stats[0]++;
+        stats[1] += elapsed;
+        if (!ok) {
+            stats[2]++;
+            errorCount++;
+        }
+    }
+
+    private boolean execute(String command, String[] fields) {
+        switch (command) {
+            case "add":
+                return sms.addStudent(parseStudent(fields, 1));
+            case "modify": {
+                require(fields, 3, "modify|旧学号|类型|...");
+                Optional<Student> existing = sms.lookupStudent(fields[1]); // 不计为一次查询
+                if (!existing.isPresent()) {
+                    System.out.println("错误：未找到学号为 " + fields[1] + " 的学生，修改失败！");
+                    return false;
+                }
+                Student updated = parseStudent(fields, 2);
+                Map<String, Double> newScores = new LinkedHashMap<>(updated.getScores());
+                updated.getScores().clear();
+                updated.copyScoresFrom(existing.get());
+                newScores.forEach(updated::addOrUpdateScore);
+                return sms.modifyStudent(fields[1], updated);
+            }
+            case "score":
+                require(fields, 4, "score|学号|课程|分数[|变更时间]");
+                if (fields.length > 4 && !fields[4].isEmpty()) {
+                    return sms.updateScore(fields[1], fields[2], parseDouble(fields[3], "分数"), Dates.parseMillis(fields[4]));
+                }
+                return sms.updateScore(fields[1], fields[2], parseDouble(fields[3], "分数"));
+            case "history": {
+                require(fields, 2, "history|学号[|起始日期|截止日期]");
+                long from = fields.length > 2 && !fields[2].isEmpty() ? Dates.parseMillis(fields[2]) : 0L;
+                long to = fields.length > 3 && !fields[3].isEmpty() ? Dates.parseEndMillis(fields[3]) : Long.MAX_VALUE;
+                sms.printScoreHistory(fields[1], from, to);
+                return true;
+            }
+            case "asof": {
+                require(fields, 4, "asof|学号|课程|时间");
+                OptionalDouble score = sms.getScoreAsOf(fields[1], fields[2], Dates.parseMillis(fields[3]));
+                System.out.println(fields[1] + " 在 " + fields[3] + " 的 '" + fields[2] + "' 成绩: "
+                        + (score.isPresent() ? String.valueOf(score.getAsDouble()) : "无记录"));
+                return true;
+            }
+            case "trend":
+                require(fields, 3, "trend|班级|课程");
+                sms.printClassTrend(fields[1], fields[2]);
+                return true;
+            case "stats":
+                require(fields, 2, "stats|课程[|班级[|阈值]]");
+                sms.printCourseStats(fields[1], fields.length > 2 ? fields[2] : "", fields.length > 3 ? parseDouble(fields[3], "阈值") : 60);
+                return true;
+            case "report":
+                require(fields, 2, "report|目录[|force]");
+                return sms.generateClassReports(fields[1], fields.length > 2 && fields[2].equalsIgnoreCase("force"));
+            case "delete":
+                require(fields, 2, "delete|学号");
+                return sms.deleteStudent(fields[1]);
+            case "search": {
+                require(fields, 3, "search|类型|关键字");
+                List<Student> results = sms.searchStudents(fields[2], fields[1]);
+                sms.displayStudentList(results, "查询结果");
+                return true;
+            }
+            case "query": {
+                require(fields, 2, "query|查询语句");
+                sms.displayStudentList(sms.executeQuery(fields[1]), "组合查询结果");
+                return true;
+            }
+            case "sort": {
+                require(fields, 3, "sort|排序依据|asc 或 desc[|K]");
+                boolean ascending = !fields[2].equalsIgnoreCase("desc");
+                if (fields.length > 3 && !fields[3].isEmpty()) {
+                    sms.displayTopStudents(fields[1], parseInt(fields[3], "K"), ascending);
+                } else {
+                    sms.sortAndDisplayStudents(fields[1], ascending);
+                }
+                return true;
+            }
+            case "browse": {
+                String scope = fields.length > 1 ? fields[1].toLowerCase() : "all";
+                if (scope.equals("undergraduate")) {
+                    sms.browseUndergraduates();
+                } else if (scope.equals("graduate")) {
+                    sms.browseGraduates();
+                } else {
+                    sms.browseAllStudents();
+                }
+                return true;
+            }
+            case "region": {
+                require(fields, 2, "region|省份[|城市[|街道]]");
+                String city = fields.length > 2 ? fields[2] : "";
+                String street = fields.length > 3 ? fields[3] : "";
+                sms.displayStudentList(sms.findStudentsByRegion(fields[1], city, street), "地区查询结果");
+                return true;
+            }
+            case "fuzzy": {
+                require(fields, 3, "fuzzy|all 或 name 或 direction 或 supervisor|关键字[|阈值|K]");
+                EnumSet<FuzzyMatch.Field> targets;
+                switch (fields[1].toLowerCase()) {
+                    case "all": targets = EnumSet.allOf(FuzzyMatch.Field.class); break;
+                    case "name": targets = EnumSet.of(FuzzyMatch.Field.NAME); break;
+                    case "direction": targets = EnumSet.of(FuzzyMatch.Field.RESEARCH_DIRECTION); break;
+                    case "supervisor": targets = EnumSet.of(FuzzyMatch.Field.SUPERVISOR); break;
+                    default: throw new IllegalArgumentException("未知的模糊查询字段 '" + fields[1] + "'");
+                }
+                double threshold = fields.length > 3 ? parseDouble(fields[3], "相似度阈值") : 0.5;
+                int limit = fields.length > 4 ? parseInt(fields[4], "K") : 20;
+                sms.printFuzzyMatches(sms.fuzzySearch(fields[2], targets, threshold, limit));
+                return true;
+            }
+            case "count":
+                sms.printStudentCounts();
+                return true;
+            case "memory":
+                sms.printMemoryFootprint(fields.length > 1 ? parseInt(fields[1], "显示条数") : 10);
+                return true;
+            default:
+                throw new IllegalArgumentException("未知命令 '" + fields[0] + "'");
+        }
+    }
+
+    /**
+     * 从 fields[from] 开始解析学生：类型|学号|姓名|年龄|班级|省份|城市|街道|门牌号|类型字段...[|成绩]
+     */
+    private static Student parseStudent(String[] fields, int from) {
+        require(fields, from + 1, "类型|学号|...");
+        String type = fields[from].toUpperCase();
+        int specificCount = type.equals("G") ? 2 : 1;
+        require(fields, from + 9 + specificCount, "类型|学号|姓名|年龄|班级|省份|城市|街道|门牌号|" + (specificCount == 2 ? "导师|研究方向" : "专业"));
+        String id = fields[from + 1];
+        String name = fields[from + 2];
+        int age = parseInt(fields[from + 3], "年龄");
+        String className = fields[from + 4];
+        Address address = Address.of(fields[from + 5], fields[from + 6], fields[from + 7], fields[from + 8]);
+        Student student;
+        if (type.equals("U")) {
+            student = new Undergraduate(id, name, age, className, address, fields[from + 9]);
+        } else if (type.equals("G")) {
+            student = new Graduate(id, name, age, className, address, fields[from + 9], fields[from + 10]);
+        } else {
+            throw new IllegalArgumentException("学生类型必须为 U 或 G");
+        }
+        int scoresIndex = from + 9 + specificCount;
+        if (fields.length > scoresIndex && !fields[scoresIndex].isEmpty()) {
+            for (String pair : fields[scoresIndex].split(";")) {
+                int eq = pair.lastIndexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("成绩格式应为 课程=分数: '" + pair + "'");
+                }
+                student.addOrUpdateScore(pair.substring(0, eq).trim(), parseDouble(pair.substring(eq + 1).trim(), "分数"));
+            }
+        }
+        return student;
+    }
+
+    private static void require(String[] fields, int count, String usage) {
+        if (fields.length < count) {
+            throw new IllegalArgumentException("字段不足，格式: " + usage);
+        }
+    }
+
+    private static int parseInt(String value, String fieldName) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(fieldName + "必须为整数: '" + value + "'");
+        }
+    }
+
+    private static double parseDouble(String value, String fieldName) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(fieldName + "必须为数字: '" + value + "'");
+        }
+    }
+
+    private void printSummary(int lines, long totalNanos) {
+        System.out.println("\n--- 批处理统计 ---");
+        System.out.println("读取行数: " + lines + ", 失败命令: " + errorCount + ", 总耗时: " + String.format("%.1f", totalNanos / 1e6) + " ms");
+        for (Map.Entry<String, long[]> entry : timings.entrySet()) {
+            long[] stats = entry.getValue();
+            System.out.println(String.format("%-8s 次数: %d, 失败: %d, 总耗时: %.1f ms, 平均: %.1f µs",
+                    entry.getKey(), stats[0], stats[2], stats[1] / 1e6, stats[1] / 1e3 / stats[0]));
+        }
+        System.out.println("--------------------");
+    }
+
+    private static PrintStream buffered(PrintStream out) {
+        try {
+            return new PrintStream(new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE), false, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int getErrorCount() { return errorCount; }
+}
@@ -1,25 +1,41 @@
 package view;
 
+import service.FuzzyMatch;
 import service.StudentManagementSystem;
 import model.*;
+import utils.Dates;
 import utils.Input;
 
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.Scanner;
+import java.util.Set;
 import java.util.Map;
 
 /**
  * 菜单类，处理用户交互。
  */
 public class Menu {
+    private static final int MEMORY_TOP_ENTRIES = 10; // 内存占用估算中显示的班级、课程数
     private final StudentManagementSystem sms;
     private final Scanner scanner;
 
     public Menu() {
-        this.sms = new StudentManagementSystem();
+        this(new StudentManagementSystem());
+    }
+
+    /**
+     * 使用已有的服务构造；服务中没有学生时才添加初始数据。
+     * @param sms 学生管理系统服务
+     */
+    public Menu(StudentManagementSystem sms) {
+        this.sms = sms;
         this.scanner = new Scanner(System.in, "UTF-8");
-        addInitialData();
+        if (sms.getStudentCount() == 0) {
+            addInitialData();
+        }
     }
 
     /**
@@ -29,7 +45,7 @@ public class Menu {
         int choice;
         do {
             printMainMenu();
-            choice = Input.readIntInput(this.scanner, "请输入选项 (0-7): ", 0, 7);
+            choice = Input.readIntInput(this.scanner, "请输入选项 (0-10): ", 0, 10);
 
             switch (choice) {
                 case 1: addStudent(); break;
@@ -38,7 +54,10 @@ public class Menu {
                 case 4: browseStudents(); break;
                 case 5: searchStudent(); break;
                 case 6: sortStudents(); break;
-                case 7: sms.printStudentCounts(); break;
+                case 7: sms.printStudentCounts(); sms.printRegionCounts(null, null); sms.printCourseEnrollments(); sms.printStorageStats(); break;
+                case 8: scoreHistory(); break;
+                case 9: classReports(); break;
+                case 10: sms.printMemoryFootprint(MEMORY_TOP_ENTRIES); break;
                 case 0: System.out.println("正在退出系统..."); break;
                 default: System.out.println("无效选项，请重新输入。");
             }
@@ -71,6 +90,9 @@ public class Menu {
         System.out.println("5. 查询学生信息");
         System.out.println("6. 排序学生信息");
         System.out.println("7. 统计学生人数");
+        System.out.println("8. 成绩历史与趋势");
+        System.out.println("9. 生成班级成绩报告");
+        System.out.println("10. 内存占用估算");
         System.out.println("0. 退出系统");
         System.out.println("------------------------");
     }
@@ -115,7 +137,7 @@ public class Menu {
             System.out.println("错误：学号不能为空！");
             return null;
         }
-        if (sms.findStudentById(id).isPresent()) {
+        if (sms.containsStudentId(id)) {
             System.out.println("错误：学号 " + id + " 已存在！无法添加。");
             return null;
         }
@@ -130,7 +152,7 @@ public class Menu {
         System.out.print("城市: "); String city = scanner.nextLine().trim();
         System.out.print("街道: "); String street = scanner.nextLine().trim();
         System.out.print("门牌号: "); String houseNumber = scanner.nextLine().trim();
-        return new Address(province, city, street, houseNumber);
+        return Address.of(province, city, street, houseNumber);
      }
     private String readMajor() { /* ... */ System.out.print("专业: "); return scanner.nextLine().trim(); }
     private String readSupervisor() { /* ... */ System.out.print("导师: "); return scanner.nextLine().trim(); }
@@ -200,7 +222,7 @@ public class Menu {
                  System.out.println("错误：新学号不能为空！修改失败。");
                  return null;
              }
-             if (!oldId.equals(newId) && sms.findStudentById(newId).isPresent()) {
+             if (!oldId.equals(newId) && sms.containsStudentId(newId)) {
                  System.out.println("错误：新学号 " + newId + " 已被其他学生使用！修改失败。");
                  return null;
              }
@@ -296,7 +318,7 @@ public class Menu {
         return tempStudent;
      }
     private Student handleModifyScores(Student oldStudent, Student updatedStudent) { /* ... */
-        updatedStudent.getScores().putAll(oldStudent.getScores());
+        updatedStudent.copyScoresFrom(oldStudent);
         System.out.print("是否修改成绩? (y/n, 默认 n): ");
         if (scanner.nextLine().trim().equalsIgnoreCase("y")) {
             System.out.println("--- 修改/添加成绩 (输入课程名和新分数, 输入 'done' 结束) ---");
@@ -360,11 +382,23 @@ public class Menu {
     // --- 查询学生 ---
     private void searchStudent() {
         System.out.println("\n--- 查询学生信息 ---");
-        System.out.println("查询方式 (1: 按班级, 2: 按姓名, 3: 按学号): "); // 简化提示
-        int typeChoice = Input.readIntInput(this.scanner, "请选择查询方式 (1-3): ", 1, 3);
+        System.out.println("查询方式 (1: 按班级, 2: 按姓名, 3: 按学号, 4: 组合查询, 5: 按地区, 6: 模糊查询): "); // 简化提示
+        int typeChoice = Input.readIntInput(this.scanner, "请选择查询方式 (1-6): ", 1, 6);
         String criteria;
         String type;
 
+        if (typeChoice == 4) {
+            compoundQuery();
+            return;
+        }
+        if (typeChoice == 5) {
+            regionQuery();
+            return;
+        }
+        if (typeChoice == 6) {
+            fuzzyQuery();
+            return;
+        }
         switch (typeChoice) {
             case 1: type = "class"; System.out.print("请输入班级关键字: "); break;
             case 2: type = "name"; System.out.print("请输入姓名关键字: "); break;
@@ -382,6 +416,125 @@ public class Menu {
         sms.displayStudentList(results, "查询结果");
     }
 
+    /**
+     * 组合查询：先显示执行计划，再显示结果。
+     */
+    private void compoundQuery() {
+        System.out.println("示例: type:graduate class:计算机研24 supervisor:赵教授 course:Java>80 sort:totalScore:desc,id limit:20");
+        System.out.print("请输入查询语句: ");
+        String queryText = scanner.nextLine().trim();
+        if (queryText.isEmpty()) {
+            System.out.println("查询语句不能为空！");
+            return;
+        }
+        System.out.println(sms.explainQuery(queryText));
+        List<Student> results = sms.executeQuery(queryText);
+        sms.displayStudentList(results, "组合查询结果");
+    }
+
+    /**
+     * 按地区查询：省份必填，城市、街道可留空；结果之后显示下一级地区的人数。
+     */
+    private void regionQuery() {
+        System.out.print("省份: ");
+        String province = scanner.nextLine().trim();
+        if (province.isEmpty()) {
+            System.out.println("省份不能为空！");
+            return;
+        }
+        System.out.print("城市 (留空不限): ");
+        String city = scanner.nextLine().trim();
+        String street = "";
+        if (!city.isEmpty()) {
+            System.out.print("街道 (留空不限): ");
+            street = scanner.nextLine().trim();
+        }
+        List<Student> results = sms.findStudentsByRegion(province, city, street);
+        sms.displayStudentList(results, "地区查询结果");
+        if (street.isEmpty()) {
+            sms.printRegionCounts(province, city);
+        }
+    }
+
+    /**
+     * 模糊查询：容忍错别字、拼音拼错，按相似度列出最接近的学生。
+     */
+    private void fuzzyQuery() {
+        System.out.println("匹配字段 (1: 全部, 2: 姓名, 3: 研究方向, 4: 导师)");
+        int fieldChoice = Input.readIntInput(this.scanner, "请选择字段 (1-4): ", 1, 4);
+        Set<FuzzyMatch.Field> fields = EnumSet.allOf(FuzzyMatch.Field.class);
+        switch (fieldChoice) {
+            case 2: fields = EnumSet.of(FuzzyMatch.Field.NAME); break;
+            case 3: fields = EnumSet.of(FuzzyMatch.Field.RESEARCH_DIRECTION); break;
+            case 4: fields = EnumSet.of(FuzzyMatch.Field.SUPERVISOR); break;
+        }
+        System.out.print("请输入关键字: ");
+        String text = scanner.nextLine().trim();
+        if (text.isEmpty()) {
+            System.out.println("查询关键字不能为空！");
+            return;
+        }
+        int percent = Input.readIntInput(this.scanner, "相似度阈值 (%, 1-100, 建议 50): ", 1, 100);
+        int limit = Input.readIntInput(this.scanner, "最多显示条数 (1-1000): ", 1, 1000);
+        sms.printFuzzyMatches(sms.fuzzySearch(text, fields, percent / 100.0, limit));
+    }
+
+    // --- 成绩历史与趋势 ---
+    private void scoreHistory() {
+        System.out.println("\n--- 成绩历史与趋势 ---");
+        System.out.println("1. 学生成绩变更记录");
+        System.out.println("2. 某一时刻的成绩");
+        System.out.println("3. 班级课程平均分趋势");
+        System.out.println("4. 课程成绩统计");
+        int choice = Input.readIntInput(this.scanner, "请选择 (1-4): ", 1, 4);
+        try {
+            if (choice == 4) {
+                System.out.print("课程名: ");
+                String course = scanner.nextLine().trim();
+                System.out.print("班级 (留空为全部): ");
+                String className = scanner.nextLine().trim();
+                int threshold = Input.readIntInput(this.scanner, "统计低于多少分的人数 (0-100): ", 0, 100);
+                sms.printCourseStats(course, className, threshold);
+                return;
+            }
+            if (choice == 3) {
+                System.out.print("班级: ");
+                String className = scanner.nextLine().trim();
+                System.out.print("课程名: ");
+                String course = scanner.nextLine().trim();
+                sms.printClassTrend(className, course);
+                return;
+            }
+            System.out.print("学号: ");
+            String id = scanner.nextLine().trim();
+            if (choice == 1) {
+                System.out.print("起始日期 (yyyy-MM-dd, 留空不限): ");
+                String from = scanner.nextLine().trim();
+                System.out.print("截止日期 (yyyy-MM-dd, 含当天, 留空不限): ");
+                String to = scanner.nextLine().trim();
+                sms.printScoreHistory(id, from.isEmpty() ? 0L : Dates.parseMillis(from), to.isEmpty() ? Long.MAX_VALUE : Dates.parseEndMillis(to));
+            } else {
+                System.out.print("课程名: ");
+                String course = scanner.nextLine().trim();
+                System.out.print("时间 (yyyy-MM-dd 或 yyyy-MM-ddTHH:mm): ");
+                String time = scanner.nextLine().trim();
+                OptionalDouble score = sms.getScoreAsOf(id, course, Dates.parseMillis(time));
+                System.out.println(score.isPresent() ? "该时刻的成绩: " + score.getAsDouble() : "该时刻之前没有该课程的成绩变更记录。");
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("错误：" + e.getMessage());
+        }
+    }
+
+    // --- 班级成绩报告 ---
+    private void classReports() {
+        System.out.print("报告目录 (留空为 reports): ");
+        String directory = scanner.nextLine().trim();
+        System.out.print("全部重新生成? (y/N): ");
+        boolean force = scanner.nextLine().trim().equalsIgnoreCase("y");
+        sms.generateClassReports(directory.isEmpty() ? "reports" : directory, force);
+    }
+
     // --- 排序学生 ---
     private void sortStudents() {
         System.out.println("\n--- 排序学生信息 ---");
@@ -408,7 +561,13 @@ public class Menu {
         int orderChoice = Input.readIntInput(this.scanner, "请选择 (1 或 2): ", 1, 2); // 简化提示
         boolean ascending = (orderChoice == 1);
 
-        sms.sortAndDisplayStudents(sortBy, ascending);
+        System.out.print("只显示前几名? (输入人数, 0 表示全部): ");
+        int topCount = Input.readIntInput(this.scanner, "请输入非负整数: ", 0, Integer.MAX_VALUE);
+        if (topCount > 0) {
+            sms.displayTopStudents(sortBy, topCount, ascending);
+        } else {
+            sms.sortAndDisplayStudents(sortBy, ascending);
+        }
     }
 
      // --- 初始数据 ---
@@ -416,10 +575,10 @@ public class Menu {
         // ... (添加初始数据的代码保持不变) ...
         System.out.println("正在添加初始测试数据...");
         try {
-            Address addr1 = new Address("广东", "深圳", "南山", "科技园路1号");
-            Address addr2 = new Address("北京", "海淀", "中关村大街", "100号");
-            Address addr3 = new Address("上海", "浦东", "世纪大道", "2001号");
-            Address addr4 = new Address("广东", "广州", "天河", "软件路10号");
+            Address addr1 = Address.of("广东", "深圳", "南山", "科技园路1号");
+            Address addr2 = Address.of("北京", "海淀", "中关村大街", "100号");
+            Address addr3 = Address.of("上海", "浦东", "世纪大道", "2001号");
+            Address addr4 = Address.of("广东", "广州", "天河", "软件路10号");
 
             // Updated initial data with age 24 for all students
             Undergraduate ug1 = new Undergraduate("U24001", "张三", 24, "计算机2401", addr1, "软件工程");